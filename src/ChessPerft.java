@@ -0,0 +1,106 @@
+import java.util.Map;
+
+import chess.model.board.Board;
+import chess.model.board.ParallelPerft;
+import chess.model.board.Perft;
+import chess.model.board.PerftSuite;
+
+/**
+ * This is command line perft tool. It counts leaf nodes of the legal
+ * move tree for every depth up to the given one and prints the number
+ * of nodes per second, so it measures move generation speed and checks
+ * its correctness. Usage:
+ * <pre>
+ * ChessPerft [-board] [-divide] [-threads n] [-moves "e2e4 e7e5 ..."] depth
+ * ChessPerft -suite [-board] [depth]
+ * </pre>
+ * -board counts on the Board path (pieces move generation with Move
+ * execute and undo) instead of the bitboard path, -divide prints leaf
+ * nodes of every root move, -moves plays given moves from the initial
+ * position first, -threads counts subtrees on n worker threads and
+ * -suite runs the regression suite.
+ *
+ * @author Piotr Poskart
+ *
+ */
+public class ChessPerft
+{
+	/**
+	 * This is main method of the perft tool.
+	 * @param args are command line arguments described in the class comment.
+	 */
+	public static void main(String[] args)
+	{
+		boolean boardPath = false;
+		boolean divide = false;
+		boolean suite = false;
+		String moves = "";
+		int threads = 1;
+		int depth = -1;
+		try
+		{
+			for(int i = 0; i < args.length; i++)
+			{
+				if(args[i].equals("-board"))
+					boardPath = true;
+				else if(args[i].equals("-divide"))
+					divide = true;
+				else if(args[i].equals("-suite"))
+					suite = true;
+				else if(args[i].equals("-threads"))
+					threads = Integer.parseInt(args[++i]);
+				else if(args[i].equals("-moves"))
+					moves = args[++i];
+				else
+					depth = Integer.parseInt(args[i]);
+			}
+		}
+		catch(RuntimeException e)
+		{
+			depth = -1;
+		}
+		if(suite)
+		{
+			final boolean passed = PerftSuite.run(depth > 0 ? depth : Perft.MAX_DEPTH, boardPath, System.out);
+			System.out.println(passed ? "Perft suite passed" : "Perft suite FAILED");
+			System.exit(passed ? 0 : 1);
+		}
+		if(depth < 1 || depth > Perft.MAX_DEPTH || threads < 1)
+		{
+			System.out.println("Usage: ChessPerft [-board] [-divide] [-threads n] [-moves \"e2e4 e7e5 ...\"] depth");
+			System.out.println("       ChessPerft -suite [-board] [depth]");
+			System.exit(1);
+		}
+
+		final Board board = new Board();
+		Perft.playMoves(board, moves);
+		if(divide)
+		{
+			final Map<String, Long> result = boardPath ?
+					Perft.divide(board, depth) : Perft.divide(board.copyPosition(), depth);
+			long nodes = 0;
+			for(Map.Entry<String, Long> entry : result.entrySet())
+			{
+				System.out.println(entry.getKey() + ": " + entry.getValue());
+				nodes += entry.getValue();
+			}
+			System.out.println("Moves: " + result.size() + ", nodes: " + nodes);
+			return;
+		}
+		final ParallelPerft parallelPerft = threads > 1 ? new ParallelPerft(threads) : null;
+		for(int i = 1; i <= depth; i++)
+		{
+			final long start = System.nanoTime();
+			final long nodes;
+			if(parallelPerft != null)
+				nodes = boardPath ? parallelPerft.perft(board, i) : parallelPerft.perft(board.copyPosition(), i);
+			else
+				nodes = boardPath ? Perft.perft(board, i) : Perft.perft(board.copyPosition(), i);
+			final long time = Math.max(System.nanoTime() - start, 1);
+			System.out.println("perft(" + i + ") = " + nodes + ", " + (time / 1000000) + " ms, "
+					+ (long) (nodes / (time / 1e9)) + " nodes/s");
+		}
+		if(parallelPerft != null)
+			parallelPerft.shutdown();
+	}
+}
@@ -1,32 +1,82 @@
 import java.io.BufferedReader;
+import java.io.DataInputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.io.PrintWriter;
+import java.io.OutputStream;
 import java.net.ServerSocket;
 import java.net.Socket;
-import java.util.ArrayList;
-import java.util.List;
+import java.net.SocketTimeoutException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
 import java.util.Scanner;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.locks.ReentrantLock;
+
+import chess.model.game.MoveCode;
+import chess.server.BinaryProtocol;
+import chess.server.Match;
+import chess.server.Matchmaker;
+import chess.server.NioChessServer;
+import chess.server.ServerProtocol;
+import chess.server.SessionExecutors;
 
 /**
  * This is main chess server class. This class defines objects
  * and methods to establish network connection and manage incoming
  * connections from client applications. Main thread of this server
- * waits for new clients, initializes new match and pair those clients
- * to play the game. When new client is connected, server gives another
- * dedicated thread to handle connection with this client. New client 
- * service threads are created always when 2 players are ready to play.
- * Client service threads ends its work when QUIT message received 
- * from the client. When one client interrupted the game, server receives
- * QUIT message and notifies second player that game is over. Next server
- * waits for the next player and tries to start next match.
+ * waits for new clients and gives every new client dedicated session
+ * handling connection with this client. Session puts its client into
+ * the matchmaking queue, which pairs clients seeking the same time
+ * control with similar rating and starts their match; clients waiting
+ * too long are told that no opponent was found. Client sessions are
+ * submitted to the session executor: by default every session runs on
+ * new platform thread, server started with virtual argument runs them on
+ * virtual threads (Java 21). Client sessions end their work when QUIT
+ * message received from the client or connection is broken; then the
+ * client leaves the queue or the opponent is notified that game is over.
+ * <p>
+ * Server started with nio argument uses non-blocking core instead, which
+ * serves all clients with a few event loop threads:
+ * <pre>
+ * ChessServer [nio [loops] | virtual]
+ * </pre>
  * 
  * @author Piotr Poskart
  *
  */
 public class ChessServer extends Thread
 {
-	private static List<Player> playerThreads;
+	/** Sessions of the connected clients */
+	private static final Set<Player> players = ConcurrentHashMap.newKeySet();
+	/** Matchmaker pairing the clients of the thread per client core */
+	private static final Matchmaker<Player> matchmaker = new Matchmaker<>(new Matchmaker.Listener<Player>()
+	{
+		@Override
+		public void matched(final Player white, final Player black)
+		{
+			final Match match = new Match();
+			white.setOpponent(black, ServerProtocol.WHITE, match);
+			black.setOpponent(white, ServerProtocol.BLACK, match);
+			black.startMatch();
+			white.startMatch();
+			// left sessions are reported after both starts, never before the opponent's ALLIANCE
+			if (black.left)
+				white.notifyOpponentLeft();
+			if (white.left)
+				black.notifyOpponentLeft();
+		}
+		@Override
+		public void timedOut(final Player client)
+		{
+			client.notifyNoOpponent();
+		}
+	});
+	/** Non-blocking server core, null if thread per client is used */
+	private NioChessServer nioServer;
+	/** Executor running client sessions of the thread per client core */
+	private ExecutorService sessionExecutor;
 	/**
      * This main server method runs the application. It pairs up 
      * clients that connect to this server.
@@ -34,6 +84,21 @@ public class ChessServer extends Thread
     public static void main(String[] args) throws Exception 
     {
     	ChessServer server = new ChessServer();
+    	if(args.length > 0 && args[0].equalsIgnoreCase("nio"))
+    	{
+    		final int loops = args.length > 1 ? Integer.parseInt(args[1]) : NioChessServer.defaultLoopCount();
+    		server.nioServer = new NioChessServer(ServerProtocol.PORT, loops);
+    	}
+    	else if(args.length > 0 && args[0].equalsIgnoreCase("virtual")
+    			&& SessionExecutors.isVirtualThreadsSupported())
+    		server.sessionExecutor = SessionExecutors.virtualThreads();
+    	else if(args.length > 0 && args[0].equalsIgnoreCase("virtual"))
+    	{
+    		System.out.println("Virtual threads are not supported, platform threads are used");
+    		server.sessionExecutor = SessionExecutors.platformThreads();
+    	}
+    	else
+    		server.sessionExecutor = SessionExecutors.platformThreads();
     	server.start();
     	ServerManager servManager = new ServerManager(server);
     	servManager.start();
@@ -41,24 +106,29 @@ public class ChessServer extends Thread
     
     public void run()
     {
-    	playerThreads = new ArrayList<>();
+    	if(nioServer != null)
+    	{
+    		try
+    		{
+    			nioServer.run();
+    		}
+    		catch(IOException e)
+    		{
+    			e.printStackTrace();
+    		}
+    		return;
+    	}
     	ServerSocket listener = null;
         try 
         {
-        	listener = new ServerSocket(8901);
+        	listener = new ServerSocket(ServerProtocol.PORT);
             System.out.println("Chess Server is Running");
             while (true) 
             {
-                Player player1 = new Player(listener.accept(), 'W');
-                playerThreads.add(player1);
-                System.out.println("Server accepted 1 player");
-                Player player2 = new Player(listener.accept(), 'B');
-                playerThreads.add(player2);
-                System.out.println("Server accepted 2 player");
-                player1.setOpponent(player2);
-                player2.setOpponent(player1);
-                player1.start();
-                player2.start();
+                Player player = new Player(listener.accept(), matchmaker, players);
+                players.add(player);
+                System.out.println("Server accepted player");
+                sessionExecutor.execute(player);
             }
         } 
         catch(IOException e)
@@ -77,9 +147,14 @@ public class ChessServer extends Thread
     
     public void closeServer()
     {
-    	for(Player threadX: playerThreads)
+    	if(nioServer != null)
+    		nioServer.close();
+    	else
     	{
-    		threadX.sendServerCLoseInfo();
+	    	for(Player player: players)
+	    	{
+	    		player.sendServerCLoseInfo();
+	    	}
     	}
     	System.exit(0);
     }
@@ -114,42 +189,79 @@ class ServerManager extends Thread
 }
 
 /**
- * This is Player class which implements server thread dedicated 
- * to perform communication with the single client during the match.
+ * This is Player class which implements server session dedicated 
+ * to perform communication with the single client: it waits in the
+ * matchmaking queue and then plays the match. Session is run by the session executor on its own (platform or
+ * virtual) thread. Messages are written to the socket under the lock,
+ * because opponent's session writes to it too; it is ReentrantLock, not
+ * synchronized block, so virtual thread blocked on the socket write does
+ * not pin its carrier thread. Client which sent BINARY request is served
+ * with binary frames (see BinaryProtocol); framing is switched and chosen
+ * for every message under the same lock, so opponent's session never
+ * writes text to the binary client. Client enters the matchmaking queue
+ * only after its first line (or the negotiation timeout), so BINARY
+ * request sent at once is answered before any match message.
  * 
  * @author Piotr Poskart
  *
  */
-class Player extends Thread 
+class Player implements Runnable 
 {
-	/** Mark for player alliance description 'W' or 'B' */
-    char mark;
-    /** Reference to another thread which serves second's client connection */
-    Player opponent;
+	/** Charset of the messages */
+	private static final Charset CHARSET = Charset.defaultCharset();
+	/** Line separator appended to the sent messages */
+	private static final String LINE_SEPARATOR = System.lineSeparator();
+
+	/** Mark for player alliance description 'W' or 'B', set when the match starts */
+    volatile char mark;
+    /** Reference to another session which serves second's client connection */
+    volatile Player opponent;
+    /** State of the match checking the moves, shared with the opponent */
+    volatile Match match;
+    /** Flag of the client using binary frames */
+    volatile boolean binary;
+    /** Flag of the session which has ended */
+    volatile boolean left;
+    /** Matchmaker pairing the clients */
+    final Matchmaker<Player> matchmaker;
+    /** Sessions of the connected clients, this one is removed when it ends */
+    final Set<Player> players;
+    /** Place of the client in the matchmaking queue */
+    Matchmaker.Ticket<Player> ticket;
     /** Reference to socket used in network communication */
     Socket socket;
     /** String object to store messages received from the client */
     String receivedMessage;
     /** BufferedReader object for buffered messages reading from client */
     BufferedReader in;
-    /** PrintWriter object for writing messages to client */
-    PrintWriter out;
+    /** DataInputStream object for reading frames from binary client */
+    DataInputStream binaryIn;
+    /** Buffer of the frame read from binary client */
+    final byte[] frame = new byte[BinaryProtocol.MAX_FRAME_LENGTH];
+    /** OutputStream object for writing messages to client */
+    OutputStream out;
+    /** Lock of the output stream shared with opponent's session */
+    final ReentrantLock outLock = new ReentrantLock();
 
     /**
-     * Constructs a handler thread for a given socket and mark
+     * Constructs a session for a given socket,
      * initializes the stream fields, displays the first
      * welcoming message.
+     * @param socket is socket of the client.
+     * @param matchmaker is matchmaker pairing the clients.
+     * @param players are sessions of the connected clients.
      */
-    public Player(Socket socket, char mark)
+    public Player(Socket socket, Matchmaker<Player> matchmaker, Set<Player> players)
     {
         this.socket = socket;
-        this.mark = mark;
+        this.matchmaker = matchmaker;
+        this.players = players;
         try 
         {
         	in = new BufferedReader(new InputStreamReader(
 	                socket.getInputStream()));
-        	out = new PrintWriter(socket.getOutputStream(), true);
-        	out.println("Welcome to the chess game! Waiting for opponent...");
+        	out = socket.getOutputStream();
+        	send(ServerProtocol.WELCOME);
         } 
         catch (IOException e) 
         {
@@ -157,22 +269,183 @@ class Player extends Thread
         }
     }
 	
+    /**
+     * This method reads one frame from the binary client and handles it:
+     * legal moves are relayed to the opponent as read, other are rejected,
+     * SEEK moves waiting client to another queue. Frames which only server
+     * sends are ignored.
+     * @return false if the session is to end (QUIT frame, end of the
+     * stream or unknown frame).
+     * @throws IOException if frame can not be read.
+     */
+    private boolean readFrame() throws IOException
+    {
+    	final int opcode = binaryIn.read();
+    	if (opcode < 0)
+    		return false;
+    	final int length = BinaryProtocol.frameLength(opcode);
+    	if (length < 0)
+    	{
+    		System.out.println("Client sent unknown frame");
+    		return false;
+    	}
+    	frame[0] = (byte) opcode;
+    	binaryIn.readFully(frame, 1, length - 1);
+    	switch (opcode)
+    	{
+    		case BinaryProtocol.MOVE:
+    			final Player enemy = opponent;
+    			if (enemy == null)
+    				return true;
+    			final Match.Result result = match.play(mark, BinaryProtocol.readMove(frame, 0));
+    			if (result != Match.Result.ACCEPTED)
+    			{
+    				reject(result);
+    				return true;
+    			}
+    			enemy.opponentMoved(match.getLastMove(), null, Arrays.copyOf(frame, length));
+    			printOpponentMove();
+    			return true;
+    		case BinaryProtocol.SEEK:
+    			if (matchmaker.cancel(ticket))
+    				ticket = matchmaker.enqueue(this, ServerProtocol.rating(BinaryProtocol.readUnsignedShort(frame, 1)),
+    						ServerProtocol.timeControl(BinaryProtocol.readUnsignedShort(frame, 3),
+    								BinaryProtocol.readUnsignedShort(frame, 5)));
+    			return true;
+    		case BinaryProtocol.QUIT:
+    			return false;
+    		default:
+    			return true;
+    	}
+    }
     /**
      * This method sets reference to the opponent 
-     * (another server thread which handles enemy communication)
-     * @param opponent is reference to the thread handling opponent
+     * (another server session which handles enemy communication)
+     * @param opponent is reference to the session handling opponent
      *  communication.
+     * @param mark is mark of the player alliance.
+     * @param match is state of the match shared with the opponent.
      */
-    public void setOpponent(Player opponent) {
+    public void setOpponent(Player opponent, char mark, Match match) {
+        this.mark = mark;
+        this.match = match;
         this.opponent = opponent;
     }
+    /**
+     * This method sends configuration messages of the match to the client
+     * (alliance setting and START message) and tells the first player
+     * that it is her turn. Opponent of the session which has already
+     * ended is notified by the matchmaker listener after both starts.
+     */
+    public void startMatch()
+    {
+    	send(ServerProtocol.ALLIANCE + mark, BinaryProtocol.allianceFrame(mark));
+    	send(ServerProtocol.START, BinaryProtocol.frame(BinaryProtocol.START));
+    	if (mark == ServerProtocol.WHITE)
+    		printPrompt();
+    	else
+    		printOpponentMove();
+    }
+    /**
+     * This method notifies client that its opponent has disconnected.
+     */
+    public void notifyOpponentLeft()
+    {
+    	send(ServerProtocol.OPPONENT_DISCONNECTED, null);
+    	send(ServerProtocol.DISCONNECT, BinaryProtocol.frame(BinaryProtocol.DISCONNECT));
+    }
+    /**
+     * This method notifies client that no opponent was found in time.
+     */
+    public void notifyNoOpponent()
+    {
+    	send(ServerProtocol.NO_OPPONENT, BinaryProtocol.frame(BinaryProtocol.NO_OPPONENT));
+    	send(ServerProtocol.DISCONNECT, null);
+    }
+    /**
+     * This method sends message line to the client. It may be called
+     * by the session of the opponent, so writes are guarded by the lock.
+     * Write errors are ignored, as PrintWriter does; broken connection
+     * is detected by the reading session.
+     * @param message is message without line separator.
+     */
+    public void send(String message)
+    {
+    	write((message + LINE_SEPARATOR).getBytes(CHARSET));
+    }
+    /**
+     * This method sends message in the framing used by the client.
+     * @param message is message for the text client.
+     * @param frame is frame for the binary client, null if the binary
+     * client gets nothing.
+     */
+    public void send(String message, byte[] frame)
+    {
+    	outLock.lock();
+    	try
+    	{
+    		if (!binary)
+    			send(message);
+    		else if (frame != null)
+    			write(frame);
+    	}
+    	finally
+    	{
+    		outLock.unlock();
+    	}
+    }
+    /**
+     * This method relays opponent's move to the client and prompts it to
+     * move. Move is relayed as received by the opponent if the client uses
+     * the same framing, otherwise it is encoded from the move code.
+     * @param move is code of the move.
+     * @param message is move message of the text opponent, null for binary
+     * opponent.
+     * @param frame is move frame of the binary opponent, null for text
+     * opponent.
+     */
+    public void opponentMoved(int move, String message, byte[] frame)
+    {
+    	outLock.lock();
+    	try
+    	{
+    		if (binary)
+    			write(frame != null ? frame : BinaryProtocol.moveFrame(MoveCode.toCompact(move)));
+    		else
+    			send(message != null ? message : ServerProtocol.moveMessage(move));
+    		printPrompt();
+    	}
+    	finally
+    	{
+    		outLock.unlock();
+    	}
+    }
+    /**
+     * This method writes bytes (frame or encoded message line) to the
+     * client.
+     * @param bytes are bytes to write.
+     */
+    private void write(byte[] bytes)
+    {
+    	outLock.lock();
+    	try
+    	{
+    		out.write(bytes);
+    		out.flush();
+    	}
+    	catch(IOException e) {}
+    	finally
+    	{
+    		outLock.unlock();
+    	}
+    }
     /**
      * This method notifies client that server is to close now.
      */
     public void sendServerCLoseInfo()
     {
-    	out.println("Chess server is closed, try another server...");
-		out.println("SERVER CLOSE");
+    	send(ServerProtocol.SERVER_CLOSING, null);
+    	send(ServerProtocol.SERVER_CLOSE, BinaryProtocol.frame(BinaryProtocol.SERVER_CLOSE));
     }
     /**
      * This method sends prompt for the client with the
@@ -180,17 +453,30 @@ class Player extends Thread
      */
     public void printPrompt()
     {
-    	if(mark == 'B')
-    		out.println("Black, your move");
-    	else if (mark == 'W')
-    		out.println("White, your move");
+    	send(ServerProtocol.prompt(mark), BinaryProtocol.frame(BinaryProtocol.YOUR_MOVE));
+    }
+    /**
+     * This method informs the client that opponent is to move now.
+     */
+    public void printOpponentMove()
+    {
+    	send(ServerProtocol.OPPONENT_MOVE, BinaryProtocol.frame(BinaryProtocol.OPPONENT_MOVE));
+    }
+    /**
+     * This method tells the client that its move was not relayed.
+     * @param result is result of the move check.
+     */
+    public void reject(Match.Result result)
+    {
+    	send(ServerProtocol.rejection(result), BinaryProtocol.rejectFrame(result));
     }
     
     /**
-     * The run method of this thread. It handles communication within 
-     * entire match. First it sends configuration messages to the client
-     * (e.g. alliance setting and START message). The it processes messages
-     * read from the client and communicate with opponent server thread 
+     * The run method of this session. It handles communication within 
+     * entire session. First it waits for the first line of the client and
+     * handles it, then it puts the client into the matchmaking queue (SEEK
+     * puts it there itself), match is started by the matchmaker. Then it processes messages
+     * read from the client and communicate with opponent server session 
      * managing the state of the game. It ends when QUIT message received 
      * or when error occured.
      */
@@ -198,37 +484,67 @@ class Player extends Thread
     {
         try 
         {
-            // The thread is only started after everyone connects.
-        	out.println(new String("ALLIANCE " + mark));
-        	out.println(new String("START "));
-        	
-            // Tell the first player that it is her turn.
-            if (mark == 'W')
-            	printPrompt();
-        	else
-        		out.println("Opponent's move...");
+        	boolean firstLinePending = readFirstLine();
             // Repeatedly get commands from the client and process them.
             while (true) 
             {
-            	receivedMessage = in.readLine();
+            	// client enters the queue after its first line, so framing is fixed before the match
+            	if (ticket == null && !firstLinePending)
+            		ticket = matchmaker.enqueue(this, Matchmaker.NO_RATING, Matchmaker.ANY_TIME_CONTROL);
+            	if (binary)
+            	{
+            		if (!readFrame())
+            			return;
+            		continue;
+            	}
+            	if (firstLinePending)
+            		firstLinePending = false;
+            	else
+            		receivedMessage = in.readLine();
             	if(receivedMessage != null)
             	{
-	            	if (receivedMessage.startsWith("MOVE")) 
+            		final Player enemy = opponent;
+	            	if (receivedMessage.startsWith(ServerProtocol.MOVE)) 
 	                {
-	            		opponent.out.println(receivedMessage);
-	            		opponent.printPrompt();
-	            		out.println("Opponent's move...");
+	            		if (enemy == null)
+	            			continue;
+	            		// only legal moves of the side to move are relayed
+	            		final Match.Result result = match.play(mark, receivedMessage);
+	            		if (result != Match.Result.ACCEPTED)
+	            		{
+	            			reject(result);
+	            			continue;
+	            		}
+	            		enemy.opponentMoved(match.getLastMove(), receivedMessage, null);
+	            		printOpponentMove();
 	                } 
+	            	else if (receivedMessage.startsWith(ServerProtocol.SEEK))
+	            	{
+	            		// move waiting client to the queue of its rating and time control
+	            		if (ticket == null || matchmaker.cancel(ticket))
+	            			ticket = matchmaker.enqueue(this, ServerProtocol.parseRating(receivedMessage),
+	            					ServerProtocol.parseTimeControl(receivedMessage));
+	            	}
+	            	else if (receivedMessage.equals(BinaryProtocol.REQUEST))
+	            	{
+	            		// client sends nothing until the answer, so no frame is buffered by the reader
+	            		outLock.lock();
+	            		try
+	            		{
+	            			send(BinaryProtocol.ACCEPTED);
+	            			binary = true;
+	            		}
+	            		finally
+	            		{
+	            			outLock.unlock();
+	            		}
+	            		binaryIn = new DataInputStream(socket.getInputStream());
+	            	}
 	            	else
 	            	{
 	            		System.out.println(receivedMessage);
-		            	if (receivedMessage.startsWith("QUIT")) 
-		                {
-		            		// notify second player that another has disconnected
-		            		opponent.out.println("Opponent disconnected...");
-		            		opponent.out.println("DISCON");
+		            	if (receivedMessage.startsWith(ServerProtocol.QUIT)) 
 		            		return;
-		                }
 	            	}
             	}
             	else
@@ -249,7 +565,47 @@ class Player extends Thread
         }
         finally
         {
+        	leave();
             try {socket.close();} catch (IOException e) {}
         }
     }
+    
+    /**
+     * This method waits for the first line of the client at most the
+     * negotiation timeout, so BINARY or SEEK request sent at once after
+     * connection is handled before the client can be paired.
+     * @return true if the line (or end of the stream) was read into
+     * receivedMessage, false if the client sent nothing in time.
+     * @throws IOException if the line can not be read.
+     */
+    private boolean readFirstLine() throws IOException
+    {
+    	socket.setSoTimeout(ServerProtocol.NEGOTIATION_TIMEOUT);
+    	try
+    	{
+    		receivedMessage = in.readLine();
+    		return true;
+    	}
+    	catch (SocketTimeoutException e)
+    	{
+    		return false;
+    	}
+    	finally
+    	{
+    		socket.setSoTimeout(0);
+    	}
+    }
+    /**
+     * This method ends the session: removes the client from the queue
+     * or notifies second player that another has disconnected.
+     */
+    private void leave()
+    {
+    	left = true;
+    	matchmaker.cancel(ticket);
+    	players.remove(this);
+    	final Player enemy = opponent;
+    	if (enemy != null)
+    		enemy.notifyOpponentLeft();
+    }
 }
\ No newline at end of file
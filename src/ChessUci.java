@@ -0,0 +1,24 @@
+import chess.controller.UciController;
+
+/**
+ * This is main class of the headless engine which communicates with
+ * graphical interfaces and tournament managers using the Universal Chess
+ * Interface (UCI) protocol on the standard input and output. Usage:
+ * <pre>
+ * ChessUci
+ * </pre>
+ *
+ * @author Piotr Poskart
+ *
+ */
+public class ChessUci
+{
+	/**
+	 * This is main method of the UCI engine.
+	 * @param args are not used.
+	 */
+	public static void main(String[] args)
+	{
+		new UciController(System.in, System.out).run();
+	}
+}
@@ -1,14 +1,17 @@
 package chess.controller;
 
-import java.io.BufferedReader;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.net.Socket;
 
 import javax.swing.JOptionPane;
 
 import chess.model.Model;
+import chess.model.board.Board;
 import chess.model.common.Alliance;
 import chess.model.game.Move;
 import chess.model.game.Move.AttackMove;
@@ -16,13 +19,19 @@ import chess.model.game.Move.CastlingMove;
 import chess.model.game.Move.CommonMove;
 import chess.model.game.Move.EmptyMove;
 import chess.model.game.Move.PawnPromotionMove;
+import chess.model.game.MoveCode;
+import chess.server.BinaryProtocol;
+import chess.server.ServerProtocol;
 import chess.view.View;
 
 /**
  * Main controller class which implements client session handling
  * including communication with the server and game management
  * through high level commands performed using game model and view 
- * objects.
+ * objects. After connection the client asks the server for binary
+ * framing of the messages (see BinaryProtocol): if the server accepts it,
+ * moves are sent and received as 3-byte frames, otherwise text messages
+ * are used.
  * 
  * @author Piotr Poskart
  *
@@ -41,10 +50,18 @@ public final class Controller
     private Alliance gameAlliance;
     /** Common message object - message received from server */
     private String readMessage;
-    /** BufferedReader object for buffered messages reading from server */
-    private BufferedReader in;
+    /** BufferedInputStream object for buffered lines and frames reading from server */
+    private BufferedInputStream in;
     /** PrintWriter object for writing messages to server */
     private PrintWriter out;
+    /** OutputStream object for writing frames to server */
+    private OutputStream output;
+    /** Buffer of the bytes of the line read from server */
+    private final ByteArrayOutputStream lineBuffer = new ByteArrayOutputStream();
+    /** Flag of the client which asks the server for binary framing */
+    private boolean binaryProtocolEnabled = true;
+    /** Flag of the binary framing accepted by the server */
+    private volatile boolean binaryMode;
     
 	/**
 	 * Controller constructor. Initializes game objects - model
@@ -76,6 +93,15 @@ public final class Controller
 	{
 		return gameAlliance;
 	}
+	/**
+	 * Sets if the client asks the server for binary framing of the
+	 * messages in the next connection.
+	 * @param enabled is true if binary framing is to be used.
+	 */
+	public void setBinaryProtocolEnabled(final boolean enabled)
+	{
+		binaryProtocolEnabled = enabled;
+	}
 	/**
 	 * This method exits chess client. First it sends a message
 	 * to notify server then prints a confirmation of the closing
@@ -83,7 +109,7 @@ public final class Controller
 	 */
 	public void exitChessClient()
 	{
-		sendMessage("QUIT");
+		sendQuit();
 		System.out.println("Contoller notified server for close...");
 		System.exit(0);
 	}
@@ -111,9 +137,12 @@ public final class Controller
 	        {
 		        // Make connection and initialize streams
 		        socket = new Socket(serverAddress, PORT);
-		        in = new BufferedReader(new InputStreamReader(
-		                socket.getInputStream()));
+		        in = new BufferedInputStream(socket.getInputStream());
 		        out = new PrintWriter(socket.getOutputStream(), true);
+		        output = socket.getOutputStream();
+		        binaryMode = false;
+		        if(binaryProtocolEnabled)
+		        	sendMessage(BinaryProtocol.REQUEST);
 		        break;
 	        }
 	        catch(IOException e)
@@ -149,6 +178,36 @@ public final class Controller
 		}
 	}
 	
+	/**
+	 * This method sends binary frame to the connected socket and
+	 * handles exceptions related to network communication.
+	 * @param frame is frame to be sent to the server.
+	 */
+	public void sendFrame(final byte[] frame)
+	{
+		try
+		{
+			output.write(frame);
+			output.flush();
+		}
+		catch(IOException e)
+		{
+			System.out.println("Exception! - cannot write to the server");
+        	e.printStackTrace(System.out);
+		}
+	}
+	
+	/**
+	 * This method notifies the server that client ends the session.
+	 */
+	public void sendQuit()
+	{
+		if(binaryMode)
+			sendFrame(BinaryProtocol.frame(BinaryProtocol.QUIT));
+		else
+			sendMessage(ServerProtocol.QUIT);
+	}
+	
 	/**
 	 * This method receives message from the connected socket and
 	 * handles exceptions related to network communication. Received
@@ -158,7 +217,7 @@ public final class Controller
 	{
 		 try 
 		 {
-             readMessage = in.readLine();
+             readMessage = readLine();
          } 
 		 catch(Exception e1)
 		 {
@@ -172,7 +231,8 @@ public final class Controller
 	 * during the chess match. It receives messages and processes it
 	 * sending moves to the model to be executed or perform another
 	 * actions depending on  received content. It breaks if game is 
-	 * over or received DISCON message from the server.
+	 * over or received DISCON message from the server. When the server
+	 * accepts binary framing, frames are processed instead of messages.
 	 */
 	public void runClient()
 	{
@@ -181,9 +241,20 @@ public final class Controller
 		{
 	        while (true) 
 	        {
+	        	if(binaryMode)
+	        	{
+	        		if(!receiveFrame())
+	        			break;
+	        		continue;
+	        	}
 	        	receiveMessage();
 	        	if(readMessage != null)
 	        	{
+	        		if(readMessage.equals(BinaryProtocol.ACCEPTED))
+	        		{
+	        			binaryMode = true;
+	        			continue;
+	        		}
 		        	if(readMessage.startsWith("ALLIANCE"))
 			    	{
 		        		if(readMessage.charAt(9)== 'B')
@@ -216,20 +287,118 @@ public final class Controller
 		        	}
 	        	}
 	        }
-	        sendMessage("QUIT");
+	        sendQuit();
 		}
         finally {
         	try {socket.close();} catch (IOException e1) {}
         }
 	}
 	
+	/**
+	 * This method receives one frame from the server and processes it
+	 * as runClient() processes text messages: moves are decoded from
+	 * their 16-bit codes straight into Move objects and executed, other
+	 * frames set the state of the match or the message text.
+	 * @return false if the match is over or connection is broken, true
+	 * otherwise.
+	 */
+	private boolean receiveFrame()
+	{
+		try
+		{
+			final int opcode = in.read();
+			switch(opcode)
+			{
+				case BinaryProtocol.MOVE:
+					final Board board = gameModel.getGameBoard();
+					final short compactMove = (short) ((readByte() << 8) | readByte());
+					gameModel.executeMove(MoveCode.toMove(
+							MoveCode.fromCompact(compactMove, board.getPosition()), board));
+					return !gameModel.isGameOver();
+				case BinaryProtocol.ALLIANCE:
+					gameAlliance = readByte() == ServerProtocol.BLACK ? Alliance.BLACK : Alliance.WHITE;
+					return true;
+				case BinaryProtocol.START:
+					gameModel.setNetworkGameStartFlag();
+					return true;
+				case BinaryProtocol.YOUR_MOVE:
+					gameView.setMessageText(ServerProtocol.prompt(
+							gameAlliance == Alliance.BLACK ? ServerProtocol.BLACK : ServerProtocol.WHITE));
+					return true;
+				case BinaryProtocol.OPPONENT_MOVE:
+					gameView.setMessageText(ServerProtocol.OPPONENT_MOVE);
+					return true;
+				case BinaryProtocol.REJECT:
+					gameView.setMessageText(ServerProtocol.rejection(BinaryProtocol.readResult(readByte())));
+					return true;
+				case BinaryProtocol.NO_OPPONENT:
+					gameView.setMessageText(ServerProtocol.NO_OPPONENT);
+					return false;
+				case BinaryProtocol.DISCONNECT:
+					gameView.setMessageText(ServerProtocol.OPPONENT_DISCONNECTED);
+					return false;
+				case BinaryProtocol.SERVER_CLOSE:
+					gameView.setMessageText(ServerProtocol.SERVER_CLOSING);
+					return false;
+				default:
+					return false;
+			}
+		}
+		catch(IOException e)
+		{
+			System.out.println("Exception! - cannot read from the input buffer");
+			e.printStackTrace(System.out);
+			return false;
+		}
+	}
+	
+	/**
+	 * This method reads one byte of the frame from the server.
+	 * @return read byte.
+	 * @throws IOException if connection is broken.
+	 */
+	private int readByte() throws IOException
+	{
+		final int read = in.read();
+		if(read < 0)
+			throw new EOFException("Connection closed inside the frame");
+		return read;
+	}
+	
+	/**
+	 * This method reads one text line from the server. Line is read byte
+	 * by byte from the buffered stream, so frames following the line
+	 * (after server accepted binary framing) stay in the stream.
+	 * @return line without line separator, null at the end of the stream.
+	 * @throws IOException if connection is broken.
+	 */
+	private String readLine() throws IOException
+	{
+		lineBuffer.reset();
+		int read;
+		while((read = in.read()) != '\n')
+		{
+			if(read < 0)
+				return lineBuffer.size() > 0 ? lineBuffer.toString() : null;
+			lineBuffer.write(read);
+		}
+		final String line = lineBuffer.toString();
+		return line.endsWith("\r") ? line.substring(0, line.length() - 1) : line;
+	}
+	
 	/**
 	 * This method transforms given move to text description of 
-	 * this move and send it through socket to the server.
+	 * this move and send it through socket to the server. If the server
+	 * accepted binary framing, move is sent as 3-byte frame instead.
 	 * @param move Move object which is a move to be sent to the server.
 	 */
 	public void sendMove(final Move move)
 	{
+		if(binaryMode)
+		{
+			sendFrame(BinaryProtocol.moveFrame(MoveCode.toCompact(MoveCode.fromMove(move))));
+			return;
+		}
 		String moveInMessage = "MOVE ";
 		if(move instanceof CommonMove)
 		{
@@ -349,7 +518,7 @@ public final class Controller
 
             if (!wantsToPlayAgain())
             {
-    	        sendMessage("QUIT");
+    	        sendQuit();
                 System.exit(0);
             }
             gameModel.resetModel();
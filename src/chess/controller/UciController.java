@@ -0,0 +1,419 @@
+package chess.controller;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import chess.engine.Engine;
+import chess.engine.SearchLimits;
+import chess.engine.SearchResult;
+import chess.engine.TimeManager;
+import chess.engine.TranspositionTable;
+import chess.model.board.Board;
+import chess.model.board.Fen;
+import chess.model.board.Position;
+import chess.model.game.MoveCode;
+
+/**
+ * This is controller which lets the engine be driven by external programs
+ * (graphical interfaces, tournament managers) with the Universal Chess
+ * Interface (UCI) protocol on the standard input and output, without the
+ * Swing view. Supported commands:
+ * <pre>
+ * uci
+ * isready
+ * ucinewgame
+ * setoption name Hash value &lt;MB&gt;
+ * setoption name Threads value &lt;n&gt;
+ * position startpos [moves e2e4 e7e5 ...]
+ * position fen &lt;fen&gt; [moves ...]
+ * go [wtime t] [btime t] [winc t] [binc t] [movestogo n] [movetime t] [depth d] [nodes n] [infinite] [ponder]
+ * stop
+ * ponderhit
+ * quit
+ * </pre>
+ * Moves in the long algebraic notation are mapped onto Move objects of
+ * the game board and executed on it, so the board always holds the
+ * current game; hash keys of the positions they pass through are given
+ * to the search, which scores repetitions of the game positions as draws.
+ * Search runs in the background, so stop and isready are
+ * answered while the engine thinks; its progress is reported with info
+ * lines and the result with bestmove line. Commands which change the
+ * engine state (position, go, setoption, ucinewgame) wait until running
+ * search finishes, stop and quit abort it.
+ * <p>
+ * Infinite and ponder searches have no time limits and their bestmove is
+ * held until stop (or ponderhit for ponder search), even if the search
+ * finishes earlier, e.g. because it found the mate. After ponderhit the
+ * engine goes on thinking for the time which the clock of the go command
+ * allots to the move.
+ *
+ * @author Piotr Poskart
+ *
+ */
+public final class UciController
+{
+	/** Name of the engine reported to the interface */
+	private static final String ENGINE_NAME = "Chess";
+	/** Author of the engine reported to the interface */
+	private static final String ENGINE_AUTHOR = "Piotr Poskart";
+	/** Maximal size of the transposition table in megabytes */
+	private static final int MAX_HASH_MB = 1024;
+	/** Maximal number of search threads */
+	private static final int MAX_THREADS = 64;
+
+	/** Input of the commands */
+	private final BufferedReader in;
+	/** Output of the responses */
+	private final PrintStream out;
+	/** Engine searching the positions */
+	private Engine engine;
+	/** Board with the current game */
+	private Board board;
+	/** Hash keys of the game positions before the current one, the oldest first */
+	private long[] gameKeys;
+	/** Number of search threads */
+	private int threads;
+	/** Running search, null if engine does not think */
+	private CompletableFuture<Void> search;
+	/** Signal releasing bestmove of the infinite or ponder search, null if bestmove is not held */
+	private CompletableFuture<Void> release;
+	/** Limits of the ponder search used after ponderhit, null if engine does not ponder */
+	private SearchLimits ponderLimits;
+
+	/**
+	 * UciController constructor.
+	 * @param input is stream of the commands.
+	 * @param output is stream of the responses.
+	 */
+	public UciController(final InputStream input, final PrintStream output)
+	{
+		in = new BufferedReader(new InputStreamReader(input));
+		out = output;
+		threads = 1;
+		engine = new Engine(TranspositionTable.DEFAULT_SIZE_MB, threads);
+		engine.setListener(result -> out.println(formatInfo(result)));
+		board = new Board();
+		gameKeys = new long[0];
+	}
+	/**
+	 * This method is the main loop of the controller. It reads and
+	 * executes commands until quit command or end of the input.
+	 */
+	public void run()
+	{
+		try
+		{
+			String line;
+			while((line = in.readLine()) != null)
+			{
+				if(!handleCommand(line.trim()))
+					break;
+			}
+		}
+		catch(IOException e)
+		{
+			System.err.println("Exception! - cannot read UCI command");
+			e.printStackTrace(System.err);
+		}
+		stopSearch();
+		engine.shutdown();
+	}
+	/**
+	 * This method executes one command. Unknown commands are ignored, as
+	 * the protocol requires.
+	 * @param command is command line.
+	 * @return false if controller has to quit, true otherwise.
+	 */
+	public boolean handleCommand(final String command)
+	{
+		final String[] tokens = command.split("\\s+");
+		switch(tokens[0])
+		{
+			case "uci":
+				out.println("id name " + ENGINE_NAME);
+				out.println("id author " + ENGINE_AUTHOR);
+				out.println("option name Hash type spin default " + TranspositionTable.DEFAULT_SIZE_MB
+						+ " min 1 max " + MAX_HASH_MB);
+				out.println("option name Threads type spin default 1 min 1 max " + MAX_THREADS);
+				out.println("uciok");
+				break;
+			case "isready":
+				out.println("readyok");
+				break;
+			case "ucinewgame":
+				waitForSearch();
+				engine.newGame();
+				board = new Board();
+				gameKeys = new long[0];
+				break;
+			case "setoption":
+				waitForSearch();
+				setOption(tokens);
+				break;
+			case "position":
+				waitForSearch();
+				setPosition(tokens);
+				break;
+			case "go":
+				waitForSearch();
+				go(tokens);
+				break;
+			case "stop":
+				stopSearch();
+				break;
+			case "ponderhit":
+				ponderHit();
+				break;
+			case "quit":
+				return false;
+			default:
+				break;
+		}
+		return true;
+	}
+
+	/**
+	 * This method handles setoption command.
+	 * @param tokens are command tokens.
+	 */
+	private void setOption(final String[] tokens)
+	{
+		final int nameIndex = indexOf(tokens, "name");
+		final int valueIndex = indexOf(tokens, "value");
+		if(nameIndex < 0 || valueIndex != nameIndex + 2 || valueIndex + 1 >= tokens.length)
+			return;
+		try
+		{
+			final int value = Integer.parseInt(tokens[valueIndex + 1]);
+			if(tokens[nameIndex + 1].equalsIgnoreCase("Hash"))
+			{
+				engine.shutdown();
+				engine = new Engine(Math.max(1, Math.min(value, MAX_HASH_MB)), threads);
+				engine.setListener(result -> out.println(formatInfo(result)));
+			}
+			else if(tokens[nameIndex + 1].equalsIgnoreCase("Threads"))
+			{
+				threads = Math.max(1, Math.min(value, MAX_THREADS));
+				engine.setThreads(threads);
+			}
+		}
+		catch(NumberFormatException e)
+		{
+			out.println("info string wrong option value " + tokens[valueIndex + 1]);
+		}
+	}
+	/**
+	 * This method handles position command: sets up the initial position
+	 * or the given FEN and plays the moves on the new board one by one,
+	 * recording hash keys of the positions before them. Current board and
+	 * keys are replaced only when all moves were played, so wrong FEN or
+	 * illegal move keeps the previous position.
+	 * @param tokens are command tokens.
+	 */
+	private void setPosition(final String[] tokens)
+	{
+		if(tokens.length < 2)
+			return;
+		final int movesIndex = indexOf(tokens, "moves");
+		final int setupEnd = movesIndex < 0 ? tokens.length : movesIndex;
+		final Board newBoard;
+		try
+		{
+			if(tokens[1].equals("startpos"))
+				newBoard = new Board();
+			else if(tokens[1].equals("fen"))
+				newBoard = Fen.toBoard(String.join(" ", Arrays.copyOfRange(tokens, 2, setupEnd)));
+			else
+				return;
+		}
+		catch(IllegalArgumentException e)
+		{
+			out.println("info string " + e.getMessage());
+			return;
+		}
+		final long[] newGameKeys = new long[movesIndex < 0 ? 0 : tokens.length - movesIndex - 1];
+		for(int i = 0; i < newGameKeys.length; i++)
+		{
+			newGameKeys[i] = newBoard.getHashKey();
+			if(!newBoard.playMove(tokens[movesIndex + 1 + i]))
+			{
+				out.println("info string Illegal move " + tokens[movesIndex + 1 + i]);
+				return;
+			}
+		}
+		board = newBoard;
+		gameKeys = newGameKeys;
+	}
+	/**
+	 * This method handles go command: starts search of the current board
+	 * in the background. When it finishes, bestmove is printed; bestmove
+	 * of the infinite or ponder search is printed not before stop or
+	 * ponderhit.
+	 * @param tokens are command tokens.
+	 */
+	private void go(final String[] tokens)
+	{
+		final boolean infinite = indexOf(tokens, "infinite") > 0;
+		final boolean ponder = indexOf(tokens, "ponder") > 0;
+		final SearchLimits limits = new SearchLimits();
+		try
+		{
+			for(int i = 1; i < tokens.length - 1; i++)
+			{
+				switch(tokens[i])
+				{
+					case "wtime":
+						limits.setTime(Position.WHITE, Long.parseLong(tokens[++i]));
+						break;
+					case "btime":
+						limits.setTime(Position.BLACK, Long.parseLong(tokens[++i]));
+						break;
+					case "winc":
+						limits.setIncrement(Position.WHITE, Long.parseLong(tokens[++i]));
+						break;
+					case "binc":
+						limits.setIncrement(Position.BLACK, Long.parseLong(tokens[++i]));
+						break;
+					case "movestogo":
+						limits.setMovesToGo(Integer.parseInt(tokens[++i]));
+						break;
+					case "movetime":
+						limits.setMoveTime(Long.parseLong(tokens[++i]));
+						break;
+					case "depth":
+						limits.setDepth(Integer.parseInt(tokens[++i]));
+						break;
+					case "nodes":
+						limits.setNodes(Long.parseLong(tokens[++i]));
+						break;
+					default:
+						break;
+				}
+			}
+		}
+		catch(NumberFormatException e)
+		{
+			out.println("info string wrong go parameter");
+		}
+		CompletableFuture<SearchResult> result;
+		if(infinite || ponder)
+		{
+			ponderLimits = ponder ? limits : null;
+			release = new CompletableFuture<>();
+			result = engine.startSearch(board.copyPosition(), gameKeys,
+					new SearchLimits().setDepth(limits.getDepth()).setNodes(limits.getNodes()))
+					.thenCombine(release, (searchResult, released) -> searchResult);
+		}
+		else
+			result = engine.startSearch(board.copyPosition(), gameKeys, limits);
+		search = result.thenAccept(searchResult -> out.println("bestmove "
+				+ MoveCode.toString(searchResult == null ? MoveCode.NO_MOVE : searchResult.getBestMoveCode())));
+	}
+	/**
+	 * This method handles ponderhit command: opponent played the move
+	 * which engine pondered on, so ponder search becomes normal search
+	 * stopped after the time allotted to the move.
+	 */
+	private void ponderHit()
+	{
+		if(search == null || ponderLimits == null)
+			return;
+		final long moveTime = new TimeManager(ponderLimits, board.getActiveAlliance().ordinal()).getSoftLimit();
+		final CompletableFuture<Void> pondered = search;
+		release.complete(null);
+		release = null;
+		ponderLimits = null;
+		if(moveTime != TimeManager.NO_LIMIT)
+		{
+			CompletableFuture.delayedExecutor(moveTime, TimeUnit.MILLISECONDS).execute(() ->
+			{
+				if(!pondered.isDone())
+					engine.stop();
+			});
+		}
+	}
+	/**
+	 * This method stops running search and waits until its bestmove is
+	 * printed.
+	 */
+	private void stopSearch()
+	{
+		if(search == null)
+			return;
+		engine.stop();
+		waitForSearch();
+	}
+	/**
+	 * This method waits until running search finishes and its bestmove
+	 * is printed. Infinite and ponder searches never finish themselves, so
+	 * they are stopped.
+	 */
+	private void waitForSearch()
+	{
+		if(search == null)
+			return;
+		if(release != null)
+		{
+			engine.stop();
+			release.complete(null);
+			release = null;
+			ponderLimits = null;
+		}
+		try
+		{
+			search.get();
+		}
+		catch(InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+		catch(ExecutionException e)
+		{
+			System.err.println("Exception! - search failed");
+			e.getCause().printStackTrace(System.err);
+		}
+		search = null;
+	}
+	/**
+	 * This method formats result of the search iteration as info line.
+	 * @param result is result of the completed iteration.
+	 * @return info line.
+	 */
+	private static String formatInfo(final SearchResult result)
+	{
+		final StringBuilder info = new StringBuilder(128);
+		info.append("info depth ").append(result.getDepth());
+		if(result.isMateScore())
+			info.append(" score mate ").append(result.getMateIn());
+		else
+			info.append(" score cp ").append(result.getScore());
+		info.append(" nodes ").append(result.getNodes());
+		info.append(" time ").append(result.getTime());
+		info.append(" nps ").append(result.getNodes() * 1000 / Math.max(1, result.getTime()));
+		if(result.getPrincipalVariation().length > 0)
+			info.append(" pv ").append(result.getPrincipalVariationString());
+		return info.toString();
+	}
+	/**
+	 * This method finds the token in the command.
+	 * @param tokens are command tokens.
+	 * @param token is searched token.
+	 * @return index of the token, -1 if there is none.
+	 */
+	private static int indexOf(final String[] tokens, final String token)
+	{
+		for(int i = 0; i < tokens.length; i++)
+		{
+			if(tokens[i].equals(token))
+				return i;
+		}
+		return -1;
+	}
+}
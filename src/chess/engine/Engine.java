@@ -0,0 +1,338 @@
+package chess.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import chess.model.board.Board;
+import chess.model.board.Position;
+import chess.model.game.Move;
+
+/**
+ * This is class which represents computer player. It searches position
+ * of the given board within given limits and returns the best move as
+ * Move object of this board, which can be played by Model.executeMove().
+ * Engine keeps its transposition table between searches, so it should be
+ * cleared with newGame() when new game starts.
+ * <p>
+ * Engine can search on many threads (lazy SMP): every thread searches the
+ * same root position on its own copy of the board position, all threads
+ * share one lock-free transposition table, and helper threads start from
+ * different depths, so they fill the table with results the main thread
+ * uses later. Only the main search result is returned.
+ * <p>
+ * Search may also be started in the background with startSearch(), then
+ * it can be stopped from any thread with stop() and its future returns
+ * the best move found so far.
+ * <p>
+ * If the opening book is set, findBestMove() plays book moves without
+ * searching as long as the position is in the book.
+ *
+ * @author Piotr Poskart
+ *
+ */
+public final class Engine
+{
+	/** Transposition table shared by the searches */
+	private final TranspositionTable transpositionTable;
+	/** Search objects, the first one is the main search */
+	private Search[] searches;
+	/** Executor of the helper searches, null for single thread */
+	private ExecutorService helperExecutor;
+	/** Executor of the background searches, created on demand */
+	private ExecutorService backgroundExecutor;
+	/** Listener notified about iterations of the main search */
+	private SearchListener listener;
+	/** Selective techniques used by all searches */
+	private SearchOptions options;
+	/** Opening book, null if not used */
+	private OpeningBook openingBook;
+
+	/**
+	 * Engine constructor. Creates engine with the default transposition
+	 * table size.
+	 */
+	public Engine()
+	{
+		this(TranspositionTable.DEFAULT_SIZE_MB);
+	}
+	/**
+	 * Engine constructor.
+	 * @param hashSizeMB is size of the transposition table in megabytes.
+	 */
+	public Engine(final int hashSizeMB)
+	{
+		this(hashSizeMB, 1);
+	}
+	/**
+	 * Engine constructor.
+	 * @param hashSizeMB is size of the transposition table in megabytes.
+	 * @param threads is number of search threads.
+	 */
+	public Engine(final int hashSizeMB, final int threads)
+	{
+		transpositionTable = new TranspositionTable(hashSizeMB);
+		options = new SearchOptions();
+		setThreads(threads);
+	}
+	/**
+	 * This method sets number of search threads. It must not be called
+	 * during the search.
+	 * @param threads is number of search threads, at least 1.
+	 * @throws IllegalArgumentException if number of threads is not positive.
+	 */
+	public void setThreads(final int threads)
+	{
+		if(threads < 1)
+			throw new IllegalArgumentException("Number of search threads must be positive: " + threads);
+		shutdown();
+		searches = new Search[threads];
+		for(int i = 0; i < threads; i++)
+		{
+			searches[i] = new Search(transpositionTable);
+			searches[i].setStartDepth(1 + i % 2);
+			searches[i].setOptions(options);
+		}
+		searches[0].setListener(listener);
+		if(threads > 1)
+			helperExecutor = Executors.newFixedThreadPool(threads - 1, runnable -> createDaemon(runnable, "search-helper"));
+	}
+	/**
+	 * This method returns number of search threads.
+	 * @return number of threads.
+	 */
+	public int getThreads()
+	{
+		return searches.length;
+	}
+	/**
+	 * This method sets selective techniques used by all search threads.
+	 * It must not be called during the search.
+	 * @param options are search options.
+	 */
+	public void setOptions(final SearchOptions options)
+	{
+		this.options = options;
+		for(Search search : searches)
+			search.setOptions(options);
+	}
+	/**
+	 * This method returns selective techniques used by the search threads.
+	 * @return search options.
+	 */
+	public SearchOptions getOptions()
+	{
+		return options;
+	}
+	/**
+	 * This method sets opening book consulted before the search.
+	 * @param openingBook is opening book, null if not used.
+	 */
+	public void setOpeningBook(final OpeningBook openingBook)
+	{
+		this.openingBook = openingBook;
+	}
+	/**
+	 * This method sets listener notified about completed search iterations.
+	 * @param listener is search listener, null if not needed.
+	 */
+	public void setListener(final SearchListener listener)
+	{
+		this.listener = listener;
+		searches[0].setListener(listener);
+	}
+	/**
+	 * This method searches position of the given board. Board is not
+	 * modified.
+	 * @param board is board with the position to be searched.
+	 * @param limits are limits of the search.
+	 * @return result of the search.
+	 */
+	public SearchResult search(final Board board, final SearchLimits limits)
+	{
+		return search(board.copyPosition(), limits);
+	}
+	/**
+	 * This method searches given position. Position is not modified.
+	 * @param position is position to be searched.
+	 * @param limits are limits of the search.
+	 * @return result of the search.
+	 */
+	public SearchResult search(final Position position, final SearchLimits limits)
+	{
+		return search(position, new long[0], limits);
+	}
+	/**
+	 * This method searches given position reached in the game, so
+	 * repetitions of the game positions are scored as draws. Position is
+	 * not modified.
+	 * @param position is position to be searched.
+	 * @param gameKeys are hash keys of the game positions before the
+	 * searched one, the oldest first.
+	 * @param limits are limits of the search.
+	 * @return result of the search.
+	 */
+	public SearchResult search(final Position position, final long[] gameKeys, final SearchLimits limits)
+	{
+		for(Search search : searches)
+			search.clearStop();
+		return runSearch(position, gameKeys, limits);
+	}
+	/**
+	 * This method starts search of the given position in the background
+	 * and returns immediately. Search runs until any of the limits is
+	 * reached or stop() is called. Only one search may run at a time.
+	 * @param position is position to be searched, it is not modified.
+	 * @param limits are limits of the search.
+	 * @return future of the search result, it may be used to act when the
+	 * search finishes.
+	 */
+	public CompletableFuture<SearchResult> startSearch(final Position position, final SearchLimits limits)
+	{
+		return startSearch(position, new long[0], limits);
+	}
+	/**
+	 * This method starts search of the given position reached in the game
+	 * in the background, like startSearch(Position, SearchLimits), but
+	 * repetitions of the game positions are scored as draws.
+	 * @param position is position to be searched, it is not modified.
+	 * @param gameKeys are hash keys of the game positions before the
+	 * searched one, the oldest first; array is not modified.
+	 * @param limits are limits of the search.
+	 * @return future of the search result.
+	 */
+	public synchronized CompletableFuture<SearchResult> startSearch(final Position position, final long[] gameKeys,
+			final SearchLimits limits)
+	{
+		if(backgroundExecutor == null)
+			backgroundExecutor = Executors.newSingleThreadExecutor(runnable -> createDaemon(runnable, "search-main"));
+		for(Search search : searches)
+			search.clearStop();
+		final Position rootPosition = position.copy();
+		final long[] rootGameKeys = gameKeys.clone();
+		return CompletableFuture.supplyAsync(() -> runSearch(rootPosition, rootGameKeys, limits), backgroundExecutor);
+	}
+	/**
+	 * This method finds the best move for the active alliance of the board.
+	 * Book move is returned without searching if the position is in the
+	 * opening book.
+	 * @param board is board with the position to be searched.
+	 * @param limits are limits of the search.
+	 * @return best move bound to the given board, EmptyMove if there is no
+	 * legal move.
+	 */
+	public Move findBestMove(final Board board, final SearchLimits limits)
+	{
+		if(openingBook != null)
+		{
+			final Move bookMove = openingBook.findMove(board);
+			if(!bookMove.isEmptyMove())
+				return bookMove;
+		}
+		return search(board, limits).getBestMove(board);
+	}
+	/**
+	 * This method stops the search running in other thread. The search
+	 * returns the best move found so far.
+	 */
+	public void stop()
+	{
+		for(Search search : searches)
+			search.stop();
+	}
+	/**
+	 * This method clears information collected in the previous searches.
+	 */
+	public void newGame()
+	{
+		transpositionTable.clear();
+	}
+	/**
+	 * This method stops helper and background threads of the engine.
+	 * Engine may be used again after shutdown, but it searches on single
+	 * thread then.
+	 */
+	public synchronized void shutdown()
+	{
+		if(backgroundExecutor != null)
+		{
+			backgroundExecutor.shutdownNow();
+			backgroundExecutor = null;
+		}
+		if(helperExecutor != null)
+		{
+			helperExecutor.shutdownNow();
+			helperExecutor = null;
+			searches = new Search[] {searches[0]};
+		}
+	}
+
+	/**
+	 * This method searches given position on all threads. Stop flags of
+	 * the searches have to be cleared before.
+	 * @param position is position to be searched.
+	 * @param gameKeys are hash keys of the game positions before the
+	 * searched one.
+	 * @param limits are limits of the search.
+	 * @return result of the main search.
+	 */
+	private SearchResult runSearch(final Position position, final long[] gameKeys, final SearchLimits limits)
+	{
+		transpositionTable.newSearch();
+		final List<Future<SearchResult>> helpers = new ArrayList<>(searches.length - 1);
+		for(int i = 1; i < searches.length; i++)
+		{
+			final Search helper = searches[i];
+			helpers.add(helperExecutor.submit(() -> helper.searchPrepared(position, gameKeys, limits)));
+		}
+		try
+		{
+			return searches[0].searchPrepared(position, gameKeys, limits);
+		}
+		finally
+		{
+			// helpers must not go on searching if the main search failed
+			for(int i = 0; i < helpers.size(); i++)
+				stopHelper(searches[i + 1], helpers.get(i));
+		}
+	}
+	/**
+	 * This method stops the helper search and waits until it finishes.
+	 * Helper never clears its stop flag itself, so one stop is enough.
+	 * @param helper is helper search.
+	 * @param future is future of the helper search task.
+	 */
+	private static void stopHelper(final Search helper, final Future<SearchResult> future)
+	{
+		helper.stop();
+		try
+		{
+			future.get();
+		}
+		catch(InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+		catch(ExecutionException e)
+		{
+			throw new IllegalStateException("Helper search failed", e.getCause());
+		}
+	}
+	/**
+	 * This method creates daemon thread, so engine threads do not keep
+	 * the application alive.
+	 * @param runnable is task of the thread.
+	 * @param name is name of the thread.
+	 * @return new thread.
+	 */
+	private static Thread createDaemon(final Runnable runnable, final String name)
+	{
+		final Thread thread = new Thread(runnable, name);
+		thread.setDaemon(true);
+		return thread;
+	}
+}
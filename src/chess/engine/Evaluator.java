@@ -0,0 +1,204 @@
+package chess.engine;
+
+import chess.model.board.AttackTables;
+import chess.model.board.PieceSquareTables;
+import chess.model.board.Position;
+
+/**
+ * This is class which computes static evaluation of the position in
+ * centipawns. Material and piece-square values are kept up to date by
+ * the position itself as separate middlegame and endgame sums (see
+ * PieceSquareTables), so evaluation only blends them according to the
+ * game phase: with all pieces on the board middlegame sum counts fully,
+ * with only kings and pawns left endgame sum does.
+ * <p>
+ * Pawn structure terms (doubled, isolated, backward and passed pawns and
+ * pawn shields in front of the castled king) depend on pawns only, so
+ * they are cached in the pawn table. Every search thread needs its own
+ * Evaluator object.
+ *
+ * @author Piotr Poskart
+ *
+ */
+public final class Evaluator
+{
+	/** Penalties of the doubled pawn */
+	private static final int DOUBLED_MIDDLEGAME = -10, DOUBLED_ENDGAME = -20;
+	/** Penalties of the isolated pawn */
+	private static final int ISOLATED_MIDDLEGAME = -10, ISOLATED_ENDGAME = -15;
+	/** Penalties of the backward pawn */
+	private static final int BACKWARD_MIDDLEGAME = -8, BACKWARD_ENDGAME = -10;
+	/** Bonuses of the passed pawn by its rank counted from its own side */
+	private static final int[] PASSED_MIDDLEGAME = {0, 5, 10, 15, 25, 40, 60, 0};
+	private static final int[] PASSED_ENDGAME = {0, 10, 20, 35, 60, 90, 130, 0};
+	/** Pawn shield values of the pawn in front of the king, one and two ranks ahead */
+	private static final int SHIELD_NEAR = 12, SHIELD_FAR = 6, SHIELD_MISSING = -12;
+
+	/** Masks of the board files */
+	private static final long[] FILES = new long[8];
+	/** Masks of the files adjacent to the given file */
+	private static final long[] ADJACENT_FILES = new long[8];
+	/** Masks of the fields in front of the pawn, on its file and adjacent ones */
+	private static final long[][] PASSED_MASKS = new long[2][64];
+	/** Masks of the fields on adjacent files level with or behind the pawn */
+	private static final long[][] SUPPORT_MASKS = new long[2][64];
+
+	static
+	{
+		for(int file = 0; file < 8; file++)
+			FILES[file] = AttackTables.FILE_A << file;
+		for(int file = 0; file < 8; file++)
+			ADJACENT_FILES[file] = (file > 0 ? FILES[file - 1] : 0L) | (file < 7 ? FILES[file + 1] : 0L);
+		for(int square = 0; square < 64; square++)
+		{
+			final int file = square % 8;
+			final int rank = square / 8;
+			final long span = FILES[file] | ADJACENT_FILES[file];
+			final long above = rank < 7 ? -1L << (8 * (rank + 1)) : 0L;
+			final long below = rank > 0 ? -1L >>> (8 * (8 - rank)) : 0L;
+			PASSED_MASKS[Position.WHITE][square] = span & above;
+			PASSED_MASKS[Position.BLACK][square] = span & below;
+			SUPPORT_MASKS[Position.WHITE][square] = ADJACENT_FILES[file] & ~above;
+			SUPPORT_MASKS[Position.BLACK][square] = ADJACENT_FILES[file] & ~below;
+		}
+	}
+
+	/** Cache of the pawn structure terms */
+	private final PawnTable pawnTable;
+	/** Buffer for the pawn table probe result */
+	private final long[] pawnEntry;
+
+	/**
+	 * Evaluator constructor. Creates evaluator with the default pawn table.
+	 */
+	public Evaluator()
+	{
+		pawnTable = new PawnTable(PawnTable.DEFAULT_SIZE);
+		pawnEntry = new long[1];
+	}
+	/**
+	 * This method returns pawn table of this evaluator.
+	 * @return pawn table.
+	 */
+	public PawnTable getPawnTable()
+	{
+		return pawnTable;
+	}
+	/**
+	 * This method evaluates position from the point of view of the side
+	 * to move.
+	 * @param position is evaluated position.
+	 * @return score in centipawns, positive if side to move is better.
+	 */
+	public int evaluate(final Position position)
+	{
+		if(!pawnTable.probe(position.getPawnKey(), pawnEntry))
+		{
+			pawnEntry[0] = evaluatePawns(position);
+			pawnTable.store(position.getPawnKey(), pawnEntry[0]);
+		}
+		final long pawns = pawnEntry[0];
+		final int middlegame = position.getMiddlegameScore() + PawnTable.getMiddlegame(pawns)
+				+ kingShield(position, pawns, Position.WHITE) - kingShield(position, pawns, Position.BLACK);
+		final int endgame = position.getEndgameScore() + PawnTable.getEndgame(pawns);
+		final int phase = Math.min(position.getGamePhase(), PieceSquareTables.MAX_PHASE);
+		final int score = (middlegame * phase + endgame * (PieceSquareTables.MAX_PHASE - phase))
+				/ PieceSquareTables.MAX_PHASE;
+		return position.getSideToMove() == Position.WHITE ? score : -score;
+	}
+
+	/**
+	 * This method returns pawn shield value of the king: shield of its wing
+	 * if the king stands on the queen side or the king side, 0 otherwise.
+	 * @param position is evaluated position.
+	 * @param pawns is packed pawn structure terms.
+	 * @param alliance is alliance index of the king.
+	 * @return shield value from the king alliance point of view.
+	 */
+	private static int kingShield(final Position position, final long pawns, final int alliance)
+	{
+		final int kingFile = Long.numberOfTrailingZeros(position.getPieces(alliance, Position.KING)) % 8;
+		if(kingFile <= 2)
+			return PawnTable.getShield(pawns, alliance, false);
+		if(kingFile >= 5)
+			return PawnTable.getShield(pawns, alliance, true);
+		return 0;
+	}
+	/**
+	 * This method evaluates pawn structure of the position.
+	 * @param position is evaluated position.
+	 * @return packed pawn structure terms (see PawnTable).
+	 */
+	private static long evaluatePawns(final Position position)
+	{
+		int middlegame = 0;
+		int endgame = 0;
+		for(int alliance = Position.WHITE; alliance <= Position.BLACK; alliance++)
+		{
+			final int sign = alliance == Position.WHITE ? 1 : -1;
+			final long ownPawns = position.getPieces(alliance, Position.PAWN);
+			final long enemyPawns = position.getPieces(alliance ^ 1, Position.PAWN);
+			long pawns = ownPawns;
+			while(pawns != 0)
+			{
+				final int square = Long.numberOfTrailingZeros(pawns);
+				pawns &= pawns - 1;
+				final int file = square % 8;
+				final int relativeRank = alliance == Position.WHITE ? square / 8 : 7 - square / 8;
+				if((ownPawns & PASSED_MASKS[alliance][square] & FILES[file]) != 0)
+				{
+					middlegame += sign * DOUBLED_MIDDLEGAME;
+					endgame += sign * DOUBLED_ENDGAME;
+				}
+				if((ownPawns & ADJACENT_FILES[file]) == 0)
+				{
+					middlegame += sign * ISOLATED_MIDDLEGAME;
+					endgame += sign * ISOLATED_ENDGAME;
+				}
+				else if((ownPawns & SUPPORT_MASKS[alliance][square]) == 0)
+				{
+					final int stopSquare = alliance == Position.WHITE ? square + 8 : square - 8;
+					if((AttackTables.pawnAttacks(alliance, stopSquare) & enemyPawns) != 0)
+					{
+						middlegame += sign * BACKWARD_MIDDLEGAME;
+						endgame += sign * BACKWARD_ENDGAME;
+					}
+				}
+				if((enemyPawns & PASSED_MASKS[alliance][square]) == 0
+						&& (ownPawns & PASSED_MASKS[alliance][square] & FILES[file]) == 0)
+				{
+					middlegame += sign * PASSED_MIDDLEGAME[relativeRank];
+					endgame += sign * PASSED_ENDGAME[relativeRank];
+				}
+			}
+		}
+		final long whitePawns = position.getPieces(Position.WHITE, Position.PAWN);
+		final long blackPawns = position.getPieces(Position.BLACK, Position.PAWN);
+		return PawnTable.pack(middlegame, endgame, pawnShield(whitePawns, Position.WHITE, 0),
+				pawnShield(whitePawns, Position.WHITE, 5), pawnShield(blackPawns, Position.BLACK, 0),
+				pawnShield(blackPawns, Position.BLACK, 5));
+	}
+	/**
+	 * This method evaluates pawns in front of the king castled on the wing.
+	 * @param ownPawns are pawns of the king alliance.
+	 * @param alliance is alliance index of the king.
+	 * @param firstFile is the first of three files of the wing.
+	 * @return shield value from the king alliance point of view.
+	 */
+	private static int pawnShield(final long ownPawns, final int alliance, final int firstFile)
+	{
+		final int nearRank = alliance == Position.WHITE ? 1 : 6;
+		final int farRank = alliance == Position.WHITE ? 2 : 5;
+		int shield = 0;
+		for(int file = firstFile; file < firstFile + 3; file++)
+		{
+			if((ownPawns & (1L << (8 * nearRank + file))) != 0)
+				shield += SHIELD_NEAR;
+			else if((ownPawns & (1L << (8 * farRank + file))) != 0)
+				shield += SHIELD_FAR;
+			else
+				shield += SHIELD_MISSING;
+		}
+		return shield;
+	}
+}
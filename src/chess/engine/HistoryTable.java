@@ -0,0 +1,87 @@
+package chess.engine;
+
+import java.util.Arrays;
+
+import chess.model.board.Board;
+import chess.model.game.MoveCode;
+
+/**
+ * This is class which keeps butterfly history of the quiet moves: for
+ * every side and every pair of source and target fields it counts how
+ * well quiet move between these fields did in the search. Every quiet
+ * move causing beta cutoff gets bonus of depth squared, so cutoffs close
+ * to the root count more. When any value exceeds the limit, all values
+ * are halved, so old results fade away and values fit in int.
+ * Values are kept in one primitive array indexed by side, source and
+ * target field. Table is not thread safe, every search thread uses its own.
+ *
+ * @author Piotr Poskart
+ *
+ */
+public final class HistoryTable
+{
+	/** Value after which all values are halved */
+	private static final int MAX_VALUE = 1 << 20;
+	/** Number of entries of one side */
+	private static final int SIDE_ENTRIES = Board.BOARD_FIELDS_NUMBER * Board.BOARD_FIELDS_NUMBER;
+	/** History values indexed by side, source and target field */
+	private final int[] values;
+
+	/**
+	 * HistoryTable constructor. Creates empty table.
+	 */
+	public HistoryTable()
+	{
+		values = new int[2 * SIDE_ENTRIES];
+	}
+	/**
+	 * This method returns history value of the move.
+	 * @param side is alliance index of the moving side.
+	 * @param move is move code.
+	 * @return history value, 0 for not rewarded moves.
+	 */
+	public int get(final int side, final int move)
+	{
+		return values[index(side, move)];
+	}
+	/**
+	 * This method rewards quiet move which caused beta cutoff.
+	 * @param side is alliance index of the moving side.
+	 * @param move is move code.
+	 * @param depth is remaining depth of the node in plies.
+	 */
+	public void update(final int side, final int move, final int depth)
+	{
+		final int index = index(side, move);
+		values[index] += depth * depth;
+		if(values[index] > MAX_VALUE)
+			age();
+	}
+	/**
+	 * This method halves all values. It is called when value exceeds the
+	 * limit and before every new search.
+	 */
+	public void age()
+	{
+		for(int i = 0; i < values.length; i++)
+			values[i] >>= 1;
+	}
+	/**
+	 * This method removes all values.
+	 */
+	public void clear()
+	{
+		Arrays.fill(values, 0);
+	}
+
+	/**
+	 * Returns index of the move in the values array.
+	 * @param side is alliance index of the moving side.
+	 * @param move is move code.
+	 * @return index of the move.
+	 */
+	private static int index(final int side, final int move)
+	{
+		return side * SIDE_ENTRIES + MoveCode.getSource(move) * Board.BOARD_FIELDS_NUMBER + MoveCode.getTarget(move);
+	}
+}
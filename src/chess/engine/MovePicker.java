@@ -0,0 +1,226 @@
+package chess.engine;
+
+import chess.model.board.MoveGenerator;
+import chess.model.board.PieceSquareTables;
+import chess.model.board.Position;
+import chess.model.game.MoveCode;
+import chess.model.game.MoveList;
+
+/**
+ * This is class which returns legal moves of the position one by one in
+ * the order in which the search should try them. Moves are produced in
+ * stages:
+ * <ol>
+ * <li>hash move - the best move from the transposition table,</li>
+ * <li>captures and promotions not losing material, most valuable victim
+ * and least valuable attacker first (MVV-LVA),</li>
+ * <li>killer moves - quiet moves which caused cutoff on the same ply,</li>
+ * <li>quiet moves ordered by the history table,</li>
+ * <li>captures losing material according to the static exchange.</li>
+ * </ol>
+ * Moves of the stage are generated only when all moves of the previous
+ * stages were returned, so if the hash move or a good capture causes
+ * cutoff, quiet moves are never generated. Moves which do not come from
+ * the generator (hash move and killers) are verified with
+ * MoveGenerator.isLegal(). Every move is returned once.
+ * <p>
+ * Picker in the quiescence mode returns only captures and promotions in
+ * MVV-LVA order. Search keeps one picker per ply, so picking moves does
+ * not create any objects.
+ *
+ * @author Piotr Poskart
+ *
+ */
+public final class MovePicker
+{
+	/** Stages of the picker */
+	private static final int HASH = 0;
+	private static final int GENERATE_CAPTURES = 1;
+	private static final int CAPTURES = 2;
+	private static final int KILLERS = 3;
+	private static final int GENERATE_QUIETS = 4;
+	private static final int QUIETS = 5;
+	private static final int BAD_CAPTURES = 6;
+	private static final int QUIESCENCE_GENERATE = 7;
+	private static final int QUIESCENCE_CAPTURES = 8;
+	private static final int DONE = 9;
+
+	/** History table ordering quiet moves */
+	private final HistoryTable history;
+	/** Moves of the current stage */
+	private final MoveList moves;
+	/** Captures deferred to the last stage */
+	private final MoveList badCaptures;
+	/** Buffer of the static exchange evaluation */
+	private final int[] exchangeGains;
+	/** Position which moves are picked */
+	private Position position;
+	/** Current stage */
+	private int stage;
+	/** Index of the next move of the current stage */
+	private int index;
+	/** Best move from the transposition table */
+	private int hashMove;
+	/** Killer moves of the ply */
+	private int firstKiller;
+	private int secondKiller;
+
+	/**
+	 * MovePicker constructor.
+	 * @param history is history table ordering quiet moves.
+	 */
+	public MovePicker(final HistoryTable history)
+	{
+		this.history = history;
+		moves = new MoveList();
+		badCaptures = new MoveList();
+		exchangeGains = new int[StaticExchange.MAX_EXCHANGE];
+	}
+	/**
+	 * This method prepares picker for all legal moves of the position.
+	 * @param position is position which moves are picked, it must not be
+	 * changed until the next move is picked.
+	 * @param hashMove is best move from the transposition table, NO_MOVE if
+	 * there is none.
+	 * @param firstKiller is the first killer move of the ply.
+	 * @param secondKiller is the second killer move of the ply.
+	 */
+	public void init(final Position position, final int hashMove, final int firstKiller, final int secondKiller)
+	{
+		this.position = position;
+		this.hashMove = MoveGenerator.isLegal(position, hashMove) ? hashMove : MoveCode.NO_MOVE;
+		this.firstKiller = firstKiller;
+		this.secondKiller = secondKiller;
+		badCaptures.clear();
+		stage = HASH;
+	}
+	/**
+	 * This method prepares picker for captures and promotions of the position.
+	 * @param position is position which moves are picked, it must not be
+	 * changed until the next move is picked.
+	 */
+	public void initQuiescence(final Position position)
+	{
+		this.position = position;
+		hashMove = MoveCode.NO_MOVE;
+		stage = QUIESCENCE_GENERATE;
+	}
+	/**
+	 * This method returns the next move to be searched.
+	 * @return move code, NO_MOVE if all moves were returned.
+	 */
+	public int next()
+	{
+		while(true)
+		{
+			switch(stage)
+			{
+				case HASH:
+					stage = GENERATE_CAPTURES;
+					if(hashMove != MoveCode.NO_MOVE)
+						return hashMove;
+					break;
+				case GENERATE_CAPTURES:
+				case QUIESCENCE_GENERATE:
+					generateCaptures();
+					stage++;
+					break;
+				case CAPTURES:
+					while(index < moves.size())
+					{
+						final int move = moves.pickBest(index++);
+						if(move == hashMove)
+							continue;
+						if(StaticExchange.evaluate(position, move, exchangeGains) < 0)
+							badCaptures.add(move);
+						else
+							return move;
+					}
+					stage = KILLERS;
+					index = 0;
+					break;
+				case KILLERS:
+					while(index < 2)
+					{
+						final int killer = index++ == 0 ? firstKiller : secondKiller;
+						if(killer != hashMove && isQuiet(killer) && MoveGenerator.isLegal(position, killer))
+							return killer;
+					}
+					stage = GENERATE_QUIETS;
+					break;
+				case GENERATE_QUIETS:
+					generateQuiets();
+					stage = QUIETS;
+					break;
+				case QUIETS:
+					while(index < moves.size())
+					{
+						final int move = moves.pickBest(index++);
+						if(move != hashMove && move != firstKiller && move != secondKiller)
+							return move;
+					}
+					stage = BAD_CAPTURES;
+					index = 0;
+					break;
+				case BAD_CAPTURES:
+					if(index < badCaptures.size())
+						return badCaptures.get(index++);
+					stage = DONE;
+					break;
+				case QUIESCENCE_CAPTURES:
+					if(index < moves.size())
+						return moves.pickBest(index++);
+					stage = DONE;
+					break;
+				default:
+					return MoveCode.NO_MOVE;
+			}
+		}
+	}
+
+	/**
+	 * This method generates captures and promotions and scores them by
+	 * MVV-LVA.
+	 */
+	private void generateCaptures()
+	{
+		moves.clear();
+		MoveGenerator.generateLegalCaptures(position, moves);
+		for(int i = 0; i < moves.size(); i++)
+			moves.setScore(i, captureValue(moves.get(i)));
+		index = 0;
+	}
+	/**
+	 * This method generates quiet moves and scores them by history.
+	 */
+	private void generateQuiets()
+	{
+		moves.clear();
+		MoveGenerator.generateLegalQuiets(position, moves);
+		final int side = position.getSideToMove();
+		for(int i = 0; i < moves.size(); i++)
+			moves.setScore(i, history.get(side, moves.get(i)));
+		index = 0;
+	}
+	/**
+	 * This method checks if the move is neither capture nor promotion.
+	 * @param move is move code.
+	 * @return true if move is quiet, false otherwise.
+	 */
+	public static boolean isQuiet(final int move)
+	{
+		return !MoveCode.isCapture(move) && !MoveCode.isPromotion(move);
+	}
+	/**
+	 * This method returns MVV-LVA value of the move: victims value first,
+	 * then attacker's value in reverse order. Promotion counts as queen
+	 * capture.
+	 * @param move is move code.
+	 * @return ordering value, greater for more promising moves.
+	 */
+	private static int captureValue(final int move)
+	{
+		final int victim = MoveCode.isCapture(move) ? MoveCode.getCapturedType(move) : Position.QUEEN;
+		return PieceSquareTables.pieceValue(victim) * 8 - MoveCode.getMovedType(move);
+	}
+}
@@ -0,0 +1,405 @@
+package chess.engine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.ToLongFunction;
+
+import chess.model.board.Board;
+import chess.model.board.MoveGenerator;
+import chess.model.board.Position;
+import chess.model.game.Move;
+import chess.model.game.MoveCode;
+
+/**
+ * This is class which reads opening moves from the book file in the
+ * Polyglot format. File is a sequence of 16-byte big-endian entries sorted
+ * by the position key:
+ * <pre>
+ * 0 - 7   position key
+ * 8 - 9   move: target field (bits 0 - 5), source field (bits 6 - 11),
+ *         promotion piece (bits 12 - 14, 4 means queen)
+ * 10 - 11 weight of the move
+ * 12 - 15 learning data (not used)
+ * </pre>
+ * Fields are numbered as in the Position (a1 = 0, h8 = 63) and castling is
+ * written as king's move to the rook field, e.g. e1h1.
+ * <p>
+ * The file is mapped into memory with FileChannel.map(), so opening the
+ * book does not read it and the book occupies no heap memory; pages are
+ * loaded by the operating system when they are needed and are shared by
+ * all the threads (and processes) using the same file. Moves of the
+ * position are found with binary search by the key and one of them is
+ * picked at random with probability proportional to its weight. Book is
+ * read only, so one object can be used by many threads.
+ * <p>
+ * Keys are computed by the key function given to the book. By default it
+ * is the standard Polyglot key (see PolyglotKey), so books written by other
+ * programs are read as they are; other key functions, e.g. the Zobrist key
+ * of the Position, can be used for books written with the Builder of this
+ * class.
+ *
+ * @author Piotr Poskart
+ *
+ */
+public final class OpeningBook
+{
+	/** Size of the book entry in bytes */
+	public static final int ENTRY_SIZE = 16;
+	/** Promotion piece code of the queen in the book move */
+	private static final int BOOK_PROMOTION_QUEEN = 4;
+	/** Maximal weight of the move */
+	private static final int MAX_WEIGHT = 0xFFFF;
+
+	/** Mapped content of the book file */
+	private final ByteBuffer entries;
+	/** Number of the entries in the book */
+	private final int size;
+	/** Function computing position keys */
+	private final ToLongFunction<Position> keyFunction;
+
+	/**
+	 * OpeningBook constructor.
+	 * @param entries is buffer with book entries.
+	 * @param keyFunction is function computing position keys.
+	 */
+	private OpeningBook(final ByteBuffer entries, final ToLongFunction<Position> keyFunction)
+	{
+		this.entries = entries;
+		this.size = entries.capacity() / ENTRY_SIZE;
+		this.keyFunction = keyFunction;
+	}
+	/**
+	 * This method opens the book with Polyglot keys of the positions.
+	 * @param file is path of the book file.
+	 * @return opened book.
+	 * @throws IOException if file can not be mapped.
+	 */
+	public static OpeningBook open(final Path file) throws IOException
+	{
+		return open(file, PolyglotKey::compute);
+	}
+	/**
+	 * This method opens the book. File is mapped into memory and closed,
+	 * mapping stays valid as long as the book is used.
+	 * @param file is path of the book file.
+	 * @param keyFunction is function computing position keys the book was
+	 * written with.
+	 * @return opened book.
+	 * @throws IOException if file can not be mapped or is not a book.
+	 */
+	public static OpeningBook open(final Path file, final ToLongFunction<Position> keyFunction) throws IOException
+	{
+		try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+		{
+			final long length = channel.size();
+			if(length % ENTRY_SIZE != 0 || length > Integer.MAX_VALUE)
+				throw new IOException("Wrong size of the book file " + file + ": " + length);
+			final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+			return new OpeningBook(buffer, keyFunction);
+		}
+	}
+	/**
+	 * This method returns number of entries in the book.
+	 * @return number of entries.
+	 */
+	public int size()
+	{
+		return size;
+	}
+	/**
+	 * This method picks book move for the active alliance of the board.
+	 * @param board is board with the current position.
+	 * @return book move bound to the given board, EmptyMove if position is
+	 * not in the book.
+	 */
+	public Move findMove(final Board board)
+	{
+		return findMove(board, ThreadLocalRandom.current());
+	}
+	/**
+	 * This method picks book move for the active alliance of the board.
+	 * @param board is board with the current position.
+	 * @param random is generator choosing one of the book moves.
+	 * @return book move bound to the given board, EmptyMove if position is
+	 * not in the book.
+	 */
+	public Move findMove(final Board board, final Random random)
+	{
+		return MoveCode.toMove(findMoveCode(board.getPosition(), random), board);
+	}
+	/**
+	 * This method picks book move of the position. Moves which are not
+	 * legal in the position (e.g. because of key collision) are ignored.
+	 * @param position is current position.
+	 * @param random is generator choosing one of the book moves.
+	 * @return move code, NO_MOVE if position is not in the book.
+	 */
+	public int findMoveCode(final Position position, final Random random)
+	{
+		final long key = keyFunction.applyAsLong(position);
+		final int first = findFirstEntry(key);
+		int totalWeight = 0;
+		for(int i = first; i < size && getKey(i) == key; i++)
+		{
+			if(isLegalEntry(position, i))
+				totalWeight += getWeight(i);
+		}
+		if(totalWeight == 0)
+			return MoveCode.NO_MOVE;
+		int pick = random.nextInt(totalWeight);
+		for(int i = first; i < size && getKey(i) == key; i++)
+		{
+			if(!isLegalEntry(position, i))
+				continue;
+			pick -= getWeight(i);
+			if(pick < 0)
+				return fromBookMove(getBookMove(i), position);
+		}
+		return MoveCode.NO_MOVE;
+	}
+
+	/**
+	 * This method finds the first entry with the given key by binary search.
+	 * Keys are compared as unsigned numbers.
+	 * @param key is position key.
+	 * @return index of the first entry with key not less than the given one.
+	 */
+	private int findFirstEntry(final long key)
+	{
+		int low = 0;
+		int high = size;
+		while(low < high)
+		{
+			final int middle = (low + high) >>> 1;
+			if(Long.compareUnsigned(getKey(middle), key) < 0)
+				low = middle + 1;
+			else
+				high = middle;
+		}
+		return low;
+	}
+	/**
+	 * This method checks if the move of the entry is legal in the position.
+	 * @param position is current position.
+	 * @param index is index of the entry.
+	 * @return true if the move is legal.
+	 */
+	private boolean isLegalEntry(final Position position, final int index)
+	{
+		final int move = fromBookMove(getBookMove(index), position);
+		return move != MoveCode.NO_MOVE && MoveGenerator.isLegal(position, move);
+	}
+	/**
+	 * Returns position key of the entry.
+	 * @param index is index of the entry.
+	 * @return position key.
+	 */
+	private long getKey(final int index)
+	{
+		return entries.getLong(index * ENTRY_SIZE);
+	}
+	/**
+	 * Returns 16-bit book move of the entry.
+	 * @param index is index of the entry.
+	 * @return book move.
+	 */
+	private int getBookMove(final int index)
+	{
+		return entries.getShort(index * ENTRY_SIZE + 8) & 0xFFFF;
+	}
+	/**
+	 * Returns weight of the entry move.
+	 * @param index is index of the entry.
+	 * @return unsigned weight.
+	 */
+	private int getWeight(final int index)
+	{
+		return entries.getShort(index * ENTRY_SIZE + 10) & 0xFFFF;
+	}
+	/**
+	 * This method converts book move into move code. Castling written as
+	 * king's move to the rook field is converted into king's move by two
+	 * fields. The game promotes only to the queen, so underpromotions of
+	 * the book are not converted.
+	 * @param bookMove is 16-bit book move.
+	 * @param position is position in which move is to be played.
+	 * @return move code, NO_MOVE if there is no piece on the source field
+	 * or the move is underpromotion.
+	 */
+	private static int fromBookMove(final int bookMove, final Position position)
+	{
+		final int to = bookMove & 0x3F;
+		final int from = (bookMove >>> 6) & 0x3F;
+		final int promotion = (bookMove >>> 12) & 0x7;
+		if(promotion != 0 && promotion != BOOK_PROMOTION_QUEEN)
+			return MoveCode.NO_MOVE;
+		int target = to;
+		if(position.getPieceCode(from) == Position.pieceCode(position.getSideToMove(), Position.KING)
+				&& position.getPieceCode(to) == Position.pieceCode(position.getSideToMove(), Position.ROOK))
+			target = to > from ? from + 2 : from - 2;
+		int move = MoveCode.fromCompact((short) (from | (target << 6)), position);
+		if(promotion != 0 && move != MoveCode.NO_MOVE)
+			move = MoveCode.encode(from, target, MoveCode.getMovedType(move), MoveCode.getCapturedType(move),
+					Position.QUEEN, (move & MoveCode.CAPTURE) | MoveCode.PROMOTION);
+		return move;
+	}
+	/**
+	 * This method converts move code into book move.
+	 * @param move is move code.
+	 * @return 16-bit book move.
+	 */
+	private static int toBookMove(final int move)
+	{
+		final int from = MoveCode.getSource(move);
+		int to = MoveCode.getTarget(move);
+		if(MoveCode.isCastling(move))
+			to = MoveCode.getCastlingRookSource(move);
+		return to | (from << 6) | (MoveCode.isPromotion(move) ? BOOK_PROMOTION_QUEEN << 12 : 0);
+	}
+
+	/**
+	 * This is class which writes book files read by OpeningBook. Moves are
+	 * collected with add(), moves added many times in the same position
+	 * have their weights summed up.
+	 *
+	 * @author Piotr Poskart
+	 *
+	 */
+	public static final class Builder
+	{
+		/** Initial capacity of the entry arrays */
+		private static final int INITIAL_CAPACITY = 256;
+
+		/** Function computing position keys */
+		private final ToLongFunction<Position> keyFunction;
+		/** Keys of the entries */
+		private long[] keys;
+		/** Book moves of the entries */
+		private int[] moves;
+		/** Weights of the entries */
+		private int[] weights;
+		/** Number of the entries */
+		private int count;
+
+		/**
+		 * Builder constructor. Creates builder of the book with Polyglot keys.
+		 */
+		public Builder()
+		{
+			this(PolyglotKey::compute);
+		}
+		/**
+		 * Builder constructor.
+		 * @param keyFunction is function computing position keys.
+		 */
+		public Builder(final ToLongFunction<Position> keyFunction)
+		{
+			this.keyFunction = keyFunction;
+			keys = new long[INITIAL_CAPACITY];
+			moves = new int[INITIAL_CAPACITY];
+			weights = new int[INITIAL_CAPACITY];
+		}
+		/**
+		 * This method adds move to the book.
+		 * @param position is position in which move is played.
+		 * @param move is move code.
+		 * @param weight is weight of the move, greater for moves to be
+		 * played more often.
+		 * @return this object.
+		 */
+		public Builder add(final Position position, final int move, final int weight)
+		{
+			if(count == keys.length)
+			{
+				keys = Arrays.copyOf(keys, 2 * count);
+				moves = Arrays.copyOf(moves, 2 * count);
+				weights = Arrays.copyOf(weights, 2 * count);
+			}
+			keys[count] = keyFunction.applyAsLong(position);
+			moves[count] = toBookMove(move);
+			weights[count] = weight;
+			count++;
+			return this;
+		}
+		/**
+		 * This method writes the book file, entries are sorted by key and
+		 * weight of the moves. Weights are scaled down if they exceed 16 bits.
+		 * @param file is path of the book file.
+		 * @throws IOException if file can not be written.
+		 */
+		public void write(final Path file) throws IOException
+		{
+			final Integer[] order = new Integer[count];
+			for(int i = 0; i < count; i++)
+				order[i] = i;
+			Arrays.sort(order, (a, b) -> keys[a] != keys[b] ? Long.compareUnsigned(keys[a], keys[b])
+					: Integer.compare(moves[a], moves[b]));
+
+			final ByteBuffer buffer = ByteBuffer.allocate(count * ENTRY_SIZE);
+			int maxWeight = 0;
+			int entryCount = 0;
+			final long[] entryKeys = new long[count];
+			final int[] entryMoves = new int[count];
+			final int[] entryWeights = new int[count];
+			for(int i = 0; i < count; i++)
+			{
+				final int index = order[i];
+				if(entryCount > 0 && entryKeys[entryCount - 1] == keys[index] && entryMoves[entryCount - 1] == moves[index])
+					entryWeights[entryCount - 1] += weights[index];
+				else
+				{
+					entryKeys[entryCount] = keys[index];
+					entryMoves[entryCount] = moves[index];
+					entryWeights[entryCount] = weights[index];
+					entryCount++;
+				}
+				maxWeight = Math.max(maxWeight, entryWeights[entryCount - 1]);
+			}
+			sortByWeight(entryKeys, entryMoves, entryWeights, entryCount);
+			for(int i = 0; i < entryCount; i++)
+			{
+				final int weight = maxWeight > MAX_WEIGHT
+						? (int) Math.max(1, (long) entryWeights[i] * MAX_WEIGHT / maxWeight) : entryWeights[i];
+				buffer.putLong(entryKeys[i]).putShort((short) entryMoves[i]).putShort((short) weight).putInt(0);
+			}
+			buffer.flip();
+			try(FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+					StandardOpenOption.TRUNCATE_EXISTING))
+			{
+				while(buffer.hasRemaining())
+					channel.write(buffer);
+			}
+		}
+		/**
+		 * This method orders moves of every position by decreasing weight,
+		 * as Polyglot books do. Entries of one key are few, so insertion
+		 * sort is used.
+		 * @param keys are entry keys sorted by key.
+		 * @param moves are entry moves.
+		 * @param weights are entry weights.
+		 * @param count is number of entries.
+		 */
+		private static void sortByWeight(final long[] keys, final int[] moves, final int[] weights, final int count)
+		{
+			for(int i = 1; i < count; i++)
+			{
+				for(int j = i; j > 0 && keys[j - 1] == keys[j] && weights[j - 1] < weights[j]; j--)
+				{
+					final int move = moves[j];
+					moves[j] = moves[j - 1];
+					moves[j - 1] = move;
+					final int weight = weights[j];
+					weights[j] = weights[j - 1];
+					weights[j - 1] = weight;
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,147 @@
+package chess.engine;
+
+import java.util.Arrays;
+
+/**
+ * This is class which caches pawn structure evaluation. Pawn structure
+ * changes only after pawn moves and captures of pawns, so the same pawn
+ * placement is evaluated many times during the search. Table is indexed
+ * by the pawn hash of the position (see Position.getPawnKey()) and keeps
+ * evaluated terms packed into one long value. New entry always replaces
+ * the old one. Table is not thread safe, every search thread uses its own.
+ * Packed data layout (all values signed, white point of view):
+ * <pre>
+ *  0 - 15  middlegame score
+ * 16 - 31  endgame score
+ * 32 - 39  white pawn shield on the queen side (files a - c)
+ * 40 - 47  white pawn shield on the king side (files f - h)
+ * 48 - 55  black pawn shield on the queen side
+ * 56 - 63  black pawn shield on the king side
+ * </pre>
+ * Keys are stored XORed with the nonzero sentinel, so empty entry (key 0)
+ * is never taken for the entry of the position without pawns, which has
+ * pawn hash 0 and nonzero pawn shield penalties.
+ *
+ * @author Piotr Poskart
+ *
+ */
+public final class PawnTable
+{
+	/** Default number of entries */
+	public static final int DEFAULT_SIZE = 1 << 14;
+	/** Value XORed with the stored keys, so empty entry matches no pawn hash in practice */
+	private static final long KEY_SENTINEL = 0x9E3779B97F4A7C15L;
+	/** Keys of the entries */
+	private final long[] keys;
+	/** Packed pawn structure terms of the entries */
+	private final long[] data;
+	/** Mask of the entry index */
+	private final int indexMask;
+	/** Number of probes */
+	private long probes;
+	/** Number of successful probes */
+	private long hits;
+
+	/**
+	 * PawnTable constructor.
+	 * @param size is number of entries, rounded down to the power of two.
+	 */
+	public PawnTable(final int size)
+	{
+		final int entries = Integer.highestOneBit(Math.max(size, 1));
+		keys = new long[entries];
+		data = new long[entries];
+		indexMask = entries - 1;
+	}
+	/**
+	 * This method looks for the pawn structure in the table.
+	 * @param pawnKey is pawn hash of the position.
+	 * @param result is one element array which receives packed data on hit.
+	 * @return true if structure is found, false otherwise.
+	 */
+	public boolean probe(final long pawnKey, final long[] result)
+	{
+		probes++;
+		final int index = (int) pawnKey & indexMask;
+		if((keys[index] ^ KEY_SENTINEL) != pawnKey)
+			return false;
+		hits++;
+		result[0] = data[index];
+		return true;
+	}
+	/**
+	 * This method stores evaluated pawn structure in the table.
+	 * @param pawnKey is pawn hash of the position.
+	 * @param packedData are packed pawn structure terms.
+	 */
+	public void store(final long pawnKey, final long packedData)
+	{
+		final int index = (int) pawnKey & indexMask;
+		keys[index] = pawnKey ^ KEY_SENTINEL;
+		data[index] = packedData;
+	}
+	/**
+	 * This method removes all entries and resets statistics.
+	 */
+	public void clear()
+	{
+		Arrays.fill(keys, 0L);
+		Arrays.fill(data, 0L);
+		probes = 0;
+		hits = 0;
+	}
+	/**
+	 * This method returns permille of the successful probes.
+	 * @return hits per thousand probes.
+	 */
+	public int getHitRate()
+	{
+		return probes == 0 ? 0 : (int) (hits * 1000 / probes);
+	}
+	/**
+	 * This method packs pawn structure terms into long value.
+	 * @param middlegame is middlegame score.
+	 * @param endgame is endgame score.
+	 * @param whiteQueenSide is white pawn shield on the queen side.
+	 * @param whiteKingSide is white pawn shield on the king side.
+	 * @param blackQueenSide is black pawn shield on the queen side.
+	 * @param blackKingSide is black pawn shield on the king side.
+	 * @return packed data.
+	 */
+	public static long pack(final int middlegame, final int endgame, final int whiteQueenSide,
+			final int whiteKingSide, final int blackQueenSide, final int blackKingSide)
+	{
+		return (middlegame & 0xFFFFL) | ((endgame & 0xFFFFL) << 16) | ((whiteQueenSide & 0xFFL) << 32)
+				| ((whiteKingSide & 0xFFL) << 40) | ((blackQueenSide & 0xFFL) << 48)
+				| ((blackKingSide & 0xFFL) << 56);
+	}
+	/**
+	 * Returns middlegame score of the packed data.
+	 * @param packedData is packed pawn structure terms.
+	 * @return middlegame score.
+	 */
+	public static int getMiddlegame(final long packedData)
+	{
+		return (short) packedData;
+	}
+	/**
+	 * Returns endgame score of the packed data.
+	 * @param packedData is packed pawn structure terms.
+	 * @return endgame score.
+	 */
+	public static int getEndgame(final long packedData)
+	{
+		return (short) (packedData >>> 16);
+	}
+	/**
+	 * Returns pawn shield value of the packed data.
+	 * @param packedData is packed pawn structure terms.
+	 * @param alliance is alliance index of the king.
+	 * @param kingSide is true for the king side shield, false for the queen side.
+	 * @return pawn shield value from the king alliance point of view.
+	 */
+	public static int getShield(final long packedData, final int alliance, final boolean kingSide)
+	{
+		return (byte) (packedData >>> (32 + 16 * alliance + (kingSide ? 8 : 0)));
+	}
+}
@@ -0,0 +1,547 @@
+package chess.engine;
+
+import java.util.Arrays;
+
+import chess.model.board.MoveGenerator;
+import chess.model.board.Position;
+import chess.model.game.MoveCode;
+import chess.model.game.MoveList;
+
+/**
+ * This is class which searches the game tree of the position. It is
+ * negamax alpha-beta search with iterative deepening: the position is
+ * searched to depth 1, 2, 3 ... until the depth, node or time limit is
+ * reached or stop() is called from other thread, and the result of the
+ * last completed iteration is returned. Time is checked every
+ * TIME_CHECK_INTERVAL nodes against the hard limit of the TimeManager,
+ * and new iteration is not started after its soft limit.
+ * Principal variation of every iteration is collected in the triangular
+ * table and results are stored in the transposition table, so the best
+ * move of the previous iteration is searched first in the next one.
+ * Moves are returned by the staged move picker: hash move, good captures,
+ * killer moves of the ply and quiet moves ordered by the history of
+ * cutoffs, so quiet moves are not even generated in most cut nodes.
+ * Moves after the first one are searched with the null window and searched
+ * again with the full window only if they raise alpha (principal
+ * variation search). Selective techniques: null move pruning, late move
+ * reductions and futility pruning are switched by SearchOptions.
+ * At the horizon captures are resolved by the quiescence search, which
+ * skips captures losing material according to the static exchange
+ * evaluation, so leaf scores do not depend on hanging pieces.
+ * <p>
+ * Search works on its own copy of the bitboard position and makes and
+ * takes back move codes. Move lists, pickers and exchange buffers are
+ * created once per Search object and check information once per position,
+ * so the search does not create any objects per node.
+ * One Search object can be used by one thread at a time. Many Search
+ * objects sharing one transposition table can search the same position in
+ * parallel (see Engine); helper searches start from the different depth,
+ * so threads do not repeat exactly the same work.
+ *
+ * @author Piotr Poskart
+ *
+ */
+public final class Search
+{
+	/** Maximal depth of the search in plies */
+	public static final int MAX_PLY = 64;
+	/** Maximal number of game positions before the root checked for repetitions */
+	public static final int MAX_GAME_KEYS = 100;
+	/** Score greater than any position score */
+	public static final int INFINITY = 32000;
+	/** Score of the mate at the root, mate in n plies scores MATE - n */
+	public static final int MATE = 30000;
+	/** Lowest absolute score which means forced mate */
+	public static final int MATE_BOUND = MATE - MAX_PLY;
+	/** Number of nodes between checks of the time limit, power of two */
+	private static final int TIME_CHECK_INTERVAL = 1024;
+	/** Lowest depth at which null move is tried */
+	private static final int NULL_MOVE_MIN_DEPTH = 3;
+	/** Lowest depth at which late moves are reduced */
+	private static final int REDUCTION_MIN_DEPTH = 3;
+	/** Number of moves searched without reduction */
+	private static final int REDUCTION_MIN_MOVES = 3;
+	/** Margins of the futility pruning indexed by remaining depth */
+	private static final int[] FUTILITY_MARGINS = {0, 200, 350, 500};
+	/** Reductions of the late moves indexed by remaining depth and move number */
+	private static final int[][] REDUCTIONS = new int[MAX_PLY + 1][MoveList.MAX_MOVES];
+
+	static
+	{
+		for(int depth = 1; depth <= MAX_PLY; depth++)
+		{
+			for(int moveNumber = 1; moveNumber < MoveList.MAX_MOVES; moveNumber++)
+				REDUCTIONS[depth][moveNumber] = (int) (0.75 + Math.log(depth) * Math.log(moveNumber) / 2.25);
+		}
+	}
+
+	/** Transposition table used by the search */
+	private final TranspositionTable transpositionTable;
+	/** Evaluator with its own pawn table */
+	private final Evaluator evaluator;
+	/** Move pickers of every ply */
+	private final MovePicker[] movePickers;
+	/** History of the quiet moves causing cutoffs */
+	private final HistoryTable history;
+	/** Two killer moves of every ply */
+	private final int[][] killers;
+	/** Triangular table of the principal variations of every ply */
+	private final int[][] pvTable;
+	/** Lengths of the principal variations of every ply */
+	private final int[] pvLength;
+	/** Hash keys of the game positions before the root and of the positions on the current search path */
+	private final long[] keyHistory;
+	/** Index of the root position in the key history */
+	private int rootIndex;
+	/** Flags of the plies reached by the null move */
+	private final boolean[] nullMovePlies;
+	/** Buffer of the static exchange evaluation */
+	private final int[] exchangeGains;
+	/** Selective techniques used by the search */
+	private SearchOptions options;
+	/** Searched position */
+	private Position position;
+	/** Limits of the current search */
+	private SearchLimits limits;
+	/** Time limits of the current search */
+	private TimeManager timeManager;
+	/** Search start time in milliseconds */
+	private long startTime;
+	/** Number of nodes visited by the current search */
+	private long nodes;
+	/** Flag set when the search has to be stopped */
+	private volatile boolean stopped;
+	/** Listener notified about completed iterations, may be null */
+	private SearchListener listener;
+	/** Depth of the first iteration */
+	private int startDepth;
+
+	/**
+	 * Search constructor.
+	 * @param transpositionTable is transposition table used by the search.
+	 */
+	public Search(final TranspositionTable transpositionTable)
+	{
+		this.transpositionTable = transpositionTable;
+		evaluator = new Evaluator();
+		history = new HistoryTable();
+		movePickers = new MovePicker[MAX_PLY + 1];
+		for(int i = 0; i <= MAX_PLY; i++)
+			movePickers[i] = new MovePicker(history);
+		killers = new int[MAX_PLY + 1][2];
+		pvTable = new int[MAX_PLY + 1][MAX_PLY + 1];
+		pvLength = new int[MAX_PLY + 1];
+		keyHistory = new long[MAX_GAME_KEYS + MAX_PLY + 1];
+		nullMovePlies = new boolean[MAX_PLY + 1];
+		exchangeGains = new int[StaticExchange.MAX_EXCHANGE];
+		options = new SearchOptions();
+		startDepth = 1;
+	}
+	/**
+	 * This method sets selective techniques used by the search. It must
+	 * not be called during the search.
+	 * @param options are search options.
+	 */
+	public void setOptions(final SearchOptions options)
+	{
+		this.options = options;
+	}
+	/**
+	 * This method sets listener notified about completed iterations.
+	 * @param listener is search listener, null if not needed.
+	 */
+	public void setListener(final SearchListener listener)
+	{
+		this.listener = listener;
+	}
+	/**
+	 * This method sets depth of the first iteration. Helper searches of
+	 * the parallel search start deeper than the main one.
+	 * @param startDepth is depth of the first iteration, at least 1.
+	 */
+	public void setStartDepth(final int startDepth)
+	{
+		this.startDepth = Math.max(1, startDepth);
+	}
+	/**
+	 * This method stops the search running in other thread. Search returns
+	 * result of the last completed iteration.
+	 */
+	public void stop()
+	{
+		stopped = true;
+	}
+	/**
+	 * This method clears the stop flag before the search is started by
+	 * searchPrepared(). Engine clears it in the thread which starts the
+	 * search, so stop() called just after the start is never lost.
+	 */
+	void clearStop()
+	{
+		stopped = false;
+	}
+	/**
+	 * This method returns evaluator used by this search.
+	 * @return evaluator object.
+	 */
+	public Evaluator getEvaluator()
+	{
+		return evaluator;
+	}
+	/**
+	 * This method returns number of nodes visited by the current (or the
+	 * last) search.
+	 * @return number of nodes.
+	 */
+	public long getNodes()
+	{
+		return nodes;
+	}
+	/**
+	 * This method searches given position with iterative deepening until
+	 * any of the limits is reached or the search is stopped. Given position
+	 * is not modified.
+	 * @param rootPosition is searched position.
+	 * @param searchLimits are limits of the search.
+	 * @return result of the last completed iteration.
+	 */
+	public SearchResult search(final Position rootPosition, final SearchLimits searchLimits)
+	{
+		return search(rootPosition, new long[0], searchLimits);
+	}
+	/**
+	 * This method searches given position like search(), positions of the
+	 * game which led to it are taken into account, so the search scores
+	 * their repetitions as draws.
+	 * @param rootPosition is searched position.
+	 * @param gameKeys are hash keys of the game positions before the root
+	 * position, the oldest first.
+	 * @param searchLimits are limits of the search.
+	 * @return result of the last completed iteration.
+	 */
+	public SearchResult search(final Position rootPosition, final long[] gameKeys, final SearchLimits searchLimits)
+	{
+		clearStop();
+		return searchPrepared(rootPosition, gameKeys, searchLimits);
+	}
+	/**
+	 * This method searches given position like search(), but it does not
+	 * clear the stop flag, so search stopped before it starts returns
+	 * immediately after the first iteration.
+	 * @param rootPosition is searched position.
+	 * @param gameKeys are hash keys of the game positions before the root
+	 * position, the oldest first; only the last MAX_GAME_KEYS are used.
+	 * @param searchLimits are limits of the search.
+	 * @return result of the last completed iteration.
+	 */
+	SearchResult searchPrepared(final Position rootPosition, final long[] gameKeys, final SearchLimits searchLimits)
+	{
+		position = rootPosition.copy();
+		limits = searchLimits;
+		startTime = System.currentTimeMillis();
+		timeManager = new TimeManager(limits, position.getSideToMove());
+		nodes = 0;
+		rootIndex = Math.min(gameKeys.length, MAX_GAME_KEYS);
+		System.arraycopy(gameKeys, gameKeys.length - rootIndex, keyHistory, 0, rootIndex);
+		keyHistory[rootIndex] = position.getHashKey();
+		history.age();
+		for(int[] plyKillers : killers)
+			Arrays.fill(plyKillers, MoveCode.NO_MOVE);
+
+		SearchResult result = null;
+		for(int depth = Math.min(startDepth, limits.getDepth()); depth <= limits.getDepth(); depth++)
+		{
+			final int score = alphaBeta(depth, 0, -INFINITY, INFINITY, false);
+			if(stopped && result != null)
+				break;
+			result = new SearchResult(pvLength[0] > 0 ? pvTable[0][0] : MoveCode.NO_MOVE, score, depth,
+					nodes, System.currentTimeMillis() - startTime, Arrays.copyOf(pvTable[0], pvLength[0]));
+			if(listener != null)
+				listener.iterationCompleted(result);
+			if(stopped || result.getBestMoveCode() == MoveCode.NO_MOVE
+					|| (result.isMateScore() && MATE - Math.abs(score) <= depth)
+					|| !timeManager.canStartIteration(result.getTime()))
+				break;
+		}
+		return result;
+	}
+
+	/**
+	 * This method searches position to the given depth with alpha-beta
+	 * window and returns its score from the side to move view.
+	 * @param depth is remaining depth in plies.
+	 * @param ply is distance from the root.
+	 * @param alpha is lower bound of the window.
+	 * @param beta is upper bound of the window.
+	 * @param afterNullMove is true if the position is reached by null move.
+	 * @return score of the position.
+	 */
+	private int alphaBeta(int depth, final int ply, int alpha, final int beta, final boolean afterNullMove)
+	{
+		nullMovePlies[ply] = afterNullMove;
+		pvLength[ply] = 0;
+		if(++nodes >= limits.getNodes() || ((nodes & (TIME_CHECK_INTERVAL - 1)) == 0 && isTimeOver()))
+			stopped = true;
+		if(ply > 0 && isRepetition(ply))
+			return 0;
+		if(ply >= MAX_PLY)
+			return evaluator.evaluate(position);
+		if(depth <= 0)
+			return quiescence(ply, alpha, beta);
+		if(stopped && ply > 0)
+			return 0;
+
+		final long key = keyHistory[rootIndex + ply];
+		final long entry = transpositionTable.probe(key);
+		final int hashMove = TranspositionTable.getMove(entry);
+		if(entry != TranspositionTable.NO_ENTRY && ply > 0 && TranspositionTable.getDepth(entry) >= depth)
+		{
+			final int hashScore = scoreFromTable(TranspositionTable.getScore(entry), ply);
+			final int bound = TranspositionTable.getBound(entry);
+			if(bound == TranspositionTable.EXACT
+					|| (bound == TranspositionTable.LOWER_BOUND && hashScore >= beta)
+					|| (bound == TranspositionTable.UPPER_BOUND && hashScore <= alpha))
+				return hashScore;
+		}
+
+		final int us = position.getSideToMove();
+		final boolean inCheck = MoveGenerator.isInCheck(position, us);
+		final boolean pvNode = beta - alpha > 1;
+		final int staticEval = inCheck || pvNode ? -INFINITY : evaluator.evaluate(position);
+
+		if(options.isNullMovePruning() && !afterNullMove && staticEval >= beta && depth >= NULL_MOVE_MIN_DEPTH
+				&& hasPieces(us))
+		{
+			final int reduction = depth >= 6 ? 3 : 2;
+			position.makeNullMove();
+			keyHistory[rootIndex + ply + 1] = position.getHashKey();
+			final int score = -alphaBeta(depth - 1 - reduction, ply + 1, -beta, -beta + 1, true);
+			position.unmakeNullMove();
+			if(stopped)
+				return 0;
+			if(score >= beta)
+				return score >= MATE_BOUND ? beta : score;
+		}
+		if(inCheck)
+			depth++;
+		final boolean futile = options.isFutilityPruning() && !inCheck && !pvNode && depth < FUTILITY_MARGINS.length
+				&& staticEval + FUTILITY_MARGINS[depth] <= alpha && Math.abs(alpha) < MATE_BOUND;
+
+		final MovePicker picker = movePickers[ply];
+		picker.init(position, hashMove, killers[ply][0], killers[ply][1]);
+		final int alphaOrig = alpha;
+		int bestScore = -INFINITY;
+		int bestMove = MoveCode.NO_MOVE;
+		int movesSearched = 0;
+		int move;
+		while((move = picker.next()) != MoveCode.NO_MOVE)
+		{
+			final boolean quiet = MovePicker.isQuiet(move);
+			position.makeMove(move);
+			final boolean givesCheck = MoveGenerator.isInCheck(position, us ^ 1);
+			if(futile && quiet && !givesCheck && movesSearched > 0)
+			{
+				position.unmakeMove(move);
+				bestScore = Math.max(bestScore, staticEval + FUTILITY_MARGINS[depth]);
+				continue;
+			}
+			keyHistory[rootIndex + ply + 1] = position.getHashKey();
+			int score;
+			if(movesSearched == 0)
+				score = -alphaBeta(depth - 1, ply + 1, -beta, -alpha, false);
+			else
+			{
+				int reduction = 0;
+				if(options.isLateMoveReductions() && quiet && !inCheck && !givesCheck && depth >= REDUCTION_MIN_DEPTH
+						&& movesSearched >= REDUCTION_MIN_MOVES)
+					reduction = Math.min(REDUCTIONS[depth][movesSearched], depth - 2);
+				score = -alphaBeta(depth - 1 - reduction, ply + 1, -alpha - 1, -alpha, false);
+				if(score > alpha && reduction > 0)
+					score = -alphaBeta(depth - 1, ply + 1, -alpha - 1, -alpha, false);
+				if(score > alpha && score < beta)
+					score = -alphaBeta(depth - 1, ply + 1, -beta, -alpha, false);
+			}
+			position.unmakeMove(move);
+			movesSearched++;
+			if(stopped && (ply > 0 || bestMove != MoveCode.NO_MOVE))
+				return bestScore;
+			if(score > bestScore)
+			{
+				bestScore = score;
+				bestMove = move;
+				if(score > alpha)
+				{
+					alpha = score;
+					updatePrincipalVariation(ply, move);
+					if(alpha >= beta)
+					{
+						if(MovePicker.isQuiet(move))
+							updateQuietCutoff(ply, move, depth);
+						break;
+					}
+				}
+			}
+		}
+		if(bestScore == -INFINITY)
+			return inCheck ? -MATE + ply : 0;
+		final int bound = bestScore >= beta ? TranspositionTable.LOWER_BOUND
+				: bestScore > alphaOrig ? TranspositionTable.EXACT : TranspositionTable.UPPER_BOUND;
+		transpositionTable.store(key, bestMove, scoreToTable(bestScore, ply), depth, bound);
+		return bestScore;
+	}
+	/**
+	 * This method searches only captures and promotions of the position
+	 * until it is quiet. Side to move may stand pat, i.e. take static
+	 * evaluation instead of capturing, unless it is in check, then all
+	 * legal moves are searched.
+	 * @param ply is distance from the root.
+	 * @param alpha is lower bound of the window.
+	 * @param beta is upper bound of the window.
+	 * @return score of the position.
+	 */
+	private int quiescence(final int ply, int alpha, final int beta)
+	{
+		pvLength[ply] = 0;
+		if(++nodes >= limits.getNodes() || ((nodes & (TIME_CHECK_INTERVAL - 1)) == 0 && isTimeOver()))
+			stopped = true;
+		if(stopped || ply >= MAX_PLY)
+			return evaluator.evaluate(position);
+
+		final boolean inCheck = MoveGenerator.isInCheck(position, position.getSideToMove());
+		int bestScore = -INFINITY;
+		if(!inCheck)
+		{
+			bestScore = evaluator.evaluate(position);
+			if(bestScore >= beta)
+				return bestScore;
+			if(bestScore > alpha)
+				alpha = bestScore;
+		}
+		final MovePicker picker = movePickers[ply];
+		if(inCheck)
+			picker.init(position, MoveCode.NO_MOVE, MoveCode.NO_MOVE, MoveCode.NO_MOVE);
+		else
+			picker.initQuiescence(position);
+		int move;
+		while((move = picker.next()) != MoveCode.NO_MOVE)
+		{
+			if(!inCheck && StaticExchange.evaluate(position, move, exchangeGains) < 0)
+				continue;
+			position.makeMove(move);
+			keyHistory[rootIndex + ply + 1] = position.getHashKey();
+			final int score = -quiescence(ply + 1, -beta, -alpha);
+			position.unmakeMove(move);
+			if(stopped)
+				return bestScore;
+			if(score > bestScore)
+			{
+				bestScore = score;
+				if(score > alpha)
+				{
+					alpha = score;
+					if(alpha >= beta)
+						break;
+				}
+			}
+		}
+		if(inCheck && bestScore == -INFINITY)
+			return -MATE + ply;
+		return bestScore;
+	}
+	/**
+	 * This method remembers quiet move which caused beta cutoff as killer
+	 * move of the ply and rewards it in the history table.
+	 * @param ply is distance from the root.
+	 * @param move is quiet move code.
+	 * @param depth is remaining depth of the node in plies.
+	 */
+	private void updateQuietCutoff(final int ply, final int move, final int depth)
+	{
+		if(killers[ply][0] != move)
+		{
+			killers[ply][1] = killers[ply][0];
+			killers[ply][0] = move;
+		}
+		history.update(position.getSideToMove(), move, depth);
+	}
+	/**
+	 * This method sets principal variation of the ply to the move followed
+	 * by the principal variation of the next ply.
+	 * @param ply is distance from the root.
+	 * @param move is best move of the ply.
+	 */
+	private void updatePrincipalVariation(final int ply, final int move)
+	{
+		pvTable[ply][0] = move;
+		System.arraycopy(pvTable[ply + 1], 0, pvTable[ply], 1, pvLength[ply + 1]);
+		pvLength[ply] = pvLength[ply + 1] + 1;
+	}
+	/**
+	 * This method checks if the position on the given ply has already
+	 * occurred on the search path or in the game before the root with the
+	 * same side to move. Positions before the null move are not checked.
+	 * @param ply is distance from the root.
+	 * @return true if position is repeated, false otherwise.
+	 */
+	private boolean isRepetition(final int ply)
+	{
+		for(int i = ply - 2; i >= -rootIndex; i -= 2)
+		{
+			if((i + 1 > 0 && nullMovePlies[i + 1]) || (i + 2 > 0 && nullMovePlies[i + 2]))
+				return false;
+			if(keyHistory[rootIndex + i] == keyHistory[rootIndex + ply])
+				return true;
+		}
+		return false;
+	}
+	/**
+	 * This method checks if the alliance has any piece other than pawns
+	 * and king. Null move is not tried without them, because in such
+	 * endgames passing the turn would often be the best move (zugzwang).
+	 * @param alliance is alliance index.
+	 * @return true if alliance has a knight, bishop, rook or queen.
+	 */
+	private boolean hasPieces(final int alliance)
+	{
+		return (position.getAllianceOccupancy(alliance)
+				& ~position.getPieces(alliance, Position.PAWN) & ~position.getPieces(alliance, Position.KING)) != 0;
+	}
+	/**
+	 * This method checks if hard time limit of the search is exceeded.
+	 * @return true if time is over, false otherwise.
+	 */
+	private boolean isTimeOver()
+	{
+		return timeManager.isHardLimitReached(System.currentTimeMillis() - startTime);
+	}
+	/**
+	 * This method converts mate score relative to the root into score
+	 * relative to the stored position.
+	 * @param score is score relative to the root.
+	 * @param ply is distance from the root.
+	 * @return score to be stored in the transposition table.
+	 */
+	private static int scoreToTable(final int score, final int ply)
+	{
+		if(score >= MATE_BOUND)
+			return score + ply;
+		if(score <= -MATE_BOUND)
+			return score - ply;
+		return score;
+	}
+	/**
+	 * This method converts mate score read from the transposition table
+	 * into score relative to the root.
+	 * @param score is score relative to the stored position.
+	 * @param ply is distance from the root.
+	 * @return score relative to the root.
+	 */
+	private static int scoreFromTable(final int score, final int ply)
+	{
+		if(score >= MATE_BOUND)
+			return score - ply;
+		if(score <= -MATE_BOUND)
+			return score + ply;
+		return score;
+	}
+}
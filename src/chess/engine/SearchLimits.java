@@ -0,0 +1,198 @@
+package chess.engine;
+
+import chess.model.board.Position;
+
+/**
+ * This is class which describes budget of the single search: maximal
+ * depth, maximal number of visited nodes and maximal search time. Search
+ * stops when any of the limits is reached. Instead of fixed search time
+ * the state of the game clock may be given (remaining time and increment
+ * of both sides and number of moves to the next time control, like
+ * parameters of the UCI go command), then TimeManager decides how long to
+ * search. By default there are no limits except maximal search depth.
+ *
+ * @author Piotr Poskart
+ *
+ */
+public final class SearchLimits
+{
+	/** Maximal depth of the search in plies */
+	private int depth;
+	/** Maximal number of visited nodes */
+	private long nodes;
+	/** Maximal search time in milliseconds, 0 if not limited */
+	private long moveTime;
+	/** Remaining clock time of both alliances in milliseconds, 0 if not used */
+	private final long[] time;
+	/** Time increment per move of both alliances in milliseconds */
+	private final long[] increment;
+	/** Number of moves to the next time control, 0 if the rest of the game */
+	private int movesToGo;
+
+	/**
+	 * SearchLimits constructor. Creates limits without any budget except
+	 * maximal search depth.
+	 */
+	public SearchLimits()
+	{
+		depth = Search.MAX_PLY;
+		nodes = Long.MAX_VALUE;
+		moveTime = 0;
+		time = new long[2];
+		increment = new long[2];
+		movesToGo = 0;
+	}
+	/**
+	 * This method creates limits of the search to the given depth.
+	 * @param depth is maximal depth in plies.
+	 * @return new search limits.
+	 */
+	public static SearchLimits depth(final int depth)
+	{
+		return new SearchLimits().setDepth(depth);
+	}
+	/**
+	 * This method creates limits of the search for the given time.
+	 * @param moveTime is search time in milliseconds.
+	 * @return new search limits.
+	 */
+	public static SearchLimits moveTime(final long moveTime)
+	{
+		return new SearchLimits().setMoveTime(moveTime);
+	}
+	/**
+	 * This method creates limits of the search to the given number of nodes.
+	 * @param nodes is maximal number of visited nodes.
+	 * @return new search limits.
+	 */
+	public static SearchLimits nodes(final long nodes)
+	{
+		return new SearchLimits().setNodes(nodes);
+	}
+	/**
+	 * This method creates limits of the search played with the clock.
+	 * @param whiteTime is remaining time of white in milliseconds.
+	 * @param blackTime is remaining time of black in milliseconds.
+	 * @param whiteIncrement is increment of white in milliseconds.
+	 * @param blackIncrement is increment of black in milliseconds.
+	 * @return new search limits.
+	 */
+	public static SearchLimits clock(final long whiteTime, final long blackTime, final long whiteIncrement,
+			final long blackIncrement)
+	{
+		return new SearchLimits().setTime(Position.WHITE, whiteTime).setTime(Position.BLACK, blackTime)
+				.setIncrement(Position.WHITE, whiteIncrement).setIncrement(Position.BLACK, blackIncrement);
+	}
+	/**
+	 * Returns maximal depth of the search.
+	 * @return depth in plies.
+	 */
+	public int getDepth()
+	{
+		return depth;
+	}
+	/**
+	 * Sets maximal depth of the search.
+	 * @param depth is depth in plies, limited to Search.MAX_PLY.
+	 * @return this object.
+	 */
+	public SearchLimits setDepth(final int depth)
+	{
+		this.depth = Math.max(1, Math.min(depth, Search.MAX_PLY));
+		return this;
+	}
+	/**
+	 * Returns maximal number of visited nodes.
+	 * @return number of nodes.
+	 */
+	public long getNodes()
+	{
+		return nodes;
+	}
+	/**
+	 * Sets maximal number of visited nodes.
+	 * @param nodes is number of nodes.
+	 * @return this object.
+	 */
+	public SearchLimits setNodes(final long nodes)
+	{
+		this.nodes = Math.max(1, nodes);
+		return this;
+	}
+	/**
+	 * Returns maximal search time.
+	 * @return time in milliseconds, 0 if not limited.
+	 */
+	public long getMoveTime()
+	{
+		return moveTime;
+	}
+	/**
+	 * Sets maximal search time.
+	 * @param moveTime is time in milliseconds, 0 if not limited.
+	 * @return this object.
+	 */
+	public SearchLimits setMoveTime(final long moveTime)
+	{
+		this.moveTime = Math.max(0, moveTime);
+		return this;
+	}
+	/**
+	 * Returns remaining clock time of the alliance.
+	 * @param alliance is alliance index (see Position).
+	 * @return time in milliseconds, 0 if clock is not used.
+	 */
+	public long getTime(final int alliance)
+	{
+		return time[alliance];
+	}
+	/**
+	 * Sets remaining clock time of the alliance.
+	 * @param alliance is alliance index (see Position).
+	 * @param time is time in milliseconds, 0 if clock is not used.
+	 * @return this object.
+	 */
+	public SearchLimits setTime(final int alliance, final long time)
+	{
+		this.time[alliance] = Math.max(0, time);
+		return this;
+	}
+	/**
+	 * Returns time increment per move of the alliance.
+	 * @param alliance is alliance index (see Position).
+	 * @return increment in milliseconds.
+	 */
+	public long getIncrement(final int alliance)
+	{
+		return increment[alliance];
+	}
+	/**
+	 * Sets time increment per move of the alliance.
+	 * @param alliance is alliance index (see Position).
+	 * @param increment is increment in milliseconds.
+	 * @return this object.
+	 */
+	public SearchLimits setIncrement(final int alliance, final long increment)
+	{
+		this.increment[alliance] = Math.max(0, increment);
+		return this;
+	}
+	/**
+	 * Returns number of moves to the next time control.
+	 * @return number of moves, 0 if time is for the rest of the game.
+	 */
+	public int getMovesToGo()
+	{
+		return movesToGo;
+	}
+	/**
+	 * Sets number of moves to the next time control.
+	 * @param movesToGo is number of moves, 0 if time is for the rest of the game.
+	 * @return this object.
+	 */
+	public SearchLimits setMovesToGo(final int movesToGo)
+	{
+		this.movesToGo = Math.max(0, movesToGo);
+		return this;
+	}
+}
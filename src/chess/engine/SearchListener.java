@@ -0,0 +1,17 @@
+package chess.engine;
+
+/**
+ * This is interface of the object which is notified about progress of
+ * the search, e.g. to print principal variation of every iteration.
+ *
+ * @author Piotr Poskart
+ *
+ */
+public interface SearchListener
+{
+	/**
+	 * This method is called after every completed iteration of the search.
+	 * @param result is result of the completed iteration.
+	 */
+	void iterationCompleted(SearchResult result);
+}
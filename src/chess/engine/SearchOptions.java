@@ -0,0 +1,105 @@
+package chess.engine;
+
+/**
+ * This is class which switches selective techniques of the search on and
+ * off. Selective search prunes or reduces moves which are unlikely to
+ * change the result, so it reaches greater depth in the same time:
+ * <ul>
+ * <li>null move pruning - side to move passes the turn and if reduced
+ * search still fails high, the node is cut off; it is not tried when side
+ * to move has only king and pawns, where passing may be the only good
+ * move (zugzwang),</li>
+ * <li>late move reductions - quiet moves ordered late are searched with
+ * depth reduced according to the precomputed table and searched again
+ * to the full depth only if they turn out to be better than expected,</li>
+ * <li>futility pruning - near the leaves quiet moves are skipped if static
+ * evaluation plus margin can not reach the lower bound.</li>
+ * </ul>
+ * By default all techniques are on; fullWidth() options turn them off,
+ * so both variants can be compared.
+ *
+ * @author Piotr Poskart
+ *
+ */
+public final class SearchOptions
+{
+	/** Flag of the null move pruning */
+	private boolean nullMovePruning;
+	/** Flag of the late move reductions */
+	private boolean lateMoveReductions;
+	/** Flag of the futility pruning */
+	private boolean futilityPruning;
+
+	/**
+	 * SearchOptions constructor. Creates options with all selective
+	 * techniques on.
+	 */
+	public SearchOptions()
+	{
+		nullMovePruning = true;
+		lateMoveReductions = true;
+		futilityPruning = true;
+	}
+	/**
+	 * This method creates options with all selective techniques off.
+	 * @return new search options.
+	 */
+	public static SearchOptions fullWidth()
+	{
+		return new SearchOptions().setNullMovePruning(false).setLateMoveReductions(false).setFutilityPruning(false);
+	}
+	/**
+	 * Checks if null move pruning is on.
+	 * @return true if null move pruning is used.
+	 */
+	public boolean isNullMovePruning()
+	{
+		return nullMovePruning;
+	}
+	/**
+	 * Switches null move pruning.
+	 * @param nullMovePruning is true if null move pruning is to be used.
+	 * @return this object.
+	 */
+	public SearchOptions setNullMovePruning(final boolean nullMovePruning)
+	{
+		this.nullMovePruning = nullMovePruning;
+		return this;
+	}
+	/**
+	 * Checks if late move reductions are on.
+	 * @return true if late move reductions are used.
+	 */
+	public boolean isLateMoveReductions()
+	{
+		return lateMoveReductions;
+	}
+	/**
+	 * Switches late move reductions.
+	 * @param lateMoveReductions is true if late move reductions are to be used.
+	 * @return this object.
+	 */
+	public SearchOptions setLateMoveReductions(final boolean lateMoveReductions)
+	{
+		this.lateMoveReductions = lateMoveReductions;
+		return this;
+	}
+	/**
+	 * Checks if futility pruning is on.
+	 * @return true if futility pruning is used.
+	 */
+	public boolean isFutilityPruning()
+	{
+		return futilityPruning;
+	}
+	/**
+	 * Switches futility pruning.
+	 * @param futilityPruning is true if futility pruning is to be used.
+	 * @return this object.
+	 */
+	public SearchOptions setFutilityPruning(final boolean futilityPruning)
+	{
+		this.futilityPruning = futilityPruning;
+		return this;
+	}
+}
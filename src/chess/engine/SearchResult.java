@@ -0,0 +1,145 @@
+package chess.engine;
+
+import chess.model.board.Board;
+import chess.model.game.Move;
+import chess.model.game.MoveCode;
+
+/**
+ * This is class which represents result of the completed search
+ * iteration: best move, its score, principal variation, depth and
+ * search statistics. Moves are kept as move codes (see MoveCode) and
+ * converted into Move objects of the given board on request.
+ *
+ * @author Piotr Poskart
+ *
+ */
+public final class SearchResult
+{
+	/** Code of the best move, MoveCode.NO_MOVE if there is no legal move */
+	private final int bestMove;
+	/** Score of the best move in centipawns from the side to move view */
+	private final int score;
+	/** Depth of the completed iteration */
+	private final int depth;
+	/** Number of visited nodes */
+	private final long nodes;
+	/** Search time in milliseconds */
+	private final long time;
+	/** Principal variation move codes */
+	private final int[] principalVariation;
+
+	/**
+	 * SearchResult constructor.
+	 * @param bestMove is code of the best move.
+	 * @param score is score of the best move.
+	 * @param depth is depth of the completed iteration.
+	 * @param nodes is number of visited nodes.
+	 * @param time is search time in milliseconds.
+	 * @param principalVariation are principal variation move codes.
+	 */
+	public SearchResult(final int bestMove, final int score, final int depth, final long nodes,
+			final long time, final int[] principalVariation)
+	{
+		this.bestMove = bestMove;
+		this.score = score;
+		this.depth = depth;
+		this.nodes = nodes;
+		this.time = time;
+		this.principalVariation = principalVariation;
+	}
+	/**
+	 * Returns code of the best move.
+	 * @return move code, MoveCode.NO_MOVE if there is no legal move.
+	 */
+	public int getBestMoveCode()
+	{
+		return bestMove;
+	}
+	/**
+	 * This method returns best move as Move object bound to the given
+	 * board, which can be played by Model.executeMove().
+	 * @param board is board in the searched position.
+	 * @return best move, EmptyMove if there is no legal move.
+	 */
+	public Move getBestMove(final Board board)
+	{
+		return MoveCode.toMove(bestMove, board);
+	}
+	/**
+	 * Returns score of the best move.
+	 * @return score in centipawns from the side to move view.
+	 */
+	public int getScore()
+	{
+		return score;
+	}
+	/**
+	 * Checks if score means forced mate.
+	 * @return true if either side mates, false otherwise.
+	 */
+	public boolean isMateScore()
+	{
+		return Math.abs(score) >= Search.MATE_BOUND;
+	}
+	/**
+	 * Returns number of moves to mate, negative if side to move is mated.
+	 * @return moves to mate, valid only if isMateScore() is true.
+	 */
+	public int getMateIn()
+	{
+		return score > 0 ? (Search.MATE - score + 1) / 2 : -(Search.MATE + score) / 2;
+	}
+	/**
+	 * Returns depth of the completed iteration.
+	 * @return depth in plies.
+	 */
+	public int getDepth()
+	{
+		return depth;
+	}
+	/**
+	 * Returns number of visited nodes.
+	 * @return number of nodes.
+	 */
+	public long getNodes()
+	{
+		return nodes;
+	}
+	/**
+	 * Returns search time.
+	 * @return time in milliseconds.
+	 */
+	public long getTime()
+	{
+		return time;
+	}
+	/**
+	 * Returns principal variation.
+	 * @return copy of the principal variation move codes.
+	 */
+	public int[] getPrincipalVariation()
+	{
+		return principalVariation.clone();
+	}
+	/**
+	 * This method returns principal variation in the long algebraic notation.
+	 * @return moves separated with spaces.
+	 */
+	public String getPrincipalVariationString()
+	{
+		final StringBuilder description = new StringBuilder();
+		for(int move : principalVariation)
+		{
+			if(description.length() > 0)
+				description.append(' ');
+			description.append(MoveCode.toString(move));
+		}
+		return description.toString();
+	}
+	@Override
+	public String toString()
+	{
+		return "depth " + depth + " score " + score + " nodes " + nodes + " time " + time
+				+ " pv " + getPrincipalVariationString();
+	}
+}
@@ -0,0 +1,130 @@
+package chess.engine;
+
+import chess.model.board.AttackTables;
+import chess.model.board.PieceSquareTables;
+import chess.model.board.Position;
+import chess.model.game.MoveCode;
+
+/**
+ * This is class which computes static exchange evaluation (SEE) of the
+ * move: material balance of the sequence of captures on the target field
+ * of the move, in which both sides always recapture with the least
+ * valuable attacker and may stop capturing when it does not pay off.
+ * Attackers are taken from the attack tables of the position, and slider
+ * attackers standing behind the pieces which already captured (x-rays)
+ * are discovered by recomputing slider attacks with the updated occupancy.
+ * Moves are not made, so evaluation is cheap enough to be done for every
+ * capture in the quiescence search. Pins are ignored.
+ *
+ * @author Piotr Poskart
+ *
+ */
+public final class StaticExchange
+{
+	/** Value of the king, greater than all other pieces, because king can not be captured */
+	private static final int KING_VALUE = 20000;
+	/** Maximal length of the capture sequence, size of the gains buffer */
+	public static final int MAX_EXCHANGE = 32;
+
+	private StaticExchange() {}
+
+	/**
+	 * This method computes material balance of the exchange started by
+	 * the move.
+	 * @param position is position in which move is to be played.
+	 * @param move is move code.
+	 * @return material gain of the side to move in centipawns, negative
+	 * if the move loses material.
+	 */
+	public static int evaluate(final Position position, final int move)
+	{
+		return evaluate(position, move, new int[MAX_EXCHANGE]);
+	}
+	/**
+	 * This method computes material balance of the exchange started by
+	 * the move using the given buffer, so the search can evaluate captures
+	 * without creating arrays in every node.
+	 * @param position is position in which move is to be played.
+	 * @param move is move code.
+	 * @param gain is buffer for the gains of the capture sequence, at
+	 * least MAX_EXCHANGE long.
+	 * @return material gain of the side to move in centipawns, negative
+	 * if the move loses material.
+	 */
+	public static int evaluate(final Position position, final int move, final int[] gain)
+	{
+		final int from = MoveCode.getSource(move);
+		final int to = MoveCode.getTarget(move);
+		int side = Position.allianceOf(position.getPieceCode(from));
+		gain[0] = MoveCode.isCapture(move) ? value(MoveCode.getCapturedType(move)) : 0;
+		int attackerValue = value(MoveCode.getMovedType(move));
+		if(MoveCode.isPromotion(move))
+		{
+			gain[0] += value(Position.QUEEN) - value(Position.PAWN);
+			attackerValue = value(Position.QUEEN);
+		}
+
+		long occupancy = position.getOccupancy() ^ (1L << from);
+		long attackers = (position.getAttackersOf(to, Position.WHITE, occupancy)
+				| position.getAttackersOf(to, Position.BLACK, occupancy)) & occupancy;
+		final long diagonalSliders = position.getPieces(Position.WHITE, Position.BISHOP)
+				| position.getPieces(Position.BLACK, Position.BISHOP)
+				| position.getPieces(Position.WHITE, Position.QUEEN) | position.getPieces(Position.BLACK, Position.QUEEN);
+		final long straightSliders = position.getPieces(Position.WHITE, Position.ROOK)
+				| position.getPieces(Position.BLACK, Position.ROOK)
+				| position.getPieces(Position.WHITE, Position.QUEEN) | position.getPieces(Position.BLACK, Position.QUEEN);
+
+		int depth = 0;
+		while(depth < MAX_EXCHANGE - 1)
+		{
+			side ^= 1;
+			final long sideAttackers = attackers & position.getAllianceOccupancy(side);
+			if(sideAttackers == 0)
+				break;
+			int attackerType = Position.PAWN;
+			long attacker = 0L;
+			for(; attackerType <= Position.KING; attackerType++)
+			{
+				attacker = sideAttackers & position.getPieces(side, attackerType);
+				if(attacker != 0)
+					break;
+			}
+			depth++;
+			gain[depth] = attackerValue - gain[depth - 1];
+			if(Math.max(-gain[depth - 1], gain[depth]) < 0)
+				break;
+			attackerValue = value(attackerType);
+			occupancy ^= Long.lowestOneBit(attacker);
+			attackers |= (AttackTables.bishopAttacks(to, occupancy) & diagonalSliders)
+					| (AttackTables.rookAttacks(to, occupancy) & straightSliders);
+			attackers &= occupancy;
+		}
+		while(depth > 0)
+		{
+			gain[depth - 1] = -Math.max(-gain[depth - 1], gain[depth]);
+			depth--;
+		}
+		return gain[0];
+	}
+	/**
+	 * This method returns value of the piece type in the exchange. Values
+	 * are the same as used by the evaluation (see PieceSquareTables).
+	 * @param type is type index of the piece.
+	 * @return value in centipawns.
+	 */
+	private static int value(final int type)
+	{
+		return type == Position.KING ? KING_VALUE : PieceSquareTables.pieceValue(type);
+	}
+	/**
+	 * This method checks if the move does not lose material in the exchange.
+	 * @param position is position in which move is to be played.
+	 * @param move is move code.
+	 * @param threshold is the lowest acceptable material gain.
+	 * @return true if exchange gains at least threshold, false otherwise.
+	 */
+	public static boolean isAtLeast(final Position position, final int move, final int threshold)
+	{
+		return evaluate(position, move) >= threshold;
+	}
+}
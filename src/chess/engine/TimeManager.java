@@ -0,0 +1,100 @@
+package chess.engine;
+
+/**
+ * This is class which decides how long the search may take. It computes
+ * two limits measured from the search start:
+ * <ul>
+ * <li>soft limit - after it no new iteration of the iterative deepening
+ * is started, because it would hardly finish,</li>
+ * <li>hard limit - when it is reached, running iteration is aborted and
+ * the result of the last completed one is returned.</li>
+ * </ul>
+ * With fixed move time both limits are equal to it. With the game clock
+ * the remaining time of the side to move is divided among the moves to the
+ * next time control (or MOVES_TO_GO_DEFAULT moves, if the time is for the
+ * rest of the game) and most of the increment is added; hard limit lets
+ * the search overrun this allocation a few times, but never uses more
+ * than the remaining time minus the overhead reserved for communication.
+ * Without move time and clock there are no time limits.
+ *
+ * @author Piotr Poskart
+ *
+ */
+public final class TimeManager
+{
+	/** Limit meaning that there is no time limit */
+	public static final long NO_LIMIT = Long.MAX_VALUE;
+	/** Expected number of moves to the end of the game */
+	private static final int MOVES_TO_GO_DEFAULT = 30;
+	/** Time reserved for communication and move transfer in milliseconds */
+	private static final long MOVE_OVERHEAD = 30;
+	/** How many times the search may overrun its time allocation */
+	private static final int HARD_LIMIT_FACTOR = 4;
+
+	/** Time after which no new iteration starts, in milliseconds */
+	private final long softLimit;
+	/** Time after which the search stops, in milliseconds */
+	private final long hardLimit;
+
+	/**
+	 * TimeManager constructor.
+	 * @param limits are limits of the search.
+	 * @param sideToMove is alliance index of the side to move.
+	 */
+	public TimeManager(final SearchLimits limits, final int sideToMove)
+	{
+		final long time = limits.getTime(sideToMove);
+		if(limits.getMoveTime() > 0)
+		{
+			softLimit = limits.getMoveTime();
+			hardLimit = limits.getMoveTime();
+		}
+		else if(time > 0)
+		{
+			final int movesToGo = limits.getMovesToGo() > 0 ? limits.getMovesToGo() : MOVES_TO_GO_DEFAULT;
+			final long available = Math.max(1, time - MOVE_OVERHEAD);
+			final long allocation = time / movesToGo + limits.getIncrement(sideToMove) * 3 / 4;
+			hardLimit = Math.min(available, HARD_LIMIT_FACTOR * allocation);
+			softLimit = Math.min(hardLimit, allocation);
+		}
+		else
+		{
+			softLimit = NO_LIMIT;
+			hardLimit = NO_LIMIT;
+		}
+	}
+	/**
+	 * Returns time after which no new iteration should be started.
+	 * @return time in milliseconds from the search start, NO_LIMIT if not limited.
+	 */
+	public long getSoftLimit()
+	{
+		return softLimit;
+	}
+	/**
+	 * Returns time after which the search has to be stopped.
+	 * @return time in milliseconds from the search start, NO_LIMIT if not limited.
+	 */
+	public long getHardLimit()
+	{
+		return hardLimit;
+	}
+	/**
+	 * This method checks if the next iteration may be started.
+	 * @param elapsed is time from the search start in milliseconds.
+	 * @return true if soft limit is not reached.
+	 */
+	public boolean canStartIteration(final long elapsed)
+	{
+		return elapsed < softLimit;
+	}
+	/**
+	 * This method checks if the search has to be stopped.
+	 * @param elapsed is time from the search start in milliseconds.
+	 * @return true if hard limit is reached.
+	 */
+	public boolean isHardLimitReached(final long elapsed)
+	{
+		return elapsed >= hardLimit;
+	}
+}
@@ -0,0 +1,228 @@
+package chess.engine;
+
+import java.util.Arrays;
+
+import chess.model.game.MoveCode;
+
+/**
+ * This is class which represents transposition table: fixed size hash
+ * table of the search results, indexed by the Zobrist hash of the
+ * position (see Board.getHashKey()). Table is flat long array, so it does
+ * not create any objects during the search, and it is shared by many
+ * search threads without any locks.
+ * <p>
+ * Every entry takes two longs: packed data and (key XOR data). Entry is
+ * valid only if XOR of both longs gives the probed key, so entry which is
+ * being written by other thread at the same time (key and data from
+ * different writes) is simply rejected as a miss. Entries are grouped in
+ * buckets of two: the first one is replaced only by the deeper search
+ * result (or by the result of the newer search), the second one is
+ * always replaced. Position found in the bucket is updated in its own
+ * entry (or moved to the first one), so it is never stored twice.
+ * Packed data layout:
+ * <pre>
+ *  0 - 15  score (signed)
+ * 16 - 23  depth
+ * 24 - 25  bound type
+ * 26 - 31  search generation
+ * 32 - 55  best move code (see MoveCode)
+ * </pre>
+ *
+ * @author Piotr Poskart
+ *
+ */
+public final class TranspositionTable
+{
+	/** Score is lower bound of the position value (fail high) */
+	public static final int LOWER_BOUND = 1;
+	/** Score is upper bound of the position value (fail low) */
+	public static final int UPPER_BOUND = 2;
+	/** Score is exact position value */
+	public static final int EXACT = 3;
+	/** Data value returned when position is not found */
+	public static final long NO_ENTRY = 0L;
+	/** Default size of the table in megabytes */
+	public static final int DEFAULT_SIZE_MB = 16;
+	/** Number of longs in one bucket (two entries, two longs each) */
+	private static final int BUCKET_LONGS = 4;
+	/** Number of bytes in one bucket */
+	private static final int BUCKET_BYTES = BUCKET_LONGS * Long.BYTES;
+	/** Mask of the generation value */
+	private static final int GENERATION_MASK = 0x3F;
+
+	/** Array of the entries, two longs per entry */
+	private final long[] table;
+	/** Mask of the bucket index */
+	private final int bucketMask;
+	/** Generation of the current search, used to replace stale entries */
+	private volatile int generation;
+
+	/**
+	 * TranspositionTable constructor. Size of the table is rounded down to
+	 * the power of two number of buckets.
+	 * @param sizeMB is size of the table in megabytes, at least 1.
+	 * @throws IllegalArgumentException if size is not positive.
+	 */
+	public TranspositionTable(final int sizeMB)
+	{
+		if(sizeMB < 1)
+			throw new IllegalArgumentException("Transposition table size must be positive: " + sizeMB);
+		final long buckets = Long.highestOneBit(((long) sizeMB << 20) / BUCKET_BYTES);
+		final long maxBuckets = Integer.highestOneBit(Integer.MAX_VALUE / BUCKET_LONGS);
+		bucketMask = (int) Math.min(buckets, maxBuckets) - 1;
+		table = new long[(bucketMask + 1) * BUCKET_LONGS];
+		generation = 0;
+	}
+	/**
+	 * This method removes all entries from the table.
+	 */
+	public void clear()
+	{
+		Arrays.fill(table, 0L);
+		generation = 0;
+	}
+	/**
+	 * This method marks the beginning of the new search, so entries of
+	 * the previous searches are replaced first.
+	 */
+	public void newSearch()
+	{
+		generation = (generation + 1) & GENERATION_MASK;
+	}
+	/**
+	 * This method looks for the position in the table.
+	 * @param key is Zobrist hash of the position.
+	 * @return packed entry data, NO_ENTRY if position is not found.
+	 */
+	public long probe(final long key)
+	{
+		final int index = bucketIndex(key);
+		for(int i = index; i < index + BUCKET_LONGS; i += 2)
+		{
+			final long data = table[i + 1];
+			if((table[i] ^ data) == key && data != NO_ENTRY)
+				return data;
+		}
+		return NO_ENTRY;
+	}
+	/**
+	 * This method stores search result of the position in the table.
+	 * @param key is Zobrist hash of the position.
+	 * @param move is best move code, MoveCode.NO_MOVE if unknown.
+	 * @param score is score of the position, fits into 16 bits.
+	 * @param depth is depth of the search, 0 - 255.
+	 * @param bound is bound type of the score (LOWER_BOUND, UPPER_BOUND or EXACT).
+	 */
+	public void store(final long key, final int move, final int score, final int depth, final int bound)
+	{
+		final int index = bucketIndex(key);
+		final long firstData = table[index + 1];
+		final long secondData = table[index + 3];
+		final boolean inFirst = (table[index] ^ firstData) == key && firstData != NO_ENTRY;
+		final boolean inSecond = !inFirst && (table[index + 2] ^ secondData) == key && secondData != NO_ENTRY;
+		int target = index + 2;
+		if(inFirst || firstData == NO_ENTRY || depth >= getDepth(firstData)
+				|| getGeneration(firstData) != generation)
+			target = index;
+		int bestMove = move;
+		if(bestMove == MoveCode.NO_MOVE)
+		{
+			// keep previously found move of the same position
+			bestMove = getMove(inFirst ? firstData : inSecond ? secondData : NO_ENTRY);
+		}
+		if(inSecond && target == index)
+		{
+			// position moves to the first entry, so it is never kept twice
+			table[index + 2] = 0L;
+			table[index + 3] = NO_ENTRY;
+		}
+		final long data = pack(bestMove, score, depth, bound, generation);
+		table[target] = key ^ data;
+		table[target + 1] = data;
+	}
+	/**
+	 * This method returns permille of the used entries, estimated from
+	 * the first thousand buckets.
+	 * @return number of used entries per thousand.
+	 */
+	public int getUsage()
+	{
+		final int buckets = Math.min(1000, bucketMask + 1);
+		int used = 0;
+		for(int i = 0; i < buckets * BUCKET_LONGS; i += 2)
+		{
+			if(table[i + 1] != NO_ENTRY && getGeneration(table[i + 1]) == generation)
+				used++;
+		}
+		return used * 1000 / (2 * buckets);
+	}
+	/**
+	 * Returns best move code of the entry.
+	 * @param data is packed entry data.
+	 * @return move code, MoveCode.NO_MOVE if entry has no move.
+	 */
+	public static int getMove(final long data)
+	{
+		return (int) ((data >>> 32) & 0xFFFFFF);
+	}
+	/**
+	 * Returns score of the entry.
+	 * @param data is packed entry data.
+	 * @return score of the position.
+	 */
+	public static int getScore(final long data)
+	{
+		return (short) data;
+	}
+	/**
+	 * Returns search depth of the entry.
+	 * @param data is packed entry data.
+	 * @return depth of the search.
+	 */
+	public static int getDepth(final long data)
+	{
+		return (int) ((data >>> 16) & 0xFF);
+	}
+	/**
+	 * Returns bound type of the entry score.
+	 * @param data is packed entry data.
+	 * @return LOWER_BOUND, UPPER_BOUND or EXACT.
+	 */
+	public static int getBound(final long data)
+	{
+		return (int) ((data >>> 24) & 0x3);
+	}
+
+	/**
+	 * This method returns search generation of the entry.
+	 * @param data is packed entry data.
+	 * @return generation value.
+	 */
+	private static int getGeneration(final long data)
+	{
+		return (int) ((data >>> 26) & GENERATION_MASK);
+	}
+	/**
+	 * This method packs entry data into long value.
+	 * @param move is best move code.
+	 * @param score is score of the position.
+	 * @param depth is depth of the search.
+	 * @param bound is bound type of the score.
+	 * @param generation is search generation.
+	 * @return packed entry data.
+	 */
+	private static long pack(final int move, final int score, final int depth, final int bound, final int generation)
+	{
+		return (score & 0xFFFFL) | ((long) (depth & 0xFF) << 16) | ((long) bound << 24)
+				| ((long) generation << 26) | ((long) (move & 0xFFFFFF) << 32);
+	}
+	/**
+	 * This method returns index of the first long of the position bucket.
+	 * @param key is Zobrist hash of the position.
+	 * @return index in the table array.
+	 */
+	private int bucketIndex(final long key)
+	{
+		return ((int) (key >>> 32) & bucketMask) * BUCKET_LONGS;
+	}
+}
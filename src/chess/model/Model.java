@@ -88,6 +88,7 @@ public final class Model extends Observable
 	 */
 	public void executeMove(Move move)
 	{
+		gameBoard.updateMoveCounters(move);
 		move.execute();
 		final Piece capturedPiece = move.getAttackedPiece();
 		if(capturedPiece != null)
@@ -134,9 +135,8 @@ public final class Model extends Observable
 	 */
 	private void checkGameOverConditions(final King kingInCheck, final Player activePlayer)
 	{
-		List<Move> legalMoves = (List<Move>)gameBoard.getAllLegalMovesOfAlliance(
+		final List<Move> legalMoves = gameBoard.generateLegalMoves(
 				activePlayer.getAlliance().getContraryAlliance());
-		legalMoves = (List<Move>)gameBoard.removeAllCheckMakingMoves(legalMoves);
 		if(legalMoves.isEmpty())
 		{
 			gameOver = true;
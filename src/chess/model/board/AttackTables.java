@@ -0,0 +1,316 @@
+package chess.model.board;
+
+/**
+ * This is class which contains precomputed attack tables of all the
+ * pieces. Knight, king and pawn attacks are simple per field masks.
+ * Rook and bishop (and so queen) attacks are looked up in the magic
+ * bitboard tables: relevant blockers of the field are multiplied by
+ * the magic number of the field and the highest bits of the product
+ * are the index of the attack mask in the table. Magic numbers were
+ * found offline with random search and tables are filled with them
+ * when this class is loaded.
+ *
+ * @author Piotr Poskart
+ *
+ */
+public final class AttackTables
+{
+	/** Mask of the first (A) file */
+	public static final long FILE_A = 0x0101010101010101L;
+	/** Mask of the last (H) file */
+	public static final long FILE_H = FILE_A << 7;
+	/** Mask of the first rank */
+	public static final long RANK_1 = 0xFFL;
+	/** Mask of the last rank */
+	public static final long RANK_8 = RANK_1 << 56;
+
+	/** Knight attacks of every field */
+	private static final long[] KNIGHT_ATTACKS = new long[64];
+	/** King attacks of every field */
+	private static final long[] KING_ATTACKS = new long[64];
+	/** Pawn attacks of every field, indexed by alliance and field */
+	private static final long[][] PAWN_ATTACKS = new long[2][64];
+	/** Fields strictly between two fields on common line, 0 if not aligned */
+	private static final long[][] BETWEEN = new long[64][64];
+	/** Whole line through two fields from edge to edge, 0 if not aligned */
+	private static final long[][] LINE = new long[64][64];
+
+	/** Relevant blockers masks of the rook for every field */
+	private static final long[] ROOK_MASKS = new long[64];
+	/** Magic multipliers of the rook for every field */
+	private static final long[] ROOK_MAGICS = {
+			0x008000908064C000L, 0x0040200040001000L, 0x0180100080A0010AL, 0x8880041000800800L,
+			0x1200100201200804L, 0x0200020004011008L, 0x2180010000800600L, 0x0200005088210204L,
+			0x0400800040008021L, 0x0400400020005000L, 0x8240801000200080L, 0x8611001004200900L,
+			0x008180800C001800L, 0x0100800200800400L, 0x0A02000102000408L, 0x8020802300104280L,
+			0x0080004000402000L, 0xE010104000402000L, 0x0800808010002000L, 0xA280210008100100L,
+			0x0001818014000800L, 0xA002010100080400L, 0x0080240001020870L, 0x0001020004048845L,
+			0x0081826280004004L, 0x2020810900284000L, 0x0200100080802000L, 0x0200080080100080L,
+			0x8083080100100500L, 0x4406000901000400L, 0x0005020080800100L, 0x0090204200008114L,
+			0x0010400094800420L, 0x0900804000802002L, 0x0201001841002000L, 0x4100080080801000L,
+			0x4540040080800800L, 0x0002001004040020L, 0x0281195814001002L, 0x1240800040800100L,
+			0x0880042000524004L, 0x02C080410206002CL, 0x0801200241050010L, 0x8400080010008080L,
+			0x0008000500090010L, 0x0082009084020008L, 0x4012000108020004L, 0x9000104D08860004L,
+			0x2004204114800100L, 0x0148802112400300L, 0x0202842000100880L, 0x001B080080900080L,
+			0x001A002008100600L, 0x0004008004020080L, 0x5181000600040300L, 0x0000044401128A00L,
+			0x8044110480002441L, 0x2008110084402202L, 0x90806005090010C1L, 0x000420310A004A42L,
+			0x0023001004020801L, 0x0882001008040102L, 0x000230088118020CL, 0x0000019025040042L};
+	/** Index shifts of the rook for every field */
+	private static final int[] ROOK_SHIFTS = new int[64];
+	/** Offsets of the rook field tables in ROOK_ATTACKS */
+	private static final int[] ROOK_OFFSETS = new int[64];
+	/** Rook attacks of all fields and blockers configurations */
+	private static final long[] ROOK_ATTACKS;
+
+	/** Relevant blockers masks of the bishop for every field */
+	private static final long[] BISHOP_MASKS = new long[64];
+	/** Magic multipliers of the bishop for every field */
+	private static final long[] BISHOP_MAGICS = {
+			0x0045010808008680L, 0x2002080204004898L, 0x0210009A10400006L, 0x0824050200810200L,
+			0x0006061105004090L, 0x00010108C0000000L, 0x0814040282104004L, 0x0012012201106800L,
+			0x10823014100C1040L, 0x0080C2088802808CL, 0x0281108410404000L, 0x0101212041826200L,
+			0x0020141028221058L, 0x2201020202200202L, 0x000082A801482000L, 0x0000008401411044L,
+			0x0007103014300404L, 0x0002091110010100L, 0x42140012040C0808L, 0x0800808802004020L,
+			0x90C4004210140000L, 0x0800200900A01000L, 0x00D0400201108810L, 0x80820183814412A0L,
+			0x00A01008202202B4L, 0x01C2021A09500402L, 0x0084440208042400L, 0x800400400C090100L,
+			0xBA10040010802100L, 0xD182009006005000L, 0x5011021001009004L, 0x0020420200510400L,
+			0x0292104000468800L, 0x00043009091C0500L, 0x0280441000020025L, 0x0042820080080080L,
+			0x0440101010010040L, 0x1000900100808080L, 0x0108108120089800L, 0x0044010200012682L,
+			0xC002500420900400L, 0x0040482210710800L, 0x0002060024000200L, 0x0281020A44000800L,
+			0xA0021200A4000200L, 0x0001301000840840L, 0x2868500108444220L, 0x0004111041000200L,
+			0x8044020842080200L, 0x0000220104210200L, 0x0000021201044000L, 0x0000280884040028L,
+			0x4012114010858003L, 0x0000081004082B88L, 0x3892700508208002L, 0x00220A041B060400L,
+			0x0812020284014881L, 0x010434A282103100L, 0x0490400824020800L, 0x4A20002C00208800L,
+			0x000000A011020200L, 0x4002940A02482202L, 0x5100100202140406L, 0x02102000840540C1L};
+	/** Index shifts of the bishop for every field */
+	private static final int[] BISHOP_SHIFTS = new int[64];
+	/** Offsets of the bishop field tables in BISHOP_ATTACKS */
+	private static final int[] BISHOP_OFFSETS = new int[64];
+	/** Bishop attacks of all fields and blockers configurations */
+	private static final long[] BISHOP_ATTACKS;
+
+	/** Rook ray directions as {file step, rank step} */
+	private static final int[][] ROOK_DIRECTIONS = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+	/** Bishop ray directions as {file step, rank step} */
+	private static final int[][] BISHOP_DIRECTIONS = {{1, 1}, {1, -1}, {-1, 1}, {-1, -1}};
+	/** Knight jumps as {file step, rank step} */
+	private static final int[][] KNIGHT_JUMPS = {
+			{1, 2}, {2, 1}, {2, -1}, {1, -2}, {-1, -2}, {-2, -1}, {-2, 1}, {-1, 2}};
+
+	static
+	{
+		for(int square = 0; square < 64; square++)
+		{
+			KNIGHT_ATTACKS[square] = stepAttacks(square, KNIGHT_JUMPS);
+			KING_ATTACKS[square] = stepAttacks(square, ROOK_DIRECTIONS) | stepAttacks(square, BISHOP_DIRECTIONS);
+			PAWN_ATTACKS[Position.WHITE][square] = stepAttacks(square, new int[][] {{-1, 1}, {1, 1}});
+			PAWN_ATTACKS[Position.BLACK][square] = stepAttacks(square, new int[][] {{-1, -1}, {1, -1}});
+		}
+		ROOK_ATTACKS = initSliderTables(ROOK_DIRECTIONS, ROOK_MASKS, ROOK_MAGICS, ROOK_SHIFTS, ROOK_OFFSETS);
+		BISHOP_ATTACKS = initSliderTables(BISHOP_DIRECTIONS, BISHOP_MASKS, BISHOP_MAGICS, BISHOP_SHIFTS, BISHOP_OFFSETS);
+		for(int from = 0; from < 64; from++)
+		{
+			for(int to = 0; to < 64; to++)
+			{
+				if(from == to)
+					continue;
+				final long fromMask = 1L << from;
+				final long toMask = 1L << to;
+				if((rookAttacks(from, 0L) & toMask) != 0)
+				{
+					BETWEEN[from][to] = rookAttacks(from, toMask) & rookAttacks(to, fromMask);
+					LINE[from][to] = (rookAttacks(from, 0L) & rookAttacks(to, 0L)) | fromMask | toMask;
+				}
+				else if((bishopAttacks(from, 0L) & toMask) != 0)
+				{
+					BETWEEN[from][to] = bishopAttacks(from, toMask) & bishopAttacks(to, fromMask);
+					LINE[from][to] = (bishopAttacks(from, 0L) & bishopAttacks(to, 0L)) | fromMask | toMask;
+				}
+			}
+		}
+	}
+
+	private AttackTables() {}
+
+	/**
+	 * This method returns knight attacks from given field.
+	 * @param square is position of the knight.
+	 * @return mask of attacked fields.
+	 */
+	public static long knightAttacks(final int square)
+	{
+		return KNIGHT_ATTACKS[square];
+	}
+	/**
+	 * This method returns king attacks from given field.
+	 * @param square is position of the king.
+	 * @return mask of attacked fields.
+	 */
+	public static long kingAttacks(final int square)
+	{
+		return KING_ATTACKS[square];
+	}
+	/**
+	 * This method returns pawn attacks (diagonal captures) from given field.
+	 * @param alliance is alliance index of the pawn.
+	 * @param square is position of the pawn.
+	 * @return mask of attacked fields.
+	 */
+	public static long pawnAttacks(final int alliance, final int square)
+	{
+		return PAWN_ATTACKS[alliance][square];
+	}
+	/**
+	 * This method returns rook attacks from given field for given occupancy.
+	 * Attack rays end at the first occupied field, including it.
+	 * @param square is position of the rook.
+	 * @param occupancy is mask of all occupied fields.
+	 * @return mask of attacked fields.
+	 */
+	public static long rookAttacks(final int square, final long occupancy)
+	{
+		return ROOK_ATTACKS[ROOK_OFFSETS[square]
+				+ (int) (((occupancy & ROOK_MASKS[square]) * ROOK_MAGICS[square]) >>> ROOK_SHIFTS[square])];
+	}
+	/**
+	 * This method returns bishop attacks from given field for given occupancy.
+	 * Attack rays end at the first occupied field, including it.
+	 * @param square is position of the bishop.
+	 * @param occupancy is mask of all occupied fields.
+	 * @return mask of attacked fields.
+	 */
+	public static long bishopAttacks(final int square, final long occupancy)
+	{
+		return BISHOP_ATTACKS[BISHOP_OFFSETS[square]
+				+ (int) (((occupancy & BISHOP_MASKS[square]) * BISHOP_MAGICS[square]) >>> BISHOP_SHIFTS[square])];
+	}
+	/**
+	 * This method returns queen attacks from given field for given occupancy.
+	 * @param square is position of the queen.
+	 * @param occupancy is mask of all occupied fields.
+	 * @return mask of attacked fields.
+	 */
+	public static long queenAttacks(final int square, final long occupancy)
+	{
+		return rookAttacks(square, occupancy) | bishopAttacks(square, occupancy);
+	}
+
+	/**
+	 * This method returns fields strictly between two given fields, if
+	 * they lie on the common rank, file or diagonal.
+	 * @param from is position of the first field.
+	 * @param to is position of the second field.
+	 * @return mask of the fields between, 0 if fields are not aligned.
+	 */
+	public static long between(final int from, final int to)
+	{
+		return BETWEEN[from][to];
+	}
+	/**
+	 * This method returns whole line (rank, file or diagonal) going through
+	 * two given fields.
+	 * @param from is position of the first field.
+	 * @param to is position of the second field.
+	 * @return mask of the line fields, 0 if fields are not aligned.
+	 */
+	public static long line(final int from, final int to)
+	{
+		return LINE[from][to];
+	}
+
+	/**
+	 * This method computes attacks of the piece which makes single steps
+	 * (knight, king, pawn) from given field.
+	 * @param square is position of the piece.
+	 * @param steps are steps of the piece as {file step, rank step}.
+	 * @return mask of attacked fields.
+	 */
+	private static long stepAttacks(final int square, final int[][] steps)
+	{
+		long attacks = 0L;
+		for(int[] step : steps)
+		{
+			final int file = square % 8 + step[0];
+			final int rank = square / 8 + step[1];
+			if(file >= 0 && file < 8 && rank >= 0 && rank < 8)
+				attacks |= 1L << (rank * 8 + file);
+		}
+		return attacks;
+	}
+	/**
+	 * This method computes slider attacks ray by ray. It is used only
+	 * to fill the magic tables.
+	 * @param square is position of the slider.
+	 * @param occupancy is mask of all occupied fields.
+	 * @param directions are ray directions as {file step, rank step}.
+	 * @param relevantOnly if true, rays do not include the last field
+	 * before the board edge (relevant blockers mask).
+	 * @return mask of attacked fields.
+	 */
+	private static long slidingAttacks(final int square, final long occupancy,
+			final int[][] directions, final boolean relevantOnly)
+	{
+		long attacks = 0L;
+		for(int[] direction : directions)
+		{
+			int file = square % 8 + direction[0];
+			int rank = square / 8 + direction[1];
+			while(file >= 0 && file < 8 && rank >= 0 && rank < 8)
+			{
+				if(relevantOnly)
+				{
+					final int nextFile = file + direction[0];
+					final int nextRank = rank + direction[1];
+					if(nextFile < 0 || nextFile > 7 || nextRank < 0 || nextRank > 7)
+						break;
+				}
+				final long squareMask = 1L << (rank * 8 + file);
+				attacks |= squareMask;
+				if((occupancy & squareMask) != 0)
+					break;
+				file += direction[0];
+				rank += direction[1];
+			}
+		}
+		return attacks;
+	}
+	/**
+	 * This method fills magic tables of one slider type. For every field
+	 * it enumerates all subsets of the relevant blockers mask and stores
+	 * their attacks under the index given by the magic number of the field.
+	 * @param directions are ray directions of the slider.
+	 * @param masks is output array of relevant blockers masks.
+	 * @param magics are magic numbers of all fields.
+	 * @param shifts is output array of index shifts.
+	 * @param offsets is output array of field table offsets.
+	 * @return attacks table of all fields.
+	 */
+	private static long[] initSliderTables(final int[][] directions, final long[] masks,
+			final long[] magics, final int[] shifts, final int[] offsets)
+	{
+		int tableSize = 0;
+		for(int square = 0; square < 64; square++)
+		{
+			masks[square] = slidingAttacks(square, 0L, directions, true);
+			shifts[square] = 64 - Long.bitCount(masks[square]);
+			offsets[square] = tableSize;
+			tableSize += 1 << Long.bitCount(masks[square]);
+		}
+		final long[] table = new long[tableSize];
+		for(int square = 0; square < 64; square++)
+		{
+			long blockers = 0L;
+			do
+			{
+				final long attacks = slidingAttacks(square, blockers, directions, false);
+				final int index = offsets[square] + (int) ((blockers * magics[square]) >>> shifts[square]);
+				if(table[index] != 0L && table[index] != attacks)
+					throw new IllegalStateException("Invalid magic number of the field " + square);
+				table[index] = attacks;
+				blockers = (blockers - masks[square]) & masks[square];
+			}
+			while(blockers != 0L);
+		}
+		return table;
+	}
+}
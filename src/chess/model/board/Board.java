@@ -1,27 +1,33 @@
 package chess.model.board;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Iterator;
 import java.util.List;
 
 import chess.model.game.Move;
+import chess.model.game.MoveCode;
 import chess.model.common.Alliance;
 import chess.model.pieces.*;
+import chess.model.pieces.Piece.PieceType;
 
 /**
  * This is class which represents board properties and actions.
- * This class object consists of fields array, collections of the
- * pieces, reference to kings and active alliance. It implements 
- * method which perform pieces movements and calculates board state.
+ * This class object consists of fields array, bitboard position,
+ * collections of the pieces, reference to kings and active alliance.
+ * It implements method which perform pieces movements and calculates
+ * board state. Occupation of the fields is kept in the Position object,
+ * so all field queries are constant time bit operations.
  * 
  * @author Piotr Poskart
  *
  */
 public class Board 
 {
-	/** List of fields on the game board */
-	private List<Field> fieldArray;
+	/** Array of pieces on the game board fields, null if field is empty */
+	private final Piece[] fieldArray;
+	/** Bitboard representation of the pieces placement */
+	private final Position position;
 	/** Collection of white game pieces */
 	private Collection<Piece> whitePieces;
 	/** Collection of black game pieces */
@@ -34,6 +40,12 @@ public class Board
 	private Alliance activeAlliance;
 	/** Number of board fields */
 	public final static int BOARD_FIELDS_NUMBER = 64;
+	/** Initial position of the game */
+	private static final Position START_POSITION = Fen.toPosition(Fen.START_POSITION);
+	/** Piece types indexed by Position type index */
+	private static final PieceType[] PIECE_TYPES = PieceType.values();
+	/** Alliances indexed by Position alliance index */
+	private static final Alliance[] ALLIANCES = Alliance.values();
 	
 	/**
 	 * Board constructor. Initializes all board fields with proper pieces,
@@ -41,8 +53,69 @@ public class Board
 	 */
 	public Board()
 	{
+		fieldArray = new Piece[BOARD_FIELDS_NUMBER];
+		position = new Position();
 		resetBoard();
 	}
+	/**
+	 * Board copy constructor. Creates independent copy of the given board:
+	 * bitboard position is copied and every piece is replaced by its copy,
+	 * so moves executed on the copy do not change the original board.
+	 * 
+	 * @param other is board to be copied.
+	 */
+	public Board(final Board other)
+	{
+		fieldArray = new Piece[BOARD_FIELDS_NUMBER];
+		position = other.position.copy();
+		long occupiedFields = other.position.getOccupancy();
+		while(occupiedFields != 0)
+		{
+			final int fieldPosition = Long.numberOfTrailingZeros(occupiedFields);
+			fieldArray[fieldPosition] = other.fieldArray[fieldPosition].copy();
+			occupiedFields &= occupiedFields - 1;
+		}
+		wKing = (King) fieldArray[other.wKing.getPosition()];
+		bKing = (King) fieldArray[other.bKing.getPosition()];
+		whitePieces = findAllPiecesByColor(Alliance.WHITE);
+		blackPieces = findAllPiecesByColor(Alliance.BLACK);
+		activeAlliance = other.activeAlliance;
+	}
+	/**
+	 * Board constructor. Sets up the board with pieces placement, side to
+	 * move, castling rights and move counters of the given position (e.g.
+	 * read from FEN).
+	 * 
+	 * @param setup is position to be set up, it is not modified.
+	 */
+	public Board(final Position setup)
+	{
+		fieldArray = new Piece[BOARD_FIELDS_NUMBER];
+		position = new Position();
+		setUp(setup);
+	}
+	/**
+	 * This method checks if rook standing on the field keeps castling right.
+	 * @param fieldPosition is position of the rook.
+	 * @param castlingRights is mask of Position castling right flags.
+	 * @return true if rook may still castle.
+	 */
+	private static boolean isCastlingRook(final int fieldPosition, final int castlingRights)
+	{
+		switch(fieldPosition)
+		{
+			case 0:
+				return (castlingRights & Position.WHITE_QUEEN_SIDE) != 0;
+			case 7:
+				return (castlingRights & Position.WHITE_KING_SIDE) != 0;
+			case 56:
+				return (castlingRights & Position.BLACK_QUEEN_SIDE) != 0;
+			case 63:
+				return (castlingRights & Position.BLACK_KING_SIDE) != 0;
+			default:
+				return false;
+		}
+	}
 	/**
 	 * This method resets all model parameters to its default values, 
 	 * as at the beginning of the game.
@@ -50,9 +123,9 @@ public class Board
 	public void resetBoard()
 	{
 		initialize();
-		whitePieces = findAllPiecesByColor(fieldArray, Alliance.WHITE);
-		blackPieces = findAllPiecesByColor(fieldArray, Alliance.BLACK);
-		activeAlliance = Alliance.WHITE;
+		whitePieces = findAllPiecesByColor(Alliance.WHITE);
+		blackPieces = findAllPiecesByColor(Alliance.BLACK);
+		updateActiveAlliance(Alliance.WHITE);
 	}
 	
 	/**
@@ -62,60 +135,71 @@ public class Board
 	 */
 	public void initialize()
 	{
-		fieldArray = new ArrayList<Field>();
-		fieldArray.add(0, Field.createField(0, new Rook(0, Alliance.WHITE)));
-		fieldArray.add(1, Field.createField(1, new Knight(1, Alliance.WHITE)));
-		fieldArray.add(2, Field.createField(2, new Bishop(2, Alliance.WHITE)));
-		fieldArray.add(3, Field.createField(3, new Queen(3, Alliance.WHITE)));
-		wKing = new King(4, Alliance.WHITE);
-		fieldArray.add(4, Field.createField(4, wKing));
-		fieldArray.add(5, Field.createField(5, new Bishop(5, Alliance.WHITE)));
-		fieldArray.add(6, Field.createField(6, new Knight(6, Alliance.WHITE)));
-		fieldArray.add(7, Field.createField(7, new Rook(7, Alliance.WHITE)));
-		fieldArray.add(8, Field.createField(8, new Pawn(8, Alliance.WHITE)));
-		fieldArray.add(9, Field.createField(9, new Pawn(9, Alliance.WHITE)));
-		fieldArray.add(10, Field.createField(10, new Pawn(10, Alliance.WHITE)));
-		fieldArray.add(11, Field.createField(11, new Pawn(11, Alliance.WHITE)));
-		fieldArray.add(12, Field.createField(12, new Pawn(12, Alliance.WHITE)));
-		fieldArray.add(13, Field.createField(13, new Pawn(13, Alliance.WHITE)));
-		fieldArray.add(14, Field.createField(14, new Pawn(14, Alliance.WHITE)));
-		fieldArray.add(15, Field.createField(15, new Pawn(15, Alliance.WHITE)));
-		
-		for(int i = 16; i < 48; i++)
-			fieldArray.add(i, Field.createField(i, null));
-
-		fieldArray.add(48, Field.createField(48, new Pawn(48, Alliance.BLACK)));
-		fieldArray.add(49, Field.createField(49, new Pawn(49, Alliance.BLACK)));
-		fieldArray.add(50, Field.createField(50, new Pawn(50, Alliance.BLACK)));
-		fieldArray.add(51, Field.createField(51, new Pawn(51, Alliance.BLACK)));
-		fieldArray.add(52, Field.createField(52, new Pawn(52, Alliance.BLACK)));
-		fieldArray.add(53, Field.createField(53, new Pawn(53, Alliance.BLACK)));
-		fieldArray.add(54, Field.createField(54, new Pawn(54, Alliance.BLACK)));
-		fieldArray.add(55, Field.createField(55, new Pawn(55, Alliance.BLACK)));
-		fieldArray.add(56, Field.createField(56, new Rook(56, Alliance.BLACK)));
-		fieldArray.add(57, Field.createField(57, new Knight(57, Alliance.BLACK)));
-		fieldArray.add(58, Field.createField(58, new Bishop(58, Alliance.BLACK)));
-		fieldArray.add(59, Field.createField(59, new Queen(59, Alliance.BLACK)));
-		bKing = new King(60, Alliance.BLACK);
-		fieldArray.add(60, Field.createField(60, bKing));
-		fieldArray.add(61, Field.createField(61, new Bishop(61, Alliance.BLACK)));
-		fieldArray.add(62, Field.createField(62, new Knight(62, Alliance.BLACK)));
-		fieldArray.add(63, Field.createField(63, new Rook(63, Alliance.BLACK)));
+		setUp(START_POSITION);
+	}
+	/**
+	 * This method sets up the board with the given position. Pieces are
+	 * created only for the occupied fields, visited in the occupancy mask
+	 * order. Pieces which could not have moved yet (pawns on their initial
+	 * rank, kings and rooks with castling right and pieces on their
+	 * initial fields) get cleared first move flag, all others are marked
+	 * as already moved.
+	 * @param setup is position to be set up, it is not modified.
+	 */
+	private void setUp(final Position setup)
+	{
+		Arrays.fill(fieldArray, null);
+		position.clear();
+		final int castlingRights = setup.getCastlingRights();
+		long occupiedFields = setup.getOccupancy();
+		while(occupiedFields != 0)
+		{
+			final int fieldPosition = Long.numberOfTrailingZeros(occupiedFields);
+			occupiedFields &= occupiedFields - 1;
+			final int pieceCode = setup.getPieceCode(fieldPosition);
+			final int type = Position.typeOf(pieceCode);
+			final int alliance = Position.allianceOf(pieceCode);
+			final Piece piece = Piece.createPiece(PIECE_TYPES[type], fieldPosition, ALLIANCES[alliance]);
+			final boolean notMoved;
+			if(type == Position.KING)
+				notMoved = (castlingRights & (alliance == Position.WHITE ? Position.WHITE_KING_SIDE
+						| Position.WHITE_QUEEN_SIDE : Position.BLACK_KING_SIDE | Position.BLACK_QUEEN_SIDE)) != 0;
+			else if(type == Position.ROOK)
+				notMoved = isCastlingRook(fieldPosition, castlingRights);
+			else
+				notMoved = START_POSITION.getPieceCode(fieldPosition) == pieceCode;
+			piece.setFirstMoveFlag(!notMoved);
+			putPieceOnField(piece, fieldPosition);
+			if(type == Position.KING)
+			{
+				if(alliance == Position.WHITE)
+					wKing = (King) piece;
+				else
+					bKing = (King) piece;
+			}
+		}
+		position.setEnPassantFile(setup.getEnPassantFile());
+		position.setHalfmoveClock(setup.getHalfmoveClock());
+		position.setFullmoveNumber(setup.getFullmoveNumber());
+		whitePieces = findAllPiecesByColor(Alliance.WHITE);
+		blackPieces = findAllPiecesByColor(Alliance.BLACK);
+		updateActiveAlliance(ALLIANCES[setup.getSideToMove()]);
 	}
 	/**
 	 * This method finds all pieces of the given color on the current board.
+	 * It visits only fields set in the alliance occupancy mask.
 	 * 
-	 * @param fieldArray is an array of board fields.
 	 * @param alliance is alliance of the pieces to be found.
 	 * @return collection of pieces with given alliance
 	 */
-	private Collection<Piece> findAllPiecesByColor(final Collection<Field> fieldArray, final Alliance alliance)
+	private Collection<Piece> findAllPiecesByColor(final Alliance alliance)
 	{
-		final List<Piece> singleColorPieces = new ArrayList<>();
-		for(final Field field : fieldArray)
+		long allianceFields = position.getAllianceOccupancy(alliance.ordinal());
+		final List<Piece> singleColorPieces = new ArrayList<>(Long.bitCount(allianceFields));
+		while(allianceFields != 0)
 		{
-			if(field.isFieldOccupied() && field.getPiece().getAlliance() == alliance)
-				singleColorPieces.add(field.getPiece());
+			singleColorPieces.add(fieldArray[Long.numberOfTrailingZeros(allianceFields)]);
+			allianceFields &= allianceFields - 1;
 		}
 		return singleColorPieces;
 	}
@@ -181,47 +265,31 @@ public class Board
 	}
 	
 	/**
-	 * Removes all moves which can result in check of its own king
+	 * This method returns all fully legal moves of the given alliance.
+	 * Moves are generated directly from checks and pins of the alliance
+	 * king, so there is no need to filter them afterwards.
 	 * 
-	 * @param possibleMoves list of all possible moves for all pieces
-	 * @return modified list of possible moves without that moves which can result in self-check
+	 * @param alliance is an alliance of which moves have to be calculated
+	 * @return list of legal moves for the given alliance
 	 */
-	public final Collection<Move> removeAllCheckMakingMoves(final Collection<Move> possibleMoves)
+	public final List<Move> generateLegalMoves(final Alliance alliance)
 	{
-		for(Iterator<Move> it = possibleMoves.iterator(); it.hasNext();)
-		{
-			if(isCheckAfterMove(it.next()))
-				it.remove();
-		}
-		return possibleMoves;
+		return MoveGenerator.generateLegalMoves(this, alliance);
 	}
 	
 	/**
-	 * Checks if move can be executed without making own king checked.
-	 * This method simulates move execution and check if there is check
-	 * possible in result.
+	 * Removes all moves which can result in check of its own king.
+	 * Moves are not executed, they are tested against pieces giving
+	 * check and pieces pinned to the king.
 	 * 
-	 * @param move move to be checked whether or not causes check
-	 * @return true if this move results in self-check, false otherwise
+	 * @param possibleMoves list of all possible moves for all pieces
+	 * @return modified list of possible moves without that moves which can result in self-check
 	 */
-	private final boolean isCheckAfterMove(final Move move)
+	public final Collection<Move> removeAllCheckMakingMoves(final Collection<Move> possibleMoves)
 	{
-		final Piece isOwnKingCheckedAfterMove;
-		final boolean wasPieceAlreadyMoved = move.getMovedPiece().wasAlreadyMoved();
-		move.execute();
-		/* Recompute remaining enemy pieces */
-		if(move.isAttackMove())
-			recomputePieces(move.getAttackedPiece().getAlliance());
-		isOwnKingCheckedAfterMove = isKingInCheck(move.getMovedPiece().getAlliance());
-		move.undo();
-		/* Recompute remaining enemy pieces */
-		if(move.isAttackMove())
-			recomputePieces(move.getAttackedPiece().getAlliance());
-		move.getMovedPiece().setFirstMoveFlag(wasPieceAlreadyMoved);
-		if(isOwnKingCheckedAfterMove == null)
-			return false;
-		return true;
+		return MoveGenerator.removeIllegalMoves(this, possibleMoves);
 	}
+	
 	/**
 	 * This method finds (updates) all pieces of the given alliance
 	 *  on the current board.
@@ -231,9 +299,9 @@ public class Board
 	public void recomputePieces(Alliance alliance)
 	{
 		if(alliance == Alliance.BLACK)
-			this.blackPieces = findAllPiecesByColor(fieldArray, alliance);
+			this.blackPieces = findAllPiecesByColor(alliance);
 		else
-			this.whitePieces = findAllPiecesByColor(fieldArray, alliance);
+			this.whitePieces = findAllPiecesByColor(alliance);
 	}
 	/**
 	 * This method put given pieces on the pointed game board field.
@@ -244,8 +312,8 @@ public class Board
 	 */
 	public void putPieceOnField(final Piece piece, final int targetPosition)
 	{
-		fieldArray.remove(targetPosition);
-		fieldArray.add(targetPosition, Field.createField(targetPosition, piece));
+		fieldArray[targetPosition] = piece;
+		position.putPiece(Position.pieceCode(piece.getAlliance(), piece.getPieceType()), targetPosition);
 		piece.updatePosition(targetPosition);
 	}
 	/**
@@ -257,8 +325,8 @@ public class Board
 	 */
 	public final Piece removePieceFromField(final Piece piece, final int position)
 	{
-		fieldArray.remove(position);
-		fieldArray.add(position, Field.createField(position, null));
+		fieldArray[position] = null;
+		this.position.removePiece(position);
 		return piece;
 	}
 	/**
@@ -268,7 +336,7 @@ public class Board
 	 */
 	public final boolean isBoardFieldOccupied(int position)
 	{
-		return fieldArray.get(position).isFieldOccupied();
+		return this.position.isOccupied(position);
 	}
 	/**
 	 * This method checks whether given field position is valid
@@ -315,9 +383,30 @@ public class Board
 	public final Piece getPieceOnField(int absolutePosition)
 	{
 		if(isFieldValid(absolutePosition))
-			return fieldArray.get(absolutePosition).getPiece();
+			return fieldArray[absolutePosition];
 		return null;
 	}
+	/**
+	 * This method returns bitboard representation of the current pieces
+	 * placement. Returned object is live view of this board and should
+	 * not be modified directly.
+	 * @return bitboard position of this board.
+	 */
+	public final Position getPosition()
+	{
+		return position;
+	}
+	/**
+	 * This method returns independent copy of the bitboard position with
+	 * current side to move and castling rights. Such copy can play move
+	 * codes on its own, without changing this board.
+	 * @return copy of the current position.
+	 */
+	public final Position copyPosition()
+	{
+		position.setCastlingRights(getCastlingRights());
+		return position.copy();
+	}
 	/**
 	 * This method returns collection of the black pieces on the board.
 	 * @return collection of the currently existing black pieces.
@@ -343,13 +432,114 @@ public class Board
 		return activeAlliance;
 	}
 	/**
-	 * This method assign new alliance to the active alliance attribute
+	 * This method assign new alliance to the active alliance attribute.
+	 * It is called after every move, so castling rights of the bitboard
+	 * position (and its hash) are brought up to date here as well.
 	 * 
 	 * @param alliance is new active alliance
 	 */
 	public void updateActiveAlliance(final Alliance alliance)
 	{
 		this.activeAlliance = alliance;
+		position.setSideToMove(alliance.ordinal());
+		position.setCastlingRights(getCastlingRights());
+	}
+	/**
+	 * This method updates halfmove clock, fullmove number and file of the
+	 * pawn which has just moved two fields of the position before the move
+	 * is executed on this board. Moves executed by Move.execute() change
+	 * only the pieces, so callers playing the game call it for every move
+	 * to keep the counters valid for FEN and opening book keys.
+	 * 
+	 * @param move is move to be executed.
+	 */
+	public void updateMoveCounters(final Move move)
+	{
+		if(move.getAttackedPiece() != null || move.getMovedPiece().getPieceType() == PieceType.PAWN)
+			position.setHalfmoveClock(0);
+		else
+			position.setHalfmoveClock(position.getHalfmoveClock() + 1);
+		if(move.getMovedPiece().getAlliance() == Alliance.BLACK)
+			position.setFullmoveNumber(position.getFullmoveNumber() + 1);
+		if(move.getMovedPiece().getPieceType() == PieceType.PAWN
+				&& Math.abs(move.getTargetPosition() - move.getSourcePosition()) == 16)
+			position.setEnPassantFile(move.getSourcePosition() % 8);
+		else
+			position.setEnPassantFile(Position.NO_EN_PASSANT);
+	}
+	/**
+	 * This method plays the legal move described in the long algebraic
+	 * notation (e.g. e2e4, e7e8q) on this board: updates move counters,
+	 * executes the move, updates pieces collections and passes the turn.
+	 * Board is not changed if there is no such legal move.
+	 * 
+	 * @param description is move description.
+	 * @return true if move was played, false if it is not legal.
+	 */
+	public boolean playMove(final String description)
+	{
+		final int moveCode = MoveCode.parse(description, position);
+		if(moveCode == MoveCode.NO_MOVE)
+			return false;
+		final Move move = MoveCode.toMove(moveCode, this);
+		final Alliance alliance = move.getMovedPiece().getAlliance();
+		updateMoveCounters(move);
+		move.execute();
+		if(move.getAttackedPiece() != null)
+			recomputePieces(alliance.getContraryAlliance());
+		if(move instanceof Move.PawnPromotionMove)
+			recomputePieces(alliance);
+		updateActiveAlliance(alliance.getContraryAlliance());
+		return true;
+	}
+	/**
+	 * This method returns Zobrist hash of the current position: pieces,
+	 * active alliance and castling rights. It is updated
+	 * incrementally when pieces are put on or removed from the fields and
+	 * when active alliance changes.
+	 * @return 64-bit position hash.
+	 */
+	public final long getHashKey()
+	{
+		return position.getHashKey();
+	}
+	/**
+	 * This method returns castling rights of both alliances. Castling
+	 * right exists while own king and rook on their initial fields have
+	 * not moved yet (piece promoted on the rook field does not count).
+	 * @return mask of Position castling right flags.
+	 */
+	public final int getCastlingRights()
+	{
+		int castlingRights = 0;
+		if(isPieceNotMovedYet(4, Position.WHITE, Position.KING))
+		{
+			if(isPieceNotMovedYet(7, Position.WHITE, Position.ROOK))
+				castlingRights |= Position.WHITE_KING_SIDE;
+			if(isPieceNotMovedYet(0, Position.WHITE, Position.ROOK))
+				castlingRights |= Position.WHITE_QUEEN_SIDE;
+		}
+		if(isPieceNotMovedYet(60, Position.BLACK, Position.KING))
+		{
+			if(isPieceNotMovedYet(63, Position.BLACK, Position.ROOK))
+				castlingRights |= Position.BLACK_KING_SIDE;
+			if(isPieceNotMovedYet(56, Position.BLACK, Position.ROOK))
+				castlingRights |= Position.BLACK_QUEEN_SIDE;
+		}
+		return castlingRights;
+	}
+	/**
+	 * This method checks if there is a given piece on given field which
+	 * has not been moved yet.
+	 * @param absolutePosition position of the field.
+	 * @param alliance is alliance index of the piece.
+	 * @param type is type index of the piece.
+	 * @return true if there is not moved piece on the field, false otherwise.
+	 */
+	private boolean isPieceNotMovedYet(final int absolutePosition, final int alliance, final int type)
+	{
+		return position.getPieceCode(absolutePosition) == Position.pieceCode(alliance, type)
+				&& !fieldArray[absolutePosition].wasAlreadyMoved();
 	}
 	/**
 	 * This method checks if king is in check
@@ -365,6 +555,8 @@ public class Board
 	}
 	/**
 	 * This method check whether given field is under attack or not.
+	 * It asks bitboard position which enemy pieces could reach the field,
+	 * so no attack moves are generated.
 	 * 
 	 * @param absolutePosition is position to be checked.
 	 * @param defenderAlliance is an alliance of the piece which is testing this 
@@ -373,24 +565,23 @@ public class Board
 	 */
 	public final boolean isFieldUnderAttack(final int absolutePosition, Alliance defenderAlliance)
 	{
-		List<Move> possibleMovesList = new ArrayList<>();
-		/* Check all legal attack moves of pieces */
-		possibleMovesList = (ArrayList<Move>)getAllLegalAttackMovesOfAlliance(
-				defenderAlliance.getContraryAlliance());
-		for(Move move : possibleMovesList)
-		{
-			if(move.getTargetPosition() == absolutePosition)
-			{
-				if(move.getMovedPiece().getPieceType() == Piece.PieceType.PAWN)
-				{
-					if(move.isAttackMove())
-						return true;
-				}
-				else
-					return true;
-			}
-		}
-		return false;
+		return position.isSquareAttacked(absolutePosition, defenderAlliance.getContraryAlliance().ordinal());
+	}
+	/**
+	 * This method check whether given field would be under attack if the
+	 * piece of the defender alliance stood there instead of at its current
+	 * position. Piece is not moved on the board, it is only excluded from
+	 * the occupancy used for attack rays.
+	 * 
+	 * @param absolutePosition is position to be checked.
+	 * @param movingPiece is piece of the defender alliance leaving its field.
+	 * @return true if position would be under attack of enemy alliance, false otherwise.
+	 */
+	public final boolean isFieldUnderAttackWithout(final int absolutePosition, final Piece movingPiece)
+	{
+		return position.isSquareAttacked(absolutePosition,
+				movingPiece.getAlliance().getContraryAlliance().ordinal(),
+				position.getOccupancy() & ~(1L << movingPiece.getPosition()));
 	}
 	/**
 	 * This method prints board state on the standard output.
@@ -400,29 +591,23 @@ public class Board
 	@Override
 	public String toString()
 	{
-		String boardFootprint = new String("");
+		final StringBuilder boardFootprint = new StringBuilder(2 * BOARD_FIELDS_NUMBER);
 		Piece tmpPiece;
-		int linearIndex;
 		for(int i = 56; i >= 0; i -= 8)				/* Iterate through rows */
 		{
 			for(int j = 0; j < 8; j++)				/* Iterate through columns */
 			{
-				linearIndex = i + j;
-				if(fieldArray.get(linearIndex).isFieldOccupied())
-				{
-					tmpPiece = fieldArray.get(linearIndex).getPiece();
-					if(tmpPiece.getAlliance() == Alliance.BLACK)
-						boardFootprint += fieldArray.get(linearIndex).toString().toLowerCase() + " ";
-					else
-						boardFootprint += fieldArray.get(linearIndex).toString().toUpperCase() + " ";
-				}
+				tmpPiece = fieldArray[i + j];
+				if(tmpPiece == null)
+					boardFootprint.append('-');
+				else if(tmpPiece.getAlliance() == Alliance.BLACK)
+					boardFootprint.append(tmpPiece.toString().toLowerCase());
 				else
-					boardFootprint += fieldArray.get(linearIndex).toString()+ " ";
-				
-				if(j == 7)
-					boardFootprint += "\n";
+					boardFootprint.append(tmpPiece.toString().toUpperCase());
+				boardFootprint.append(' ');
 			}
+			boardFootprint.append('\n');
 		}
-		return boardFootprint;
+		return boardFootprint.toString();
 	}
 }
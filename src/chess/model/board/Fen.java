@@ -0,0 +1,255 @@
+package chess.model.board;
+
+import java.util.Arrays;
+
+/**
+ * This is class which reads and writes positions in the Forsyth-Edwards
+ * Notation (FEN), e.g. initial position:
+ * <pre>
+ * rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1
+ * </pre>
+ * FEN consists of piece placement, side to move, castling rights, en
+ * passant field, halfmove clock and fullmove number; the last four fields
+ * are optional when reading. The game has no en passant captures, so en
+ * passant field (it has to be on the third or sixth rank behind the pawn of
+ * the side which has just moved) only keeps file of that pawn for writing
+ * and for opening book keys, it is not a part of the position hash and the
+ * next move clears it. Positions are read directly into the
+ * bitboard Position, boards are set up from it with Board(Position),
+ * which creates piece objects only for occupied fields. Writing appends
+ * characters to one presized builder, so it does not create intermediate
+ * strings.
+ *
+ * @author Piotr Poskart
+ *
+ */
+public final class Fen
+{
+	/** FEN of the initial position */
+	public static final String START_POSITION = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+	/** Letters of the black pieces indexed by Position type index */
+	private static final String PIECE_LETTERS = "pbnrqk";
+	/** Letters of the pieces indexed by Position piece code */
+	private static final char[] PIECE_SYMBOLS = "PBNRQKpbnrqk".toCharArray();
+	/** Length of the longest FEN */
+	private static final int MAX_LENGTH = 96;
+
+	private Fen() {}
+
+	/**
+	 * This method reads position from FEN.
+	 * @param fen is position in FEN.
+	 * @return new bitboard position.
+	 * @throws IllegalArgumentException if FEN is malformed.
+	 */
+	public static Position toPosition(final String fen)
+	{
+		final String[] fields = splitFields(fen);
+		if(fields.length < 2)
+			throw new IllegalArgumentException("Incomplete FEN: " + fen);
+		final Position position = new Position();
+		int rank = 7;
+		int file = 0;
+		for(int i = 0; i < fields[0].length(); i++)
+		{
+			final char symbol = fields[0].charAt(i);
+			if(symbol == '/')
+			{
+				if(file != 8 || rank == 0)
+					throw new IllegalArgumentException("Wrong rank in FEN: " + fen);
+				rank--;
+				file = 0;
+			}
+			else if(symbol >= '1' && symbol <= '8')
+				file += symbol - '0';
+			else
+			{
+				final int type = PIECE_LETTERS.indexOf(Character.toLowerCase(symbol));
+				if(type < 0 || file > 7)
+					throw new IllegalArgumentException("Wrong piece placement in FEN: " + fen);
+				final int alliance = Character.isUpperCase(symbol) ? Position.WHITE : Position.BLACK;
+				position.putPiece(Position.pieceCode(alliance, type), 8 * rank + file);
+				file++;
+			}
+		}
+		if(rank != 0 || file != 8)
+			throw new IllegalArgumentException("Wrong piece placement in FEN: " + fen);
+		if(Long.bitCount(position.getPieces(Position.WHITE, Position.KING)) != 1
+				|| Long.bitCount(position.getPieces(Position.BLACK, Position.KING)) != 1)
+			throw new IllegalArgumentException("Every side needs one king: " + fen);
+
+		if(fields[1].equals("w"))
+			position.setSideToMove(Position.WHITE);
+		else if(fields[1].equals("b"))
+			position.setSideToMove(Position.BLACK);
+		else
+			throw new IllegalArgumentException("Wrong side to move in FEN: " + fen);
+		if(fields.length > 2)
+			position.setCastlingRights(parseCastlingRights(fields[2], position));
+		if(fields.length > 3 && !fields[3].equals("-"))
+		{
+			final char enPassantRank = position.getSideToMove() == Position.WHITE ? '6' : '3';
+			if(fields[3].length() != 2 || fields[3].charAt(0) < 'a' || fields[3].charAt(0) > 'h'
+					|| fields[3].charAt(1) != enPassantRank)
+				throw new IllegalArgumentException("Wrong en passant field in FEN: " + fen);
+			position.setEnPassantFile(fields[3].charAt(0) - 'a');
+		}
+		try
+		{
+			if(fields.length > 4)
+				position.setHalfmoveClock(Integer.parseInt(fields[4]));
+			if(fields.length > 5)
+				position.setFullmoveNumber(Math.max(1, Integer.parseInt(fields[5])));
+		}
+		catch(NumberFormatException e)
+		{
+			throw new IllegalArgumentException("Wrong move counters in FEN: " + fen, e);
+		}
+		return position;
+	}
+	/**
+	 * This method reads position from FEN and sets up new board with it.
+	 * @param fen is position in FEN.
+	 * @return new board.
+	 * @throws IllegalArgumentException if FEN is malformed.
+	 */
+	public static Board toBoard(final String fen)
+	{
+		return new Board(toPosition(fen));
+	}
+	/**
+	 * This method writes position in FEN.
+	 * @param position is position to be written.
+	 * @return position in FEN.
+	 */
+	public static String toFen(final Position position)
+	{
+		final StringBuilder fen = new StringBuilder(MAX_LENGTH);
+		for(int rank = 7; rank >= 0; rank--)
+		{
+			int emptyFields = 0;
+			for(int square = 8 * rank; square < 8 * rank + 8; square++)
+			{
+				final int pieceCode = position.getPieceCode(square);
+				if(pieceCode == Position.NO_PIECE)
+					emptyFields++;
+				else
+				{
+					if(emptyFields > 0)
+						fen.append((char) ('0' + emptyFields));
+					emptyFields = 0;
+					fen.append(PIECE_SYMBOLS[pieceCode]);
+				}
+			}
+			if(emptyFields > 0)
+				fen.append((char) ('0' + emptyFields));
+			if(rank > 0)
+				fen.append('/');
+		}
+		fen.append(position.getSideToMove() == Position.WHITE ? " w " : " b ");
+		final int castlingRights = position.getCastlingRights();
+		if(castlingRights == 0)
+			fen.append('-');
+		if((castlingRights & Position.WHITE_KING_SIDE) != 0)
+			fen.append('K');
+		if((castlingRights & Position.WHITE_QUEEN_SIDE) != 0)
+			fen.append('Q');
+		if((castlingRights & Position.BLACK_KING_SIDE) != 0)
+			fen.append('k');
+		if((castlingRights & Position.BLACK_QUEEN_SIDE) != 0)
+			fen.append('q');
+		fen.append(' ');
+		if(position.getEnPassantFile() == Position.NO_EN_PASSANT)
+			fen.append('-');
+		else
+			fen.append((char) ('a' + position.getEnPassantFile()))
+					.append(position.getSideToMove() == Position.WHITE ? '6' : '3');
+		fen.append(' ').append(position.getHalfmoveClock());
+		fen.append(' ').append(position.getFullmoveNumber());
+		return fen.toString();
+	}
+	/**
+	 * This method writes current position of the board in FEN.
+	 * @param board is board to be written.
+	 * @return position in FEN.
+	 */
+	public static String toFen(final Board board)
+	{
+		return toFen(board.getPosition());
+	}
+
+	/**
+	 * This method splits FEN into fields separated with whitespace. It
+	 * does not use regular expressions, which would dominate the cost of
+	 * reading short FEN strings.
+	 * @param fen is position in FEN.
+	 * @return non empty fields.
+	 */
+	private static String[] splitFields(final String fen)
+	{
+		final String[] fields = new String[6];
+		int count = 0;
+		int index = 0;
+		final int length = fen.length();
+		while(count < fields.length)
+		{
+			while(index < length && Character.isWhitespace(fen.charAt(index)))
+				index++;
+			if(index == length)
+				break;
+			final int start = index;
+			while(index < length && !Character.isWhitespace(fen.charAt(index)))
+				index++;
+			fields[count++] = fen.substring(start, index);
+		}
+		return count == fields.length ? fields : Arrays.copyOf(fields, count);
+	}
+	/**
+	 * This method reads castling rights. Rights without king and rook on
+	 * their initial fields are ignored.
+	 * @param castling is castling field of FEN, e.g. KQkq or -.
+	 * @param position is position with pieces already placed.
+	 * @return mask of Position castling right flags.
+	 */
+	private static int parseCastlingRights(final String castling, final Position position)
+	{
+		int castlingRights = 0;
+		if(castling.equals("-"))
+			return castlingRights;
+		for(int i = 0; i < castling.length(); i++)
+		{
+			switch(castling.charAt(i))
+			{
+				case 'K':
+					castlingRights |= hasRight(position, Position.WHITE, 4, 7) ? Position.WHITE_KING_SIDE : 0;
+					break;
+				case 'Q':
+					castlingRights |= hasRight(position, Position.WHITE, 4, 0) ? Position.WHITE_QUEEN_SIDE : 0;
+					break;
+				case 'k':
+					castlingRights |= hasRight(position, Position.BLACK, 60, 63) ? Position.BLACK_KING_SIDE : 0;
+					break;
+				case 'q':
+					castlingRights |= hasRight(position, Position.BLACK, 60, 56) ? Position.BLACK_QUEEN_SIDE : 0;
+					break;
+				default:
+					throw new IllegalArgumentException("Wrong castling rights in FEN: " + castling);
+			}
+		}
+		return castlingRights;
+	}
+	/**
+	 * This method checks if king and rook stand on their initial fields.
+	 * @param position is examined position.
+	 * @param alliance is alliance index of the pieces.
+	 * @param kingSquare is initial field of the king.
+	 * @param rookSquare is initial field of the rook.
+	 * @return true if castling right is possible.
+	 */
+	private static boolean hasRight(final Position position, final int alliance, final int kingSquare,
+			final int rookSquare)
+	{
+		return position.getPieceCode(kingSquare) == Position.pieceCode(alliance, Position.KING)
+				&& position.getPieceCode(rookSquare) == Position.pieceCode(alliance, Position.ROOK);
+	}
+}
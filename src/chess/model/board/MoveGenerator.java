@@ -0,0 +1,515 @@
+package chess.model.board;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+
+import chess.model.common.Alliance;
+import chess.model.game.Move;
+import chess.model.game.MoveCode;
+import chess.model.game.MoveList;
+
+/**
+ * This is class which generates fully legal moves of the given alliance
+ * without executing them. For the examined alliance it computes once
+ * the pieces giving check to its king, the check evasion mask (fields
+ * on which check can be blocked or the checking piece captured) and the
+ * pieces pinned to the king. Every move of other piece than king must
+ * end inside the check evasion mask and pinned piece can move only along
+ * the pin line, king can step only on the fields not attacked when the
+ * king itself is taken out of the attack rays.
+ * Moves follow the rules of the Pawn, King and other pieces classes:
+ * only single pawn push to the last rank is a promotion and castling
+ * is possible while king and rook have not moved yet.
+ * Core generator works on the bitboard Position and writes move codes
+ * (see MoveCode) into reusable MoveList, Board level methods convert
+ * them into Move objects.
+ *
+ * @author Piotr Poskart
+ *
+ */
+public final class MoveGenerator
+{
+	/** Position of the white king at the beginning of the game */
+	private static final int WHITE_KING_START = 4;
+	/** Position of the black king at the beginning of the game */
+	private static final int BLACK_KING_START = 60;
+	/** Generation of all legal moves */
+	private static final int ALL_MOVES = 0;
+	/** Generation of captures and promotions only */
+	private static final int CAPTURES = 1;
+	/** Generation of moves which are neither captures nor promotions */
+	private static final int QUIETS = 2;
+	/** Fields on which pawns promote */
+	private static final long PROMOTION_RANKS = AttackTables.RANK_1 | AttackTables.RANK_8;
+
+	private MoveGenerator() {}
+
+	/**
+	 * This method generates all legal moves of the given alliance.
+	 * @param board is reference to the board object.
+	 * @param alliance is alliance which moves have to be generated.
+	 * @return list of the legal moves.
+	 */
+	public static List<Move> generateLegalMoves(final Board board, final Alliance alliance)
+	{
+		final Position position = board.getPosition();
+		position.setCastlingRights(board.getCastlingRights());
+		final MoveList moveCodes = new MoveList();
+		generateLegalMoves(position, alliance.ordinal(), moveCodes);
+		final List<Move> legalMoves = new ArrayList<>(moveCodes.size());
+		for(int i = 0; i < moveCodes.size(); i++)
+			legalMoves.add(MoveCode.toMove(moveCodes.get(i), board));
+		return legalMoves;
+	}
+	/**
+	 * This method generates all legal moves of the side to move.
+	 * @param position is bitboard position.
+	 * @param moves is list to which move codes are added, it is not cleared.
+	 */
+	public static void generateLegalMoves(final Position position, final MoveList moves)
+	{
+		generateLegalMoves(position, position.getSideToMove(), moves);
+	}
+	/**
+	 * This method generates all legal moves of the given alliance.
+	 * Castling rights are taken from the position.
+	 * @param position is bitboard position.
+	 * @param us is alliance index which moves have to be generated.
+	 * @param moves is list to which move codes are added, it is not cleared.
+	 */
+	public static void generateLegalMoves(final Position position, final int us, final MoveList moves)
+	{
+		generateMoves(position, us, ALL_MOVES, moves);
+	}
+	/**
+	 * This method generates legal captures and pawn promotions of the side
+	 * to move, the moves which change material balance. Quiescence search
+	 * resolves only such moves.
+	 * @param position is bitboard position.
+	 * @param moves is list to which move codes are added, it is not cleared.
+	 */
+	public static void generateLegalCaptures(final Position position, final MoveList moves)
+	{
+		generateMoves(position, position.getSideToMove(), CAPTURES, moves);
+	}
+	/**
+	 * This method generates legal moves of the side to move which neither
+	 * capture nor promote, castling included. Together with
+	 * generateLegalCaptures() it gives all legal moves, so the search can
+	 * generate quiet moves only when captures did not cause cutoff.
+	 * @param position is bitboard position.
+	 * @param moves is list to which move codes are added, it is not cleared.
+	 */
+	public static void generateLegalQuiets(final Position position, final MoveList moves)
+	{
+		generateMoves(position, position.getSideToMove(), QUIETS, moves);
+	}
+	/**
+	 * This method checks if the move code is legal move of the side to move.
+	 * It is used to verify moves which do not come from the generator of this
+	 * position, e.g. best moves read from the transposition table.
+	 * @param position is bitboard position.
+	 * @param move is move code.
+	 * @return true if move is legal and its code is the same as generated
+	 * one, false otherwise.
+	 */
+	public static boolean isLegal(final Position position, final int move)
+	{
+		if(move == MoveCode.NO_MOVE)
+			return false;
+		final int us = position.getSideToMove();
+		final int from = MoveCode.getSource(move);
+		final int to = MoveCode.getTarget(move);
+		final int type = MoveCode.getMovedType(move);
+		if(position.getPieceCode(from) != Position.pieceCode(us, type))
+			return false;
+		if(MoveCode.isCastling(move))
+		{
+			final int kingStart = us == Position.WHITE ? WHITE_KING_START : BLACK_KING_START;
+			final boolean kingSide = to > from;
+			return move == MoveCode.encode(kingStart, kingSide ? kingStart + 2 : kingStart - 2, Position.KING, 0, 0,
+					MoveCode.CASTLING) && !isInCheck(position, us) && canCastle(position, us, kingSide);
+		}
+
+		final CheckInfo checkInfo = position.getCheckInfo().update(position, us);
+		final long ownPieces = position.getAllianceOccupancy(us);
+		final long toMask = 1L << to;
+		if(type == Position.KING)
+		{
+			if((AttackTables.kingAttacks(from) & ~ownPieces & toMask) == 0 || !checkInfo.isKingTargetSafe(to))
+				return false;
+		}
+		else
+		{
+			if(Long.bitCount(checkInfo.checkers) > 1)
+				return false;
+			final long targets = pieceTargets(us, from, type, position.getOccupancy(),
+					position.getAllianceOccupancy(us ^ 1));
+			if((targets & ~ownPieces & checkInfo.allowedTargets(from) & toMask) == 0)
+				return false;
+		}
+		return encodeMove(position, from, to, type) == move;
+	}
+	/**
+	 * This method checks if the side to move has at least one legal move.
+	 * @param position is bitboard position.
+	 * @return true if there is legal move, false otherwise.
+	 */
+	public static boolean hasLegalMoves(final Position position)
+	{
+		final MoveList moves = new MoveList();
+		generateLegalMoves(position, moves);
+		return !moves.isEmpty();
+	}
+	/**
+	 * This method checks if king of the given alliance is in check.
+	 * @param position is bitboard position.
+	 * @param us is alliance index of the king.
+	 * @return true if king is attacked, false otherwise.
+	 */
+	public static boolean isInCheck(final Position position, final int us)
+	{
+		return position.isSquareAttacked(
+				Long.numberOfTrailingZeros(position.getPieces(us, Position.KING)), us ^ 1);
+	}
+	/**
+	 * This method removes from the given collection all moves which leave
+	 * own king in check. Moves are not executed, they are tested against
+	 * checks and pins of the moved piece alliance.
+	 * @param board is reference to the board object.
+	 * @param possibleMoves is collection of the pseudo legal moves.
+	 * @return the same collection without illegal moves.
+	 */
+	public static Collection<Move> removeIllegalMoves(final Board board, final Collection<Move> possibleMoves)
+	{
+		CheckInfo checkInfo = null;
+		for(Iterator<Move> it = possibleMoves.iterator(); it.hasNext();)
+		{
+			final Move move = it.next();
+			final int us = move.getMovedPiece().getAlliance().ordinal();
+			if(checkInfo == null || checkInfo.us != us)
+				checkInfo = new CheckInfo(board.getPosition(), us);
+			if(!checkInfo.isLegal(move))
+				it.remove();
+		}
+		return possibleMoves;
+	}
+
+	/**
+	 * This method generates legal moves of the given alliance.
+	 * @param position is bitboard position.
+	 * @param us is alliance index which moves have to be generated.
+	 * @param kind is ALL_MOVES, CAPTURES or QUIETS.
+	 * @param moves is list to which move codes are added.
+	 */
+	private static void generateMoves(final Position position, final int us, final int kind,
+			final MoveList moves)
+	{
+		final CheckInfo checkInfo = position.getCheckInfo().update(position, us);
+		final long occupancy = position.getOccupancy();
+		final long ownPieces = position.getAllianceOccupancy(us);
+		final long enemyPieces = position.getAllianceOccupancy(us ^ 1);
+		final long targetMask;
+		final long pawnTargetMask;
+		switch(kind)
+		{
+			case CAPTURES:
+				targetMask = enemyPieces;
+				pawnTargetMask = enemyPieces | PROMOTION_RANKS;
+				break;
+			case QUIETS:
+				targetMask = ~occupancy;
+				pawnTargetMask = ~occupancy & ~PROMOTION_RANKS;
+				break;
+			default:
+				targetMask = ~ownPieces;
+				pawnTargetMask = ~ownPieces;
+				break;
+		}
+
+		addKingMoves(position, checkInfo, targetMask, moves);
+		if(Long.bitCount(checkInfo.checkers) > 1)
+			return;
+		if(checkInfo.checkers == 0 && kind != CAPTURES)
+			addCastlingMoves(position, us, moves);
+
+		long pieces = ownPieces & ~position.getPieces(us, Position.KING);
+		while(pieces != 0)
+		{
+			final int from = Long.numberOfTrailingZeros(pieces);
+			pieces &= pieces - 1;
+			final int type = Position.typeOf(position.getPieceCode(from));
+			final long targets = pieceTargets(us, from, type, occupancy, enemyPieces)
+					& (type == Position.PAWN ? pawnTargetMask : targetMask);
+			addMoves(position, from, type, targets & ~ownPieces & checkInfo.allowedTargets(from), moves);
+		}
+	}
+	/**
+	 * This method computes target fields of the piece other than king,
+	 * pins and checks are not taken into account.
+	 * @param us is alliance index of the piece.
+	 * @param from is position of the piece.
+	 * @param type is type index of the piece.
+	 * @param occupancy is mask of all occupied fields.
+	 * @param enemyPieces is mask of the enemy pieces.
+	 * @return mask of the target fields, own pieces included for non pawns.
+	 */
+	private static long pieceTargets(final int us, final int from, final int type,
+			final long occupancy, final long enemyPieces)
+	{
+		switch(type)
+		{
+			case Position.PAWN:
+				return pawnTargets(us, from, occupancy, enemyPieces);
+			case Position.KNIGHT:
+				return AttackTables.knightAttacks(from);
+			case Position.BISHOP:
+				return AttackTables.bishopAttacks(from, occupancy);
+			case Position.ROOK:
+				return AttackTables.rookAttacks(from, occupancy);
+			default:
+				return AttackTables.queenAttacks(from, occupancy);
+		}
+	}
+	/**
+	 * This method computes target fields of the pawn: pushes to the empty
+	 * fields and diagonal captures of the enemy pieces.
+	 * @param us is alliance index of the pawn.
+	 * @param from is position of the pawn.
+	 * @param occupancy is mask of all occupied fields.
+	 * @param enemyPieces is mask of the enemy pieces.
+	 * @return mask of the pawn target fields.
+	 */
+	private static long pawnTargets(final int us, final int from, final long occupancy, final long enemyPieces)
+	{
+		long targets = AttackTables.pawnAttacks(us, from) & enemyPieces;
+		final int step = us == Position.WHITE ? 8 : -8;
+		final int oneStep = from + step;
+		if(oneStep >= 0 && oneStep < Board.BOARD_FIELDS_NUMBER && (occupancy & (1L << oneStep)) == 0)
+		{
+			targets |= 1L << oneStep;
+			final int startRank = us == Position.WHITE ? 1 : 6;
+			final int twoSteps = oneStep + step;
+			if(from / 8 == startRank && (occupancy & (1L << twoSteps)) == 0)
+				targets |= 1L << twoSteps;
+		}
+		return targets;
+	}
+	/**
+	 * This method adds move codes of the piece on given field to all
+	 * target fields.
+	 * @param position is bitboard position.
+	 * @param from is position of the moved piece.
+	 * @param type is type index of the moved piece.
+	 * @param targets is mask of the legal target fields.
+	 * @param moves is list to which move codes are added.
+	 */
+	private static void addMoves(final Position position, final int from, final int type,
+			long targets, final MoveList moves)
+	{
+		while(targets != 0)
+		{
+			final int to = Long.numberOfTrailingZeros(targets);
+			targets &= targets - 1;
+			moves.add(encodeMove(position, from, to, type));
+		}
+	}
+	/**
+	 * This method returns code of the non castling move: capture if target
+	 * field is occupied, promotion if pawn reaches the last rank.
+	 * @param position is bitboard position.
+	 * @param from is position of the moved piece.
+	 * @param to is target field.
+	 * @param type is type index of the moved piece.
+	 * @return move code.
+	 */
+	private static int encodeMove(final Position position, final int from, final int to, final int type)
+	{
+		final int capturedCode = position.getPieceCode(to);
+		if(capturedCode != Position.NO_PIECE)
+			return MoveCode.encode(from, to, type, Position.typeOf(capturedCode), 0, MoveCode.CAPTURE);
+		if(type == Position.PAWN && (to < 8 || to >= 56))
+			return MoveCode.encode(from, to, type, 0, Position.QUEEN, MoveCode.PROMOTION);
+		return MoveCode.encode(from, to, type, 0, 0, 0);
+	}
+	/**
+	 * This method adds king moves to the fields which are not attacked by
+	 * the enemy pieces.
+	 * @param position is bitboard position.
+	 * @param checkInfo is checks and pins information of king's alliance.
+	 * @param targetMask is mask of the allowed target fields.
+	 * @param moves is list to which move codes are added.
+	 */
+	private static void addKingMoves(final Position position, final CheckInfo checkInfo, final long targetMask,
+			final MoveList moves)
+	{
+		long targets = AttackTables.kingAttacks(checkInfo.kingSquare)
+				& ~position.getAllianceOccupancy(checkInfo.us) & targetMask;
+		long legalTargets = 0L;
+		while(targets != 0)
+		{
+			final int to = Long.numberOfTrailingZeros(targets);
+			targets &= targets - 1;
+			if(checkInfo.isKingTargetSafe(to))
+				legalTargets |= 1L << to;
+		}
+		addMoves(position, checkInfo.kingSquare, Position.KING, legalTargets, moves);
+	}
+	/**
+	 * This method adds castling moves of the king which is not in check.
+	 * King and rook must not have moved, fields between them must be empty
+	 * and fields which king passes must not be attacked.
+	 * @param position is bitboard position.
+	 * @param us is alliance index of the king.
+	 * @param moves is list to which move codes are added.
+	 */
+	private static void addCastlingMoves(final Position position, final int us, final MoveList moves)
+	{
+		final int kingStart = us == Position.WHITE ? WHITE_KING_START : BLACK_KING_START;
+		if(canCastle(position, us, true))
+			moves.add(MoveCode.encode(kingStart, kingStart + 2, Position.KING, 0, 0, MoveCode.CASTLING));
+		if(canCastle(position, us, false))
+			moves.add(MoveCode.encode(kingStart, kingStart - 2, Position.KING, 0, 0, MoveCode.CASTLING));
+	}
+	/**
+	 * This method checks castling conditions other than check: castling
+	 * right, own rook on its initial field, empty fields between king and
+	 * rook and not attacked fields which king passes.
+	 * @param position is bitboard position.
+	 * @param us is alliance index of the king.
+	 * @param kingSide is true for castling towards the rook on the king side.
+	 * @return true if castling is possible, false otherwise.
+	 */
+	private static boolean canCastle(final Position position, final int us, final boolean kingSide)
+	{
+		final int kingStart = us == Position.WHITE ? WHITE_KING_START : BLACK_KING_START;
+		final int right;
+		if(kingSide)
+			right = us == Position.WHITE ? Position.WHITE_KING_SIDE : Position.BLACK_KING_SIDE;
+		else
+			right = us == Position.WHITE ? Position.WHITE_QUEEN_SIDE : Position.BLACK_QUEEN_SIDE;
+		final int direction = kingSide ? 1 : -1;
+		final int rookStart = kingSide ? kingStart + 3 : kingStart - 4;
+		final int enemy = us ^ 1;
+		return (position.getCastlingRights() & right) != 0
+				&& position.getPieceCode(rookStart) == Position.pieceCode(us, Position.ROOK)
+				&& (AttackTables.between(kingStart, rookStart) & position.getOccupancy()) == 0
+				&& !position.isSquareAttacked(kingStart + direction, enemy)
+				&& !position.isSquareAttacked(kingStart + 2 * direction, enemy);
+	}
+
+	/**
+	 * This is class which keeps checks and pins information of one alliance
+	 * in the current position. Object is owned by the position (see
+	 * Position.getCheckInfo()) and computed again for every generation, so
+	 * the search does not create it in every node.
+	 * @author Piotr Poskart
+	 *
+	 */
+	static final class CheckInfo
+	{
+		/** Bitboard position which is examined */
+		private Position position;
+		/** Alliance index of the examined side */
+		private int us;
+		/** Position of the examined side king */
+		private int kingSquare;
+		/** Mask of the enemy pieces giving check */
+		private long checkers;
+		/** Fields on which non king move resolves check, all fields if no check */
+		private long checkMask;
+		/** Mask of own pieces pinned to the king */
+		private long pinned;
+
+		/**
+		 * CheckInfo constructor. Creates object which has to be computed by
+		 * update() before use.
+		 */
+		CheckInfo() {}
+		/**
+		 * CheckInfo constructor. Computes checkers, check evasion mask
+		 * and pinned pieces of the given alliance.
+		 * @param position is bitboard position.
+		 * @param us is alliance index of the examined side.
+		 */
+		private CheckInfo(final Position position, final int us)
+		{
+			update(position, us);
+		}
+		/**
+		 * This method computes checkers, check evasion mask and pinned
+		 * pieces of the given alliance.
+		 * @param position is bitboard position.
+		 * @param us is alliance index of the examined side.
+		 * @return this object.
+		 */
+		private CheckInfo update(final Position position, final int us)
+		{
+			this.position = position;
+			this.us = us;
+			this.kingSquare = Long.numberOfTrailingZeros(position.getPieces(us, Position.KING));
+			final int enemy = us ^ 1;
+			final long occupancy = position.getOccupancy();
+			this.checkers = position.getAttackersOf(kingSquare, enemy, occupancy);
+			if(checkers == 0)
+				this.checkMask = -1L;
+			else
+				this.checkMask = checkers | AttackTables.between(kingSquare, Long.numberOfTrailingZeros(checkers));
+
+			final long enemyQueens = position.getPieces(enemy, Position.QUEEN);
+			long snipers = (AttackTables.rookAttacks(kingSquare, 0L)
+							& (position.getPieces(enemy, Position.ROOK) | enemyQueens))
+					| (AttackTables.bishopAttacks(kingSquare, 0L)
+							& (position.getPieces(enemy, Position.BISHOP) | enemyQueens));
+			long pinnedPieces = 0L;
+			while(snipers != 0)
+			{
+				final long blockers = AttackTables.between(kingSquare, Long.numberOfTrailingZeros(snipers)) & occupancy;
+				if(Long.bitCount(blockers) == 1)
+					pinnedPieces |= blockers & position.getAllianceOccupancy(us);
+				snipers &= snipers - 1;
+			}
+			this.pinned = pinnedPieces;
+			return this;
+		}
+		/**
+		 * This method returns fields on which non king piece standing on
+		 * given field can legally move (ignoring its movement rules).
+		 * @param from is position of the piece.
+		 * @return mask of the allowed target fields.
+		 */
+		private long allowedTargets(final int from)
+		{
+			if((pinned & (1L << from)) != 0)
+				return checkMask & AttackTables.line(kingSquare, from);
+			return checkMask;
+		}
+		/**
+		 * This method checks if king can step on given field.
+		 * @param to is position of the target field.
+		 * @return true if target field is not attacked, false otherwise.
+		 */
+		private boolean isKingTargetSafe(final int to)
+		{
+			return !position.isSquareAttacked(to, us ^ 1, position.getOccupancy() & ~(1L << kingSquare));
+		}
+		/**
+		 * This method checks if pseudo legal move does not leave own king
+		 * in check.
+		 * @param move is move to be checked.
+		 * @return true if move is legal, false otherwise.
+		 */
+		private boolean isLegal(final Move move)
+		{
+			final int from = move.getSourcePosition();
+			final int to = move.getTargetPosition();
+			if(from == kingSquare)
+				return move.isCastlingMove() || isKingTargetSafe(to);
+			if(Long.bitCount(checkers) > 1)
+				return false;
+			return (allowedTargets(from) & (1L << to)) != 0;
+		}
+	}
+}
@@ -0,0 +1,141 @@
+package chess.model.board;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import chess.model.game.Move;
+import chess.model.game.MoveList;
+
+/**
+ * This is class which counts perft leaf nodes on many threads. Tree is
+ * split recursively: every node whose remaining depth is at least
+ * SPLIT_DEPTH forks one fork/join task per legal move, and subtrees
+ * shallower than that are counted sequentially by one task. Every task
+ * works on its own copy of the position or board, made when it is forked,
+ * so tasks do not share any mutable state. Sum of the subtree counts is
+ * equal to the sequential Perft result.
+ *
+ * @author Piotr Poskart
+ *
+ */
+public final class ParallelPerft
+{
+	/** Minimal depth of the subtree for which it is split further */
+	private static final int SPLIT_DEPTH = 4;
+	/** Pool on which perft tasks are executed */
+	private final ForkJoinPool pool;
+
+	/**
+	 * ParallelPerft constructor.
+	 * @param threads is number of worker threads.
+	 */
+	public ParallelPerft(final int threads)
+	{
+		pool = new ForkJoinPool(threads);
+	}
+	/**
+	 * This method counts leaf nodes of the given position on the bitboard
+	 * path. Given position is not modified.
+	 * @param position is examined position.
+	 * @param depth is depth of the tree, at least 1.
+	 * @return number of leaf nodes.
+	 */
+	public long perft(final Position position, final int depth)
+	{
+		return pool.invoke(new PositionTask(position.copy(), depth));
+	}
+	/**
+	 * This method counts leaf nodes of the given board on the Board path.
+	 * Given board is not modified, every subtree is counted on the board copy.
+	 * @param board is examined board.
+	 * @param depth is depth of the tree, at least 1.
+	 * @return number of leaf nodes.
+	 */
+	public long perft(final Board board, final int depth)
+	{
+		return pool.invoke(new BoardTask(new Board(board), depth));
+	}
+	/**
+	 * This method stops worker threads of this object.
+	 */
+	public void shutdown()
+	{
+		pool.shutdown();
+	}
+
+	/**
+	 * This is task which counts leaf nodes of the position subtree. Task
+	 * owns its position, children get copies made after the move.
+	 */
+	private static final class PositionTask extends RecursiveTask<Long>
+	{
+		private static final long serialVersionUID = 1L;
+		/** Position owned by this task */
+		private final Position position;
+		/** Depth of the subtree */
+		private final int depth;
+
+		PositionTask(final Position position, final int depth)
+		{
+			this.position = position;
+			this.depth = depth;
+		}
+		@Override
+		protected Long compute()
+		{
+			if(depth < SPLIT_DEPTH)
+				return Perft.perft(position, depth, MoveList.createPlyBuffers(depth));
+			final MoveList moves = new MoveList();
+			MoveGenerator.generateLegalMoves(position, moves);
+			final List<PositionTask> children = new ArrayList<>(moves.size());
+			for(int i = 0; i < moves.size(); i++)
+			{
+				final Position child = position.copy();
+				child.makeMove(moves.get(i));
+				children.add(new PositionTask(child, depth - 1));
+			}
+			long nodes = 0;
+			for(PositionTask child : invokeAll(children))
+				nodes += child.join();
+			return nodes;
+		}
+	}
+
+	/**
+	 * This is task which counts leaf nodes of the board subtree. Task owns
+	 * its board, moves of the children are rebound to the board copies.
+	 */
+	private static final class BoardTask extends RecursiveTask<Long>
+	{
+		private static final long serialVersionUID = 1L;
+		/** Board owned by this task */
+		private final Board board;
+		/** Depth of the subtree */
+		private final int depth;
+
+		BoardTask(final Board board, final int depth)
+		{
+			this.board = board;
+			this.depth = depth;
+		}
+		@Override
+		protected Long compute()
+		{
+			if(depth < SPLIT_DEPTH)
+				return Perft.perft(board, depth);
+			final List<BoardTask> children = new ArrayList<>();
+			for(Move move : Perft.findLegalMoves(board))
+			{
+				final Board child = new Board(board);
+				Perft.executeMove(child, move.forBoard(child));
+				children.add(new BoardTask(child, depth - 1));
+			}
+			long nodes = 0;
+			for(BoardTask child : invokeAll(children))
+				nodes += child.join();
+			return nodes;
+		}
+	}
+}
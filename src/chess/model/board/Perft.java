@@ -0,0 +1,204 @@
+package chess.model.board;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import chess.model.common.Alliance;
+import chess.model.game.Move;
+import chess.model.game.MoveCode;
+import chess.model.game.MoveList;
+
+/**
+ * This is class which counts leaf nodes of the legal move tree (perft)
+ * to the given depth. Counting is possible on two paths: the bitboard
+ * Position with move codes and MoveGenerator, and the Board with Move
+ * objects generated by the pieces classes, executed and undone. Both
+ * paths must give the same numbers, so perft is used both as the move
+ * generation benchmark and as the correctness check.
+ *
+ * @author Piotr Poskart
+ *
+ */
+public final class Perft
+{
+	/** Maximal depth supported by the per ply move buffers */
+	public static final int MAX_DEPTH = 32;
+
+	private Perft() {}
+
+	/**
+	 * This method counts leaf nodes of the given position on the bitboard
+	 * path. Position is restored before return.
+	 * @param position is examined position.
+	 * @param depth is depth of the tree, at least 1.
+	 * @return number of leaf nodes.
+	 */
+	public static long perft(final Position position, final int depth)
+	{
+		return perft(position, depth, MoveList.createPlyBuffers(depth));
+	}
+	/**
+	 * This method counts leaf nodes of the given position on the bitboard
+	 * path, using given per ply move buffers.
+	 * @param position is examined position.
+	 * @param depth is depth of the tree, at least 1.
+	 * @param buffers are move lists, one for every ply.
+	 * @return number of leaf nodes.
+	 */
+	static long perft(final Position position, final int depth, final MoveList[] buffers)
+	{
+		final MoveList moves = buffers[depth - 1];
+		moves.clear();
+		MoveGenerator.generateLegalMoves(position, moves);
+		if(depth == 1)
+			return moves.size();
+		long nodes = 0;
+		for(int i = 0; i < moves.size(); i++)
+		{
+			final int move = moves.get(i);
+			position.makeMove(move);
+			nodes += perft(position, depth - 1, buffers);
+			position.unmakeMove(move);
+		}
+		return nodes;
+	}
+	/**
+	 * This method counts leaf nodes after every root move on the bitboard
+	 * path.
+	 * @param position is examined position.
+	 * @param depth is depth of the tree, at least 1.
+	 * @return map from root move (long algebraic notation) to its leaf nodes.
+	 */
+	public static Map<String, Long> divide(final Position position, final int depth)
+	{
+		final Map<String, Long> result = new LinkedHashMap<>();
+		final MoveList[] buffers = MoveList.createPlyBuffers(Math.max(depth, 1));
+		final MoveList rootMoves = new MoveList();
+		MoveGenerator.generateLegalMoves(position, rootMoves);
+		for(int i = 0; i < rootMoves.size(); i++)
+		{
+			final int move = rootMoves.get(i);
+			position.makeMove(move);
+			result.put(MoveCode.toString(move), depth > 1 ? perft(position, depth - 1, buffers) : 1L);
+			position.unmakeMove(move);
+		}
+		return result;
+	}
+	/**
+	 * This method counts leaf nodes of the given board on the Board path:
+	 * moves are generated by the pieces, filtered by removeAllCheckMakingMoves
+	 * and executed and undone on the board. Board is restored before return.
+	 * @param board is examined board.
+	 * @param depth is depth of the tree, at least 1.
+	 * @return number of leaf nodes.
+	 */
+	public static long perft(final Board board, final int depth)
+	{
+		final Collection<Move> moves = findLegalMoves(board);
+		if(depth == 1)
+			return moves.size();
+		long nodes = 0;
+		for(Move move : moves)
+		{
+			final boolean wasPieceAlreadyMoved = executeMove(board, move);
+			nodes += perft(board, depth - 1);
+			undoMove(board, move, wasPieceAlreadyMoved);
+		}
+		return nodes;
+	}
+	/**
+	 * This method counts leaf nodes after every root move on the Board path.
+	 * @param board is examined board.
+	 * @param depth is depth of the tree, at least 1.
+	 * @return map from root move (long algebraic notation) to its leaf nodes.
+	 */
+	public static Map<String, Long> divide(final Board board, final int depth)
+	{
+		final Map<String, Long> result = new LinkedHashMap<>();
+		for(Move move : findLegalMoves(board))
+		{
+			final String description = MoveCode.toString(MoveCode.fromMove(move));
+			final boolean wasPieceAlreadyMoved = executeMove(board, move);
+			result.put(description, depth > 1 ? perft(board, depth - 1) : 1L);
+			undoMove(board, move, wasPieceAlreadyMoved);
+		}
+		return result;
+	}
+	/**
+	 * This method plays moves given in the long algebraic notation on the
+	 * board, starting from its current position.
+	 * @param board is board on which moves are played.
+	 * @param moves are move descriptions separated with spaces.
+	 * @throws IllegalArgumentException if any move is not legal.
+	 */
+	public static void playMoves(final Board board, final String moves)
+	{
+		for(String description : moves.trim().split("\\s+"))
+		{
+			if(description.isEmpty())
+				continue;
+			if(!board.playMove(description))
+				throw new IllegalArgumentException("Illegal move " + description);
+		}
+	}
+
+	/**
+	 * This method finds legal moves of the board active alliance using
+	 * pieces move generation.
+	 * @param board is examined board.
+	 * @return list of legal moves.
+	 */
+	static Collection<Move> findLegalMoves(final Board board)
+	{
+		final List<Move> moves = new ArrayList<>(
+				board.getAllLegalMovesOfAlliance(board.getActiveAlliance()));
+		return board.removeAllCheckMakingMoves(moves);
+	}
+	/**
+	 * This method executes move on the board, updates pieces collections
+	 * and passes the turn.
+	 * @param board is board on which move is executed.
+	 * @param move is move to be executed.
+	 * @return first move flag of the moved piece before execution.
+	 */
+	static boolean executeMove(final Board board, final Move move)
+	{
+		final Alliance alliance = move.getMovedPiece().getAlliance();
+		final boolean wasPieceAlreadyMoved = move.getMovedPiece().wasAlreadyMoved();
+		move.execute();
+		recomputePieces(board, move, alliance);
+		board.updateActiveAlliance(alliance.getContraryAlliance());
+		return wasPieceAlreadyMoved;
+	}
+	/**
+	 * This method undoes move executed by executeMove().
+	 * @param board is board on which move was executed.
+	 * @param move is move to be undone.
+	 * @param wasPieceAlreadyMoved is first move flag of the moved piece
+	 * before execution.
+	 */
+	private static void undoMove(final Board board, final Move move, final boolean wasPieceAlreadyMoved)
+	{
+		final Alliance alliance = move.getMovedPiece().getAlliance();
+		move.undo();
+		move.getMovedPiece().setFirstMoveFlag(wasPieceAlreadyMoved);
+		recomputePieces(board, move, alliance);
+		board.updateActiveAlliance(alliance);
+	}
+	/**
+	 * This method recomputes pieces collections changed by the move.
+	 * @param board is board on which move was executed or undone.
+	 * @param move is executed or undone move.
+	 * @param alliance is alliance of the moved piece.
+	 */
+	private static void recomputePieces(final Board board, final Move move, final Alliance alliance)
+	{
+		if(move.getAttackedPiece() != null)
+			board.recomputePieces(alliance.getContraryAlliance());
+		if(move instanceof Move.PawnPromotionMove)
+			board.recomputePieces(alliance);
+	}
+}
@@ -0,0 +1,77 @@
+package chess.model.board;
+
+import java.io.PrintStream;
+
+/**
+ * This is class which contains perft regression suite: positions given
+ * as move sequences from the initial position and their known leaf node
+ * counts for subsequent depths. Counts follow the rules of this game
+ * (no en passant, promotion only by pawn push, always to the queen), so
+ * they are equal to the standard ones only for the first four plies of
+ * the initial position.
+ *
+ * @author Piotr Poskart
+ *
+ */
+public final class PerftSuite
+{
+	/** Names of the suite positions */
+	private static final String[] NAMES = {
+			"initial position",
+			"italian game, castling on both wings",
+			"pawn promotion race",
+			"fool's mate threat",
+			"scandinavian defence, checks and pins"};
+	/** Moves leading to the suite positions in long algebraic notation */
+	private static final String[] MOVES = {
+			"",
+			"e2e4 e7e5 g1f3 b8c6 f1c4 f8c5 b1c3 g8f6 d2d3 d7d6 c1g5 c8g4 d1d2 d8d7",
+			"h2h4 g7g5 h4g5 h7h6 g5g6 h8h7 g6h7 g8f6",
+			"f2f3 e7e5 g2g4",
+			"e2e4 d7d5 e4d5 d8d5 b1c3 d5a5 d2d4 c7c6 g1f3 c8f5 f3e5 e7e6 g2g4 f5g6"};
+	/** Known leaf node counts of the suite positions for depth 1, 2, ... */
+	private static final long[][] COUNTS = {
+			{20L, 400L, 8902L, 197281L, 4865351L},
+			{44L, 1896L, 80731L, 3427165L},
+			{24L, 478L, 12792L, 275960L},
+			{30L, 575L, 17518L, 369079L},
+			{37L, 1421L, 53282L, 1997536L}};
+
+	private PerftSuite() {}
+
+	/**
+	 * This method runs the suite on the bitboard path and, if requested,
+	 * on the Board path and prints results to the given stream.
+	 * @param maxDepth is the highest depth to be checked.
+	 * @param checkBoardPath if true, Board path is checked as well.
+	 * @param out is stream for the results.
+	 * @return true if all the counts are correct, false otherwise.
+	 */
+	public static boolean run(final int maxDepth, final boolean checkBoardPath, final PrintStream out)
+	{
+		boolean passed = true;
+		for(int i = 0; i < NAMES.length; i++)
+		{
+			final Board board = new Board();
+			Perft.playMoves(board, MOVES[i]);
+			out.println(NAMES[i] + (MOVES[i].isEmpty() ? "" : " (" + MOVES[i] + ")"));
+			for(int depth = 1; depth <= Math.min(maxDepth, COUNTS[i].length); depth++)
+			{
+				final long start = System.nanoTime();
+				final long nodes = Perft.perft(board.copyPosition(), depth);
+				final long time = System.nanoTime() - start;
+				boolean correct = nodes == COUNTS[i][depth - 1];
+				String line = "  depth " + depth + ": " + nodes + " (" + (time / 1000000) + " ms)";
+				if(checkBoardPath)
+				{
+					final long boardNodes = Perft.perft(board, depth);
+					correct &= boardNodes == COUNTS[i][depth - 1];
+					line += ", board path: " + boardNodes;
+				}
+				out.println(line + (correct ? "" : " FAILED, expected " + COUNTS[i][depth - 1]));
+				passed &= correct;
+			}
+		}
+		return passed;
+	}
+}
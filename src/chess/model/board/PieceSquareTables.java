@@ -0,0 +1,176 @@
+package chess.model.board;
+
+/**
+ * This is class which contains piece values and piece-square tables used
+ * by the evaluation. For every piece code and field it keeps middlegame and
+ * endgame value of the piece standing on this field (material plus
+ * positional bonus), positive for white and negative for black pieces,
+ * so the sum over all pieces is the score from the white point of view.
+ * Position adds and subtracts these values when pieces are put and
+ * removed, so the sums are always available without scanning the board.
+ * Game phase weights of the pieces tell how far from the endgame the
+ * position is and are used to blend middlegame and endgame sums.
+ * Plain piece values used by move ordering and static exchange evaluation
+ * are taken from the same middlegame and endgame values, so the search
+ * and the evaluation never disagree which piece is worth more.
+ *
+ * @author Piotr Poskart
+ *
+ */
+public final class PieceSquareTables
+{
+	/** Game phase of the position with all the pieces on the board */
+	public static final int MAX_PHASE = 24;
+	/** Middlegame values of the piece types, indexed by Position type index */
+	private static final int[] MIDDLEGAME_VALUES = {82, 365, 337, 477, 1025, 0};
+	/** Endgame values of the piece types, indexed by Position type index */
+	private static final int[] ENDGAME_VALUES = {94, 297, 281, 512, 936, 0};
+	/** Plain values of the piece types (middlegame and endgame average), king has none */
+	private static final int[] PIECE_VALUES = new int[Position.KING + 1];
+	/** Game phase weights of the piece types, indexed by Position type index */
+	private static final int[] PHASE_WEIGHTS = {0, 1, 1, 2, 4, 0};
+
+	/*
+	 * Tables below are written from the white point of view as seen on
+	 * the board: the first row is the eighth rank, the last one is the first
+	 * rank, so white piece on field n uses entry n ^ 56.
+	 */
+	private static final int[] PAWN_TABLE = {
+			 0,   0,   0,   0,   0,   0,   0,   0,
+			50,  50,  50,  50,  50,  50,  50,  50,
+			10,  10,  20,  30,  30,  20,  10,  10,
+			 5,   5,  10,  25,  25,  10,   5,   5,
+			 0,   0,   0,  20,  20,   0,   0,   0,
+			 5,  -5, -10,   0,   0, -10,  -5,   5,
+			 5,  10,  10, -20, -20,  10,  10,   5,
+			 0,   0,   0,   0,   0,   0,   0,   0};
+	private static final int[] PAWN_ENDGAME_TABLE = {
+			 0,   0,   0,   0,   0,   0,   0,   0,
+			80,  80,  80,  80,  80,  80,  80,  80,
+			50,  50,  50,  50,  50,  50,  50,  50,
+			30,  30,  30,  30,  30,  30,  30,  30,
+			15,  15,  15,  15,  15,  15,  15,  15,
+			 5,   5,   5,   5,   5,   5,   5,   5,
+			 0,   0,   0,   0,   0,   0,   0,   0,
+			 0,   0,   0,   0,   0,   0,   0,   0};
+	private static final int[] KNIGHT_TABLE = {
+			-50, -40, -30, -30, -30, -30, -40, -50,
+			-40, -20,   0,   0,   0,   0, -20, -40,
+			-30,   0,  10,  15,  15,  10,   0, -30,
+			-30,   5,  15,  20,  20,  15,   5, -30,
+			-30,   0,  15,  20,  20,  15,   0, -30,
+			-30,   5,  10,  15,  15,  10,   5, -30,
+			-40, -20,   0,   5,   5,   0, -20, -40,
+			-50, -40, -30, -30, -30, -30, -40, -50};
+	private static final int[] BISHOP_TABLE = {
+			-20, -10, -10, -10, -10, -10, -10, -20,
+			-10,   0,   0,   0,   0,   0,   0, -10,
+			-10,   0,   5,  10,  10,   5,   0, -10,
+			-10,   5,   5,  10,  10,   5,   5, -10,
+			-10,   0,  10,  10,  10,  10,   0, -10,
+			-10,  10,  10,  10,  10,  10,  10, -10,
+			-10,   5,   0,   0,   0,   0,   5, -10,
+			-20, -10, -10, -10, -10, -10, -10, -20};
+	private static final int[] ROOK_TABLE = {
+			 0,   0,   0,   0,   0,   0,   0,   0,
+			 5,  10,  10,  10,  10,  10,  10,   5,
+			-5,   0,   0,   0,   0,   0,   0,  -5,
+			-5,   0,   0,   0,   0,   0,   0,  -5,
+			-5,   0,   0,   0,   0,   0,   0,  -5,
+			-5,   0,   0,   0,   0,   0,   0,  -5,
+			-5,   0,   0,   0,   0,   0,   0,  -5,
+			 0,   0,   0,   5,   5,   0,   0,   0};
+	private static final int[] QUEEN_TABLE = {
+			-20, -10, -10,  -5,  -5, -10, -10, -20,
+			-10,   0,   0,   0,   0,   0,   0, -10,
+			-10,   0,   5,   5,   5,   5,   0, -10,
+			 -5,   0,   5,   5,   5,   5,   0,  -5,
+			  0,   0,   5,   5,   5,   5,   0,  -5,
+			-10,   5,   5,   5,   5,   5,   0, -10,
+			-10,   0,   5,   0,   0,   0,   0, -10,
+			-20, -10, -10,  -5,  -5, -10, -10, -20};
+	private static final int[] KING_TABLE = {
+			-30, -40, -40, -50, -50, -40, -40, -30,
+			-30, -40, -40, -50, -50, -40, -40, -30,
+			-30, -40, -40, -50, -50, -40, -40, -30,
+			-30, -40, -40, -50, -50, -40, -40, -30,
+			-20, -30, -30, -40, -40, -30, -30, -20,
+			-10, -20, -20, -20, -20, -20, -20, -10,
+			 20,  20,   0,   0,   0,   0,  20,  20,
+			 20,  30,  10,   0,   0,  10,  30,  20};
+	private static final int[] KING_ENDGAME_TABLE = {
+			-50, -40, -30, -20, -20, -30, -40, -50,
+			-30, -20, -10,   0,   0, -10, -20, -30,
+			-30, -10,  20,  30,  30,  20, -10, -30,
+			-30, -10,  30,  40,  40,  30, -10, -30,
+			-30, -10,  30,  40,  40,  30, -10, -30,
+			-30, -10,  20,  30,  30,  20, -10, -30,
+			-30, -30,   0,   0,   0,   0, -30, -30,
+			-50, -30, -30, -30, -30, -30, -30, -50};
+
+	/** Middlegame values of every piece code on every field */
+	private static final int[][] MIDDLEGAME = new int[Position.PIECE_CODES_NUMBER][Board.BOARD_FIELDS_NUMBER];
+	/** Endgame values of every piece code on every field */
+	private static final int[][] ENDGAME = new int[Position.PIECE_CODES_NUMBER][Board.BOARD_FIELDS_NUMBER];
+
+	static
+	{
+		final int[][] middlegameTables = {PAWN_TABLE, BISHOP_TABLE, KNIGHT_TABLE, ROOK_TABLE, QUEEN_TABLE, KING_TABLE};
+		final int[][] endgameTables = {PAWN_ENDGAME_TABLE, BISHOP_TABLE, KNIGHT_TABLE, ROOK_TABLE, QUEEN_TABLE, KING_ENDGAME_TABLE};
+		for(int type = Position.PAWN; type <= Position.KING; type++)
+		{
+			PIECE_VALUES[type] = (MIDDLEGAME_VALUES[type] + ENDGAME_VALUES[type]) / 2;
+			final int whiteCode = Position.pieceCode(Position.WHITE, type);
+			final int blackCode = Position.pieceCode(Position.BLACK, type);
+			for(int square = 0; square < Board.BOARD_FIELDS_NUMBER; square++)
+			{
+				MIDDLEGAME[whiteCode][square] = MIDDLEGAME_VALUES[type] + middlegameTables[type][square ^ 56];
+				ENDGAME[whiteCode][square] = ENDGAME_VALUES[type] + endgameTables[type][square ^ 56];
+				MIDDLEGAME[blackCode][square] = -(MIDDLEGAME_VALUES[type] + middlegameTables[type][square]);
+				ENDGAME[blackCode][square] = -(ENDGAME_VALUES[type] + endgameTables[type][square]);
+			}
+		}
+	}
+
+	private PieceSquareTables() {}
+
+	/**
+	 * Returns middlegame value of the piece on the field.
+	 * @param pieceCode is code of the piece.
+	 * @param square is position of the field.
+	 * @return value from the white point of view.
+	 */
+	public static int middlegame(final int pieceCode, final int square)
+	{
+		return MIDDLEGAME[pieceCode][square];
+	}
+	/**
+	 * Returns endgame value of the piece on the field.
+	 * @param pieceCode is code of the piece.
+	 * @param square is position of the field.
+	 * @return value from the white point of view.
+	 */
+	public static int endgame(final int pieceCode, final int square)
+	{
+		return ENDGAME[pieceCode][square];
+	}
+	/**
+	 * Returns plain value of the piece type, independent of the field and
+	 * game phase.
+	 * @param type is type index of the piece.
+	 * @return value in centipawns, 0 for king.
+	 */
+	public static int pieceValue(final int type)
+	{
+		return PIECE_VALUES[type];
+	}
+	/**
+	 * Returns game phase weight of the piece.
+	 * @param pieceCode is code of the piece.
+	 * @return phase weight, 0 for pawns and kings.
+	 */
+	public static int phaseWeight(final int pieceCode)
+	{
+		return PHASE_WEIGHTS[Position.typeOf(pieceCode)];
+	}
+}
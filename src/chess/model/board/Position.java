@@ -0,0 +1,627 @@
+package chess.model.board;
+
+import java.util.Arrays;
+
+import chess.model.common.Alliance;
+import chess.model.game.MoveCode;
+import chess.model.pieces.Piece.PieceType;
+
+/**
+ * This is class which represents bare chess position in the bitboard
+ * form. It keeps one 64-bit mask per piece type and alliance, occupancy
+ * masks of both alliances and of the whole board, and a mailbox array
+ * with piece code of every field. Bit number of the mask is the same as
+ * linear field position used by the Board class (0 - 63). All the
+ * queries and updates are constant time bit operations and the whole
+ * position can be copied with a few array copies. Position also keeps
+ * side to move and castling rights, so it can play and take back move
+ * codes (see MoveCode) on its own, without Board and Piece objects.
+ * Zobrist hash of the position (see Zobrist) is updated incrementally by
+ * every method which changes pieces, side to move, castling rights or en
+ * passant file. In the same way putting and removing pieces updates sums
+ * of the middlegame and endgame piece-square values and the game phase
+ * (see PieceSquareTables), so static evaluation needs no board scan.
+ * Halfmove clock and fullmove number are kept for FEN (see Fen); they do
+ * not take part in the hash.
+ *
+ * @author Piotr Poskart
+ *
+ */
+public final class Position
+{
+	/** Number of piece types */
+	public static final int PIECE_TYPES_NUMBER = 6;
+	/** Number of piece codes (piece types of both alliances) */
+	public static final int PIECE_CODES_NUMBER = 2 * PIECE_TYPES_NUMBER;
+	/** Code of the empty field */
+	public static final int NO_PIECE = -1;
+	/** Index of the pawn type, the same as PieceType.PAWN ordinal */
+	public static final int PAWN = 0;
+	/** Index of the bishop type, the same as PieceType.BISHOP ordinal */
+	public static final int BISHOP = 1;
+	/** Index of the knight type, the same as PieceType.KNIGHT ordinal */
+	public static final int KNIGHT = 2;
+	/** Index of the rook type, the same as PieceType.ROOK ordinal */
+	public static final int ROOK = 3;
+	/** Index of the queen type, the same as PieceType.QUEEN ordinal */
+	public static final int QUEEN = 4;
+	/** Index of the king type, the same as PieceType.KING ordinal */
+	public static final int KING = 5;
+	/** Index of the white alliance, the same as Alliance.WHITE ordinal */
+	public static final int WHITE = 0;
+	/** Index of the black alliance, the same as Alliance.BLACK ordinal */
+	public static final int BLACK = 1;
+	/** Castling right of the white king to the rook on field 7 */
+	public static final int WHITE_KING_SIDE = 1;
+	/** Castling right of the white king to the rook on field 0 */
+	public static final int WHITE_QUEEN_SIDE = 2;
+	/** Castling right of the black king to the rook on field 63 */
+	public static final int BLACK_KING_SIDE = 4;
+	/** Castling right of the black king to the rook on field 56 */
+	public static final int BLACK_QUEEN_SIDE = 8;
+	/** En passant file value which means no en passant capture */
+	public static final int NO_EN_PASSANT = -1;
+
+	/** Bitboards of all piece codes */
+	private final long[] pieceBitboards;
+	/** Bitboards of all pieces of each alliance */
+	private final long[] allianceBitboards;
+	/** Bitboard of all pieces on the board */
+	private long occupancy;
+	/** Piece code of every board field, NO_PIECE if field is empty */
+	private final byte[] mailbox;
+	/** Alliance index of the side to move */
+	private int sideToMove;
+	/** Castling rights flags of both alliances */
+	private int castlingRights;
+	/**
+	 * File of the pawn which has just moved two fields forward,
+	 * NO_EN_PASSANT if none. The game has no en passant captures, so it
+	 * is not a part of the hash, it is kept only for FEN and opening
+	 * book keys.
+	 */
+	private int enPassantFile;
+	/** Zobrist hash of the position */
+	private long hashKey;
+	/** Zobrist hash of the pawns placement only */
+	private long pawnKey;
+	/** Sum of the middlegame piece-square values, white point of view */
+	private int middlegameScore;
+	/** Sum of the endgame piece-square values, white point of view */
+	private int endgameScore;
+	/** Sum of the game phase weights of the pieces */
+	private int gamePhase;
+	/** Halfmove clock: plies since the last capture or pawn move */
+	private int halfmoveClock;
+	/** Number of the full move, incremented after black move */
+	private int fullmoveNumber;
+	/** Castling rights, en passant file and halfmove clock before every move made, used to take moves back */
+	private int[] stateHistory;
+	/** Number of moves made and not taken back yet */
+	private int historySize;
+	/** Checks and pins information reused by the move generator, created when first needed */
+	private MoveGenerator.CheckInfo checkInfo;
+
+	/** Castling rights which remain after move from or to given field */
+	private static final int[] CASTLING_RIGHTS_MASK = new int[Board.BOARD_FIELDS_NUMBER];
+
+	static
+	{
+		Arrays.fill(CASTLING_RIGHTS_MASK, WHITE_KING_SIDE | WHITE_QUEEN_SIDE | BLACK_KING_SIDE | BLACK_QUEEN_SIDE);
+		CASTLING_RIGHTS_MASK[0] &= ~WHITE_QUEEN_SIDE;
+		CASTLING_RIGHTS_MASK[4] &= ~(WHITE_KING_SIDE | WHITE_QUEEN_SIDE);
+		CASTLING_RIGHTS_MASK[7] &= ~WHITE_KING_SIDE;
+		CASTLING_RIGHTS_MASK[56] &= ~BLACK_QUEEN_SIDE;
+		CASTLING_RIGHTS_MASK[60] &= ~(BLACK_KING_SIDE | BLACK_QUEEN_SIDE);
+		CASTLING_RIGHTS_MASK[63] &= ~BLACK_KING_SIDE;
+	}
+
+	/**
+	 * Position constructor. Creates empty position without any pieces.
+	 */
+	public Position()
+	{
+		pieceBitboards = new long[PIECE_CODES_NUMBER];
+		allianceBitboards = new long[2];
+		occupancy = 0L;
+		mailbox = new byte[Board.BOARD_FIELDS_NUMBER];
+		Arrays.fill(mailbox, (byte) NO_PIECE);
+		sideToMove = WHITE;
+		castlingRights = 0;
+		enPassantFile = NO_EN_PASSANT;
+		hashKey = 0L;
+		pawnKey = 0L;
+		middlegameScore = 0;
+		endgameScore = 0;
+		gamePhase = 0;
+		halfmoveClock = 0;
+		fullmoveNumber = 1;
+		stateHistory = new int[64];
+		historySize = 0;
+	}
+	/**
+	 * Position copy constructor. Creates independent copy of the given
+	 * position.
+	 * @param other position to be copied.
+	 */
+	public Position(final Position other)
+	{
+		pieceBitboards = other.pieceBitboards.clone();
+		allianceBitboards = other.allianceBitboards.clone();
+		occupancy = other.occupancy;
+		mailbox = other.mailbox.clone();
+		sideToMove = other.sideToMove;
+		castlingRights = other.castlingRights;
+		enPassantFile = other.enPassantFile;
+		hashKey = other.hashKey;
+		pawnKey = other.pawnKey;
+		middlegameScore = other.middlegameScore;
+		endgameScore = other.endgameScore;
+		gamePhase = other.gamePhase;
+		halfmoveClock = other.halfmoveClock;
+		fullmoveNumber = other.fullmoveNumber;
+		stateHistory = new int[64];
+		historySize = 0;
+	}
+	/**
+	 * This method returns checks and pins information object of this
+	 * position reused by the move generator. Position is used by one thread
+	 * at a time, so one object is enough.
+	 * @return checks and pins information object.
+	 */
+	MoveGenerator.CheckInfo getCheckInfo()
+	{
+		if(checkInfo == null)
+			checkInfo = new MoveGenerator.CheckInfo();
+		return checkInfo;
+	}
+	/**
+	 * This method returns independent copy of this position. History of
+	 * the moves made is not copied, so copy cannot take them back.
+	 * @return copy of this position.
+	 */
+	public Position copy()
+	{
+		return new Position(this);
+	}
+	/**
+	 * This method removes all pieces from this position.
+	 */
+	public void clear()
+	{
+		Arrays.fill(pieceBitboards, 0L);
+		Arrays.fill(allianceBitboards, 0L);
+		occupancy = 0L;
+		Arrays.fill(mailbox, (byte) NO_PIECE);
+		sideToMove = WHITE;
+		castlingRights = 0;
+		enPassantFile = NO_EN_PASSANT;
+		hashKey = 0L;
+		pawnKey = 0L;
+		middlegameScore = 0;
+		endgameScore = 0;
+		gamePhase = 0;
+		halfmoveClock = 0;
+		fullmoveNumber = 1;
+		historySize = 0;
+	}
+	/**
+	 * This method returns piece code for given alliance and type index.
+	 * @param alliance is alliance index (WHITE or BLACK).
+	 * @param type is piece type index (PAWN ... KING).
+	 * @return piece code in range 0 - 11.
+	 */
+	public static int pieceCode(final int alliance, final int type)
+	{
+		return alliance * PIECE_TYPES_NUMBER + type;
+	}
+	/**
+	 * This method returns piece code for given alliance and piece type.
+	 * @param alliance is alliance of the piece.
+	 * @param type is type of the piece.
+	 * @return piece code in range 0 - 11.
+	 */
+	public static int pieceCode(final Alliance alliance, final PieceType type)
+	{
+		return pieceCode(alliance.ordinal(), type.ordinal());
+	}
+	/**
+	 * This method returns alliance index of the given piece code.
+	 * @param pieceCode is code of the piece.
+	 * @return alliance index (WHITE or BLACK).
+	 */
+	public static int allianceOf(final int pieceCode)
+	{
+		return pieceCode / PIECE_TYPES_NUMBER;
+	}
+	/**
+	 * This method returns piece type index of the given piece code.
+	 * @param pieceCode is code of the piece.
+	 * @return piece type index (PAWN ... KING).
+	 */
+	public static int typeOf(final int pieceCode)
+	{
+		return pieceCode % PIECE_TYPES_NUMBER;
+	}
+	/**
+	 * This method puts piece with given code on the pointed field. If
+	 * field is occupied, previous piece is removed from it first.
+	 * @param pieceCode is code of the piece to be put.
+	 * @param square is position of the target field.
+	 */
+	public void putPiece(final int pieceCode, final int square)
+	{
+		if(mailbox[square] != NO_PIECE)
+			removePiece(square);
+		final long squareMask = 1L << square;
+		pieceBitboards[pieceCode] |= squareMask;
+		allianceBitboards[allianceOf(pieceCode)] |= squareMask;
+		occupancy |= squareMask;
+		mailbox[square] = (byte) pieceCode;
+		hashKey ^= Zobrist.pieceKey(pieceCode, square);
+		if(typeOf(pieceCode) == PAWN)
+			pawnKey ^= Zobrist.pieceKey(pieceCode, square);
+		middlegameScore += PieceSquareTables.middlegame(pieceCode, square);
+		endgameScore += PieceSquareTables.endgame(pieceCode, square);
+		gamePhase += PieceSquareTables.phaseWeight(pieceCode);
+	}
+	/**
+	 * This method removes piece from the pointed field.
+	 * @param square is position of the field to be cleared.
+	 * @return code of the removed piece, NO_PIECE if field was empty.
+	 */
+	public int removePiece(final int square)
+	{
+		final int pieceCode = mailbox[square];
+		if(pieceCode != NO_PIECE)
+		{
+			final long squareMask = ~(1L << square);
+			pieceBitboards[pieceCode] &= squareMask;
+			allianceBitboards[allianceOf(pieceCode)] &= squareMask;
+			occupancy &= squareMask;
+			mailbox[square] = (byte) NO_PIECE;
+			hashKey ^= Zobrist.pieceKey(pieceCode, square);
+			if(typeOf(pieceCode) == PAWN)
+				pawnKey ^= Zobrist.pieceKey(pieceCode, square);
+			middlegameScore -= PieceSquareTables.middlegame(pieceCode, square);
+			endgameScore -= PieceSquareTables.endgame(pieceCode, square);
+			gamePhase -= PieceSquareTables.phaseWeight(pieceCode);
+		}
+		return pieceCode;
+	}
+	/**
+	 * This method returns code of the piece on the pointed field.
+	 * @param square is position of the field.
+	 * @return code of the piece, NO_PIECE if field is empty.
+	 */
+	public int getPieceCode(final int square)
+	{
+		return mailbox[square];
+	}
+	/**
+	 * This method checks whether given field is occupied or not.
+	 * @param square is position of the field.
+	 * @return true if field is occupied, false otherwise.
+	 */
+	public boolean isOccupied(final int square)
+	{
+		return (occupancy & (1L << square)) != 0;
+	}
+	/**
+	 * This method returns bitboard of all pieces on the board.
+	 * @return occupancy mask.
+	 */
+	public long getOccupancy()
+	{
+		return occupancy;
+	}
+	/**
+	 * This method returns bitboard of all pieces of given alliance.
+	 * @param alliance is alliance index (WHITE or BLACK).
+	 * @return occupancy mask of the alliance.
+	 */
+	public long getAllianceOccupancy(final int alliance)
+	{
+		return allianceBitboards[alliance];
+	}
+	/**
+	 * This method returns bitboard of pieces with given code.
+	 * @param pieceCode is code of the pieces.
+	 * @return mask of the fields with given pieces.
+	 */
+	public long getPieces(final int pieceCode)
+	{
+		return pieceBitboards[pieceCode];
+	}
+	/**
+	 * This method returns bitboard of pieces with given alliance and type.
+	 * @param alliance is alliance index (WHITE or BLACK).
+	 * @param type is piece type index (PAWN ... KING).
+	 * @return mask of the fields with given pieces.
+	 */
+	public long getPieces(final int alliance, final int type)
+	{
+		return pieceBitboards[pieceCode(alliance, type)];
+	}
+	/**
+	 * This method returns alliance index of the side to move.
+	 * @return WHITE or BLACK.
+	 */
+	public int getSideToMove()
+	{
+		return sideToMove;
+	}
+	/**
+	 * This method sets side to move.
+	 * @param alliance is alliance index of the side to move.
+	 */
+	public void setSideToMove(final int alliance)
+	{
+		hashKey ^= Zobrist.sideKey(sideToMove) ^ Zobrist.sideKey(alliance);
+		sideToMove = alliance;
+	}
+	/**
+	 * This method returns castling rights of both alliances.
+	 * @return mask of castling right flags.
+	 */
+	public int getCastlingRights()
+	{
+		return castlingRights;
+	}
+	/**
+	 * This method sets castling rights of both alliances.
+	 * @param castlingRights is mask of castling right flags.
+	 */
+	public void setCastlingRights(final int castlingRights)
+	{
+		hashKey ^= Zobrist.castlingKey(this.castlingRights) ^ Zobrist.castlingKey(castlingRights);
+		this.castlingRights = castlingRights;
+	}
+	/**
+	 * This method returns file of the pawn which has just moved two fields
+	 * forward and could be captured en passant in the standard chess.
+	 * @return file 0 - 7, NO_EN_PASSANT if there is no such pawn.
+	 */
+	public int getEnPassantFile()
+	{
+		return enPassantFile;
+	}
+	/**
+	 * This method sets file of the pawn which has just moved two fields
+	 * forward. It does not change the hash of the position.
+	 * @param file is file 0 - 7 or NO_EN_PASSANT.
+	 */
+	public void setEnPassantFile(final int file)
+	{
+		enPassantFile = file;
+	}
+	/**
+	 * This method returns number of plies since the last capture or pawn move.
+	 * @return halfmove clock.
+	 */
+	public int getHalfmoveClock()
+	{
+		return halfmoveClock;
+	}
+	/**
+	 * This method sets number of plies since the last capture or pawn move.
+	 * @param halfmoveClock is halfmove clock.
+	 */
+	public void setHalfmoveClock(final int halfmoveClock)
+	{
+		this.halfmoveClock = halfmoveClock;
+	}
+	/**
+	 * This method returns number of the full move, which starts at 1 and
+	 * is incremented after every black move.
+	 * @return fullmove number.
+	 */
+	public int getFullmoveNumber()
+	{
+		return fullmoveNumber;
+	}
+	/**
+	 * This method sets number of the full move.
+	 * @param fullmoveNumber is fullmove number.
+	 */
+	public void setFullmoveNumber(final int fullmoveNumber)
+	{
+		this.fullmoveNumber = fullmoveNumber;
+	}
+	/**
+	 * This method returns Zobrist hash of the position.
+	 * @return 64-bit position hash.
+	 */
+	public long getHashKey()
+	{
+		return hashKey;
+	}
+	/**
+	 * This method returns sum of the middlegame values of all pieces.
+	 * @return middlegame score from the white point of view.
+	 */
+	public int getMiddlegameScore()
+	{
+		return middlegameScore;
+	}
+	/**
+	 * This method returns sum of the endgame values of all pieces.
+	 * @return endgame score from the white point of view.
+	 */
+	public int getEndgameScore()
+	{
+		return endgameScore;
+	}
+	/**
+	 * This method returns game phase of the position.
+	 * @return sum of the phase weights of all pieces, PieceSquareTables.MAX_PHASE
+	 * in the initial position (more after promotions).
+	 */
+	public int getGamePhase()
+	{
+		return gamePhase;
+	}
+	/**
+	 * This method returns Zobrist hash of the pawns placement. It does not
+	 * depend on other pieces, side to move nor castling rights, so it
+	 * identifies the pawn structure.
+	 * @return 64-bit pawn structure hash, 0 if there are no pawns.
+	 */
+	public long getPawnKey()
+	{
+		return pawnKey;
+	}
+	/**
+	 * This method computes Zobrist hash of the position from scratch. It
+	 * is equal to getHashKey() unless incremental updates are broken.
+	 * @return 64-bit position hash.
+	 */
+	public long computeHashKey()
+	{
+		long key = Zobrist.sideKey(sideToMove) ^ Zobrist.castlingKey(castlingRights);
+		long pieces = occupancy;
+		while(pieces != 0)
+		{
+			final int square = Long.numberOfTrailingZeros(pieces);
+			key ^= Zobrist.pieceKey(mailbox[square], square);
+			pieces &= pieces - 1;
+		}
+		return key;
+	}
+	/**
+	 * This method plays the move on this position and passes the turn
+	 * to the other side. Move has to be legal in this position.
+	 * @param move is move code.
+	 */
+	public void makeMove(final int move)
+	{
+		final int from = MoveCode.getSource(move);
+		final int to = MoveCode.getTarget(move);
+		final int us = sideToMove;
+		if(historySize == stateHistory.length)
+			stateHistory = Arrays.copyOf(stateHistory, 2 * historySize);
+		stateHistory[historySize++] = castlingRights | (enPassantFile + 1) << 4 | halfmoveClock << 8;
+		if(MoveCode.isCapture(move) || MoveCode.getMovedType(move) == PAWN)
+			halfmoveClock = 0;
+		else
+			halfmoveClock++;
+		if(us == BLACK)
+			fullmoveNumber++;
+		enPassantFile = MoveCode.getMovedType(move) == PAWN && Math.abs(to - from) == 16 ? from % 8 : NO_EN_PASSANT;
+
+		removePiece(from);
+		if(MoveCode.isCapture(move))
+			removePiece(to);
+		if(MoveCode.isPromotion(move))
+			putPiece(pieceCode(us, MoveCode.getPromotionType(move)), to);
+		else
+			putPiece(pieceCode(us, MoveCode.getMovedType(move)), to);
+		if(MoveCode.isCastling(move))
+		{
+			removePiece(MoveCode.getCastlingRookSource(move));
+			putPiece(pieceCode(us, ROOK), MoveCode.getCastlingRookTarget(move));
+		}
+		setCastlingRights(castlingRights & CASTLING_RIGHTS_MASK[from] & CASTLING_RIGHTS_MASK[to]);
+		setSideToMove(us ^ 1);
+	}
+	/**
+	 * This method takes back the last move made by makeMove().
+	 * @param move is code of the last move made.
+	 */
+	public void unmakeMove(final int move)
+	{
+		final int from = MoveCode.getSource(move);
+		final int to = MoveCode.getTarget(move);
+		final int us = sideToMove ^ 1;
+		setSideToMove(us);
+		final int state = stateHistory[--historySize];
+		setCastlingRights(state & 0xF);
+		enPassantFile = (state >>> 4 & 0xF) - 1;
+		halfmoveClock = state >>> 8;
+		if(us == BLACK)
+			fullmoveNumber--;
+
+		if(MoveCode.isCastling(move))
+		{
+			removePiece(MoveCode.getCastlingRookTarget(move));
+			putPiece(pieceCode(us, ROOK), MoveCode.getCastlingRookSource(move));
+		}
+		removePiece(to);
+		putPiece(pieceCode(us, MoveCode.getMovedType(move)), from);
+		if(MoveCode.isCapture(move))
+			putPiece(pieceCode(us ^ 1, MoveCode.getCapturedType(move)), to);
+	}
+	/**
+	 * This method passes the turn to the other side without moving any
+	 * piece (null move). It is the bitboard counterpart of the
+	 * Board.updateActiveAlliance(), used by the search to test if the
+	 * position is so good that even doing nothing keeps it above the bound.
+	 * Side to move must not be in check.
+	 */
+	public void makeNullMove()
+	{
+		setSideToMove(sideToMove ^ 1);
+	}
+	/**
+	 * This method takes back the null move made by makeNullMove().
+	 */
+	public void unmakeNullMove()
+	{
+		setSideToMove(sideToMove ^ 1);
+	}
+	/**
+	 * This method checks whether given field is attacked by any piece of
+	 * given alliance. It looks from the field outward: knight, king and
+	 * pawn masks of the field and slider rays from it are intersected with
+	 * the attacker pieces, so no moves are generated.
+	 * @param square is position of the examined field.
+	 * @param attackerAlliance is alliance index of the attacking side.
+	 * @return true if field is attacked, false otherwise.
+	 */
+	public boolean isSquareAttacked(final int square, final int attackerAlliance)
+	{
+		return isSquareAttacked(square, attackerAlliance, occupancy);
+	}
+	/**
+	 * This method checks whether given field is attacked by any piece of
+	 * given alliance, assuming given fields occupancy. It allows to test
+	 * fields as if some pieces were removed from the board (e.g. king
+	 * which is going to step away along the attack line).
+	 * @param square is position of the examined field.
+	 * @param attackerAlliance is alliance index of the attacking side.
+	 * @param occupancy is mask of occupied fields used for the slider rays.
+	 * @return true if field is attacked, false otherwise.
+	 */
+	public boolean isSquareAttacked(final int square, final int attackerAlliance, final long occupancy)
+	{
+		final int attackerBase = attackerAlliance * PIECE_TYPES_NUMBER;
+		if((AttackTables.knightAttacks(square) & pieceBitboards[attackerBase + KNIGHT]) != 0)
+			return true;
+		if((AttackTables.pawnAttacks(attackerAlliance ^ 1, square) & pieceBitboards[attackerBase + PAWN]) != 0)
+			return true;
+		if((AttackTables.kingAttacks(square) & pieceBitboards[attackerBase + KING]) != 0)
+			return true;
+		final long queens = pieceBitboards[attackerBase + QUEEN];
+		if((AttackTables.bishopAttacks(square, occupancy) & (pieceBitboards[attackerBase + BISHOP] | queens)) != 0)
+			return true;
+		return (AttackTables.rookAttacks(square, occupancy) & (pieceBitboards[attackerBase + ROOK] | queens)) != 0;
+	}
+	/**
+	 * This method returns all pieces of given alliance which attack given
+	 * field, assuming given fields occupancy.
+	 * @param square is position of the examined field.
+	 * @param attackerAlliance is alliance index of the attacking side.
+	 * @param occupancy is mask of occupied fields used for the slider rays.
+	 * @return mask of the attacking pieces positions.
+	 */
+	public long getAttackersOf(final int square, final int attackerAlliance, final long occupancy)
+	{
+		final int attackerBase = attackerAlliance * PIECE_TYPES_NUMBER;
+		final long queens = pieceBitboards[attackerBase + QUEEN];
+		return (AttackTables.knightAttacks(square) & pieceBitboards[attackerBase + KNIGHT])
+				| (AttackTables.pawnAttacks(attackerAlliance ^ 1, square) & pieceBitboards[attackerBase + PAWN])
+				| (AttackTables.kingAttacks(square) & pieceBitboards[attackerBase + KING])
+				| (AttackTables.bishopAttacks(square, occupancy) & (pieceBitboards[attackerBase + BISHOP] | queens))
+				| (AttackTables.rookAttacks(square, occupancy) & (pieceBitboards[attackerBase + ROOK] | queens));
+	}
+}
@@ -0,0 +1,89 @@
+package chess.model.board;
+
+/**
+ * This is class which contains random 64-bit keys used to compute Zobrist
+ * hash of the position. Hash is XOR of the keys of all pieces on their
+ * fields, of the side to move key (if black is to move) and of the castling
+ * rights key. The game has no en passant captures, so the file of the pawn
+ * which has just moved two fields is not hashed. Every change of the position
+ * changes hash by XOR of a few keys, so it can be updated incrementally.
+ * Keys are generated from the fixed seed, so hash of the position is the
+ * same in every program run.
+ *
+ * @author Piotr Poskart
+ *
+ */
+public final class Zobrist
+{
+	/** Keys of every piece code on every field */
+	private static final long[][] PIECE_KEYS = new long[Position.PIECE_CODES_NUMBER][Board.BOARD_FIELDS_NUMBER];
+	/** Key of the black side to move */
+	private static final long SIDE_KEY;
+	/** Keys of every combination of the castling rights flags */
+	private static final long[] CASTLING_KEYS = new long[16];
+
+	static
+	{
+		final long[] seed = {0x2545F4914F6CDD1DL};
+		for(int pieceCode = 0; pieceCode < Position.PIECE_CODES_NUMBER; pieceCode++)
+		{
+			for(int square = 0; square < Board.BOARD_FIELDS_NUMBER; square++)
+				PIECE_KEYS[pieceCode][square] = nextKey(seed);
+		}
+		SIDE_KEY = nextKey(seed);
+		final long[] castlingFlagKeys = new long[4];
+		for(int i = 0; i < castlingFlagKeys.length; i++)
+			castlingFlagKeys[i] = nextKey(seed);
+		for(int rights = 0; rights < CASTLING_KEYS.length; rights++)
+		{
+			for(int i = 0; i < castlingFlagKeys.length; i++)
+			{
+				if((rights & (1 << i)) != 0)
+					CASTLING_KEYS[rights] ^= castlingFlagKeys[i];
+			}
+		}
+	}
+
+	private Zobrist() {}
+
+	/**
+	 * This method returns next key of the splitmix64 sequence.
+	 * @param seed is one element array with generator state.
+	 * @return next random key.
+	 */
+	private static long nextKey(final long[] seed)
+	{
+		long key = (seed[0] += 0x9E3779B97F4A7C15L);
+		key = (key ^ (key >>> 30)) * 0xBF58476D1CE4E5B9L;
+		key = (key ^ (key >>> 27)) * 0x94D049BB133111EBL;
+		return key ^ (key >>> 31);
+	}
+	/**
+	 * Returns key of the piece standing on the field.
+	 * @param pieceCode is code of the piece.
+	 * @param square is position of the field.
+	 * @return piece key.
+	 */
+	public static long pieceKey(final int pieceCode, final int square)
+	{
+		return PIECE_KEYS[pieceCode][square];
+	}
+	/**
+	 * Returns key of the side to move.
+	 * @param alliance is alliance index of the side to move.
+	 * @return side key, 0 for white.
+	 */
+	public static long sideKey(final int alliance)
+	{
+		return alliance == Position.WHITE ? 0L : SIDE_KEY;
+	}
+	/**
+	 * Returns key of the castling rights.
+	 * @param castlingRights is mask of castling right flags.
+	 * @return castling rights key, 0 if there are no rights.
+	 */
+	public static long castlingKey(final int castlingRights)
+	{
+		return CASTLING_KEYS[castlingRights];
+	}
+}
@@ -78,6 +78,17 @@ public abstract class Move
 	{
 		return null;
 	}
+	/**
+	 * Returns the same move bound to the other board, e.g. to the copy of
+	 * the board this move was generated for. Pieces of the new move are
+	 * taken from the other board fields.
+	 * @param otherBoard is board on which new move is to be executed.
+	 * @return equivalent move object for the other board.
+	 */
+	public Move forBoard(final Board otherBoard)
+	{
+		return MoveCode.toMove(MoveCode.fromMove(this), otherBoard);
+	}
 	/**
 	 * Executes move. This super method sets afterFirstMove flag
 	 * of the moved piece if not set already.
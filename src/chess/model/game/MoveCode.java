@@ -0,0 +1,291 @@
+package chess.model.game;
+
+import chess.model.board.Board;
+import chess.model.board.MoveGenerator;
+import chess.model.board.Position;
+import chess.model.game.Move.AttackMove;
+import chess.model.game.Move.CastlingMove;
+import chess.model.game.Move.CommonMove;
+import chess.model.game.Move.EmptyMove;
+import chess.model.game.Move.PawnPromotionMove;
+import chess.model.pieces.Piece;
+
+/**
+ * This is class which defines compact move representation packed into
+ * primitive int value. Such move does not reference any board or piece
+ * object, so it can be stored in primitive arrays and applied to any copy
+ * of the position. Bit layout of the move code:
+ * <pre>
+ *  0 -  5  source field
+ *  6 - 11  target field
+ * 12 - 14  moved piece type
+ * 15 - 17  captured piece type (valid with CAPTURE flag)
+ * 18 - 20  promotion piece type (valid with PROMOTION flag)
+ * 21       CAPTURE flag
+ * 22       PROMOTION flag
+ * 23       CASTLING flag
+ * </pre>
+ * Value 0 is never valid move (source and target are the same), so it is
+ * used as NO_MOVE. Move can be also packed into 16 bits (source, target
+ * and promotion flag), the rest of the information is then restored from
+ * the position the move is played in.
+ *
+ * @author Piotr Poskart
+ *
+ */
+public final class MoveCode
+{
+	/** Code which means no move */
+	public static final int NO_MOVE = 0;
+	/** Flag of the move which captures enemy piece */
+	public static final int CAPTURE = 1 << 21;
+	/** Flag of the pawn promotion move */
+	public static final int PROMOTION = 1 << 22;
+	/** Flag of the castling move (king move, rook follows it) */
+	public static final int CASTLING = 1 << 23;
+	/** Promotion flag of the 16-bit move code */
+	private static final int COMPACT_PROMOTION = 1 << 12;
+
+	private MoveCode() {}
+
+	/**
+	 * This method packs move into int code.
+	 * @param from is source field of the moved piece.
+	 * @param to is target field of the moved piece.
+	 * @param movedType is type index of the moved piece.
+	 * @param capturedType is type index of the captured piece, ignored
+	 * without CAPTURE flag.
+	 * @param promotionType is type index of the promotion piece, ignored
+	 * without PROMOTION flag.
+	 * @param flags are CAPTURE, PROMOTION and CASTLING flags.
+	 * @return move code.
+	 */
+	public static int encode(final int from, final int to, final int movedType,
+			final int capturedType, final int promotionType, final int flags)
+	{
+		return from | (to << 6) | (movedType << 12) | (capturedType << 15) | (promotionType << 18) | flags;
+	}
+	/**
+	 * Returns source field of the move.
+	 * @param move is move code.
+	 * @return source field position.
+	 */
+	public static int getSource(final int move)
+	{
+		return move & 0x3F;
+	}
+	/**
+	 * Returns target field of the move.
+	 * @param move is move code.
+	 * @return target field position.
+	 */
+	public static int getTarget(final int move)
+	{
+		return (move >>> 6) & 0x3F;
+	}
+	/**
+	 * Returns type index of the moved piece.
+	 * @param move is move code.
+	 * @return moved piece type index.
+	 */
+	public static int getMovedType(final int move)
+	{
+		return (move >>> 12) & 0x7;
+	}
+	/**
+	 * Returns type index of the captured piece.
+	 * @param move is move code.
+	 * @return captured piece type index, valid only for capture.
+	 */
+	public static int getCapturedType(final int move)
+	{
+		return (move >>> 15) & 0x7;
+	}
+	/**
+	 * Returns type index of the promotion piece.
+	 * @param move is move code.
+	 * @return promotion piece type index, valid only for promotion.
+	 */
+	public static int getPromotionType(final int move)
+	{
+		return (move >>> 18) & 0x7;
+	}
+	/**
+	 * Checks is this an attack move.
+	 * @param move is move code.
+	 * @return true if move captures enemy piece, false otherwise.
+	 */
+	public static boolean isCapture(final int move)
+	{
+		return (move & CAPTURE) != 0;
+	}
+	/**
+	 * Checks is this pawn promotion move.
+	 * @param move is move code.
+	 * @return true if promotion, false otherwise.
+	 */
+	public static boolean isPromotion(final int move)
+	{
+		return (move & PROMOTION) != 0;
+	}
+	/**
+	 * Checks is this castling move.
+	 * @param move is move code.
+	 * @return true if castling, false otherwise.
+	 */
+	public static boolean isCastling(final int move)
+	{
+		return (move & CASTLING) != 0;
+	}
+	/**
+	 * Returns initial field of the rook which takes part in castling.
+	 * @param move is castling move code.
+	 * @return rook source field.
+	 */
+	public static int getCastlingRookSource(final int move)
+	{
+		return getTarget(move) > getSource(move) ? getSource(move) + 3 : getSource(move) - 4;
+	}
+	/**
+	 * Returns field on which rook stands after castling.
+	 * @param move is castling move code.
+	 * @return rook target field.
+	 */
+	public static int getCastlingRookTarget(final int move)
+	{
+		return (getSource(move) + getTarget(move)) / 2;
+	}
+	/**
+	 * This method packs move code into 16 bits: source, target and
+	 * promotion flag.
+	 * @param move is move code.
+	 * @return 16-bit move code.
+	 */
+	public static short toCompact(final int move)
+	{
+		return (short) ((move & 0xFFF) | (isPromotion(move) ? COMPACT_PROMOTION : 0));
+	}
+	/**
+	 * This method packs move given by its fields into 16 bits.
+	 * @param from is source field of the moved piece.
+	 * @param to is target field of the moved piece.
+	 * @param promotion is true for pawn promotion move.
+	 * @return 16-bit move code.
+	 */
+	public static short toCompact(final int from, final int to, final boolean promotion)
+	{
+		return (short) (from | (to << 6) | (promotion ? COMPACT_PROMOTION : 0));
+	}
+	/**
+	 * This method restores full move code from its 16-bit form, taking
+	 * pieces from the position in which the move is to be played. Promotion
+	 * is always to the queen. Move is not checked for legality.
+	 * @param compactMove is 16-bit move code.
+	 * @param position is position in which move is to be played.
+	 * @return move code, NO_MOVE if there is no piece on source field.
+	 */
+	public static int fromCompact(final short compactMove, final Position position)
+	{
+		final int from = compactMove & 0x3F;
+		final int to = (compactMove >>> 6) & 0x3F;
+		final int movedCode = position.getPieceCode(from);
+		if(movedCode == Position.NO_PIECE || from == to)
+			return NO_MOVE;
+		final int movedType = Position.typeOf(movedCode);
+		int flags = 0;
+		int capturedType = 0;
+		int promotionType = 0;
+		if(position.getPieceCode(to) != Position.NO_PIECE)
+		{
+			flags |= CAPTURE;
+			capturedType = Position.typeOf(position.getPieceCode(to));
+		}
+		if((compactMove & COMPACT_PROMOTION) != 0)
+		{
+			flags |= PROMOTION;
+			promotionType = Position.QUEEN;
+		}
+		if(movedType == Position.KING && Math.abs(to - from) == 2)
+			flags |= CASTLING;
+		return encode(from, to, movedType, capturedType, promotionType, flags);
+	}
+	/**
+	 * This method converts Move object into move code.
+	 * @param move is Move object.
+	 * @return move code, NO_MOVE for empty move.
+	 */
+	public static int fromMove(final Move move)
+	{
+		if(move.isEmptyMove())
+			return NO_MOVE;
+		final int movedType = move.getMovedPiece().getPieceType().ordinal();
+		if(move.isCastlingMove())
+			return encode(move.getSourcePosition(), move.getTargetPosition(), movedType, 0, 0, CASTLING);
+		if(move instanceof PawnPromotionMove)
+			return encode(move.getSourcePosition(), move.getTargetPosition(), movedType, 0, Position.QUEEN, PROMOTION);
+		if(move.isAttackMove() && move.getAttackedPiece() != null)
+			return encode(move.getSourcePosition(), move.getTargetPosition(), movedType,
+					move.getAttackedPiece().getPieceType().ordinal(), 0, CAPTURE);
+		return encode(move.getSourcePosition(), move.getTargetPosition(), movedType, 0, 0, 0);
+	}
+	/**
+	 * This method converts move code into Move object bound to the given
+	 * board. Pieces are taken from the board fields, so the move has to be
+	 * converted in the position it is to be played in.
+	 * @param move is move code.
+	 * @param board is board on which Move object is to be executed.
+	 * @return Move object, EmptyMove for NO_MOVE.
+	 */
+	public static Move toMove(final int move, final Board board)
+	{
+		if(move == NO_MOVE)
+			return new EmptyMove();
+		final int from = getSource(move);
+		final int to = getTarget(move);
+		final Piece movedPiece = board.getPieceOnField(from);
+		if(isCastling(move))
+			return new CastlingMove(board, movedPiece, from, to, getCastlingRookSource(move));
+		if(isPromotion(move))
+			return new PawnPromotionMove(board, movedPiece, from, to);
+		if(isCapture(move))
+			return new AttackMove(board, movedPiece, board.getPieceOnField(to), from, to);
+		return new CommonMove(board, movedPiece, from, to);
+	}
+	/**
+	 * This method returns description of the move in the long algebraic
+	 * notation (e.g. e2e4, e7e8q).
+	 * @param move is move code.
+	 * @return move description, "0000" for NO_MOVE.
+	 */
+	public static String toString(final int move)
+	{
+		if(move == NO_MOVE)
+			return "0000";
+		final int from = getSource(move);
+		final int to = getTarget(move);
+		final StringBuilder description = new StringBuilder(5);
+		description.append((char) ('a' + from % 8)).append((char) ('1' + from / 8));
+		description.append((char) ('a' + to % 8)).append((char) ('1' + to / 8));
+		if(isPromotion(move))
+			description.append('q');
+		return description.toString();
+	}
+	/**
+	 * This method finds legal move of the side to move described in the
+	 * long algebraic notation (e.g. e2e4, e7e8q).
+	 * @param description is move description.
+	 * @param position is position in which move is to be played.
+	 * @return move code, NO_MOVE if there is no such legal move.
+	 */
+	public static int parse(final String description, final Position position)
+	{
+		final MoveList legalMoves = new MoveList();
+		MoveGenerator.generateLegalMoves(position, legalMoves);
+		for(int i = 0; i < legalMoves.size(); i++)
+		{
+			if(toString(legalMoves.get(i)).equals(description))
+				return legalMoves.get(i);
+		}
+		return NO_MOVE;
+	}
+}
@@ -0,0 +1,153 @@
+package chess.model.game;
+
+/**
+ * This is class which represents reusable list of move codes (see
+ * MoveCode) backed by primitive int array. Search keeps one list per
+ * ply and clears it instead of allocating new collection for every
+ * generated position. Every move has also ordering score, which is
+ * used by the search to pick the most promising moves first.
+ *
+ * @author Piotr Poskart
+ *
+ */
+public final class MoveList
+{
+	/** Capacity which is enough for any legal chess position */
+	public static final int MAX_MOVES = 256;
+	/** Array of move codes */
+	private final int[] moves;
+	/** Array of ordering scores of the moves */
+	private final int[] scores;
+	/** Number of moves in the list */
+	private int size;
+
+	/**
+	 * MoveList constructor. Creates empty list with MAX_MOVES capacity.
+	 */
+	public MoveList()
+	{
+		moves = new int[MAX_MOVES];
+		scores = new int[MAX_MOVES];
+		size = 0;
+	}
+	/**
+	 * This method creates one move list for every ply of the search.
+	 * @param maxPly is number of plies.
+	 * @return array of empty move lists.
+	 */
+	public static MoveList[] createPlyBuffers(final int maxPly)
+	{
+		final MoveList[] buffers = new MoveList[maxPly];
+		for(int i = 0; i < maxPly; i++)
+			buffers[i] = new MoveList();
+		return buffers;
+	}
+	/**
+	 * This method removes all moves from the list.
+	 */
+	public void clear()
+	{
+		size = 0;
+	}
+	/**
+	 * This method appends move code to the list.
+	 * @param move is move code.
+	 */
+	public void add(final int move)
+	{
+		moves[size++] = move;
+	}
+	/**
+	 * This method returns move code with given index.
+	 * @param index is index of the move.
+	 * @return move code.
+	 */
+	public int get(final int index)
+	{
+		return moves[index];
+	}
+	/**
+	 * This method replaces move code with given index.
+	 * @param index is index of the move.
+	 * @param move is new move code.
+	 */
+	public void set(final int index, final int move)
+	{
+		moves[index] = move;
+	}
+	/**
+	 * This method returns ordering score of the move with given index.
+	 * @param index is index of the move.
+	 * @return ordering score.
+	 */
+	public int getScore(final int index)
+	{
+		return scores[index];
+	}
+	/**
+	 * This method sets ordering score of the move with given index.
+	 * @param index is index of the move.
+	 * @param score is ordering score, greater for more promising moves.
+	 */
+	public void setScore(final int index, final int score)
+	{
+		scores[index] = score;
+	}
+	/**
+	 * This method moves the move with the highest score among moves from
+	 * given index to the end of the list to this index. It is one step of
+	 * the selection sort, so the list is sorted only as far as the moves
+	 * are actually searched.
+	 * @param index is index of the first not picked move.
+	 * @return picked move code.
+	 */
+	public int pickBest(final int index)
+	{
+		int bestIndex = index;
+		for(int i = index + 1; i < size; i++)
+		{
+			if(scores[i] > scores[bestIndex])
+				bestIndex = i;
+		}
+		final int move = moves[bestIndex];
+		if(bestIndex != index)
+		{
+			final int score = scores[bestIndex];
+			moves[bestIndex] = moves[index];
+			scores[bestIndex] = scores[index];
+			moves[index] = move;
+			scores[index] = score;
+		}
+		return move;
+	}
+	/**
+	 * This method returns number of moves in the list.
+	 * @return number of moves.
+	 */
+	public int size()
+	{
+		return size;
+	}
+	/**
+	 * Checks if list is empty.
+	 * @return true if there are no moves, false otherwise.
+	 */
+	public boolean isEmpty()
+	{
+		return size == 0;
+	}
+	/**
+	 * This method checks if list contains given move code.
+	 * @param move is move code.
+	 * @return true if move is in the list, false otherwise.
+	 */
+	public boolean contains(final int move)
+	{
+		for(int i = 0; i < size; i++)
+		{
+			if(moves[i] == move)
+				return true;
+		}
+		return false;
+	}
+}
@@ -3,6 +3,7 @@ package chess.model.pieces;
 import java.util.ArrayList;
 import java.util.List;
 import chess.model.common.Alliance;
+import chess.model.board.AttackTables;
 import chess.model.board.Board;
 import chess.model.game.Move;
 import chess.model.game.Move.AttackMove;
@@ -16,7 +17,6 @@ import chess.model.game.Move.CastlingMove;
  */
 public class King extends Piece 
 {
-	private static final int[] possibleMoveOffset = {-9, -8, -7, -1, 1, 7, 8, 9};
 	/**
 	 * King constructor, initializes king piece with alliance and given position
 	 * 
@@ -51,12 +51,15 @@ public class King extends Piece
 	public List<Move> findPossibleAttackMoves(final Board board)
 	{
 		List<Move> possibleMovesList = new ArrayList<>();
+		long targets = AttackTables.kingAttacks(position)
+				& ~board.getPosition().getAllianceOccupancy(alliance.ordinal());
 		int potentialAbsolutePosition;
 		
-		for(int offset : possibleMoveOffset)
+		while(targets != 0)
 		{
-			potentialAbsolutePosition = position + offset;
-			if(isPositionValidTargetForKing(board, position, potentialAbsolutePosition))
+			potentialAbsolutePosition = Long.numberOfTrailingZeros(targets);
+			targets &= targets - 1;
+			if(isPositionValidTargetForKing(board, potentialAbsolutePosition))
 			{
 				if(board.isBoardFieldOccupied(potentialAbsolutePosition))
 				{
@@ -71,50 +74,27 @@ public class King extends Piece
 		}
 		return possibleMovesList;
 	}
-	
-	private final boolean isPositionValidTargetForKing(Board board, int currentPosition, int targetPosition)
+	/**
+	 * Checks if king can step on the given neighbouring field, which is
+	 * not occupied by the pieces of its own alliance. When king's alliance
+	 * is active, field must not be under attack of the enemy.
+	 * 
+	 * @param board board object used in the game
+	 * @param targetPosition position of the neighbouring field
+	 * @return true if king can move on target field, false otherwise
+	 */
+	private final boolean isPositionValidTargetForKing(Board board, int targetPosition)
 	{
-		/*
-		 * Check upper and bottom border
-		 */
-		if(Board.isPositionOutOfTheBoardLinear(targetPosition))
-			return false;
-		/*
-		 * Check right and left border
-		 */
-		if(Board.isNewPositionCrossingTheBoard(currentPosition, targetPosition))
-			return false;
-		/*
-		 * Check if is not occupied by the same alliance
-		 */
-		if(board.isBoardFieldOccupied(targetPosition) && 
-				board.getPieceOnField(targetPosition).getAlliance() == alliance)
-			return false;
 		/*
 		 * Check if there will be no check in target field
 		 */
 		if(board.getActiveAlliance() == getAlliance())
 		{
 			/* 
-			 * Temporarily remove this king piece from its field to check
-			 *  if each of the field surrounding it could be under attack 
+			 * This king piece is excluded from the attack rays, so fields
+			 * on the line of the attack behind the king are also checked
 			 */
-			board.removePieceFromField(this, this.position);
-			boolean tmpIsValidPositionForKing;
-			boolean isTargetFieldOccupied = board.isBoardFieldOccupied(targetPosition);
-			Piece targetPositionEnemyPiece = null;
-			if(isTargetFieldOccupied)
-				targetPositionEnemyPiece = board.removePieceFromField(
-						board.getPieceOnField(targetPosition), targetPosition);
-			if(board.isFieldUnderAttack(targetPosition, getAlliance()))
-				tmpIsValidPositionForKing = false;
-			else
-				tmpIsValidPositionForKing = true;
-			
-			if(isTargetFieldOccupied)
-				board.putPieceOnField(targetPositionEnemyPiece, targetPosition);
-			board.putPieceOnField(this, this.position);
-			return tmpIsValidPositionForKing;
+			return !board.isFieldUnderAttackWithout(targetPosition, this);
 		}
 		return true;
 	}
@@ -4,10 +4,9 @@ import java.util.ArrayList;
 import java.util.List;
 
 import chess.model.common.Alliance;
+import chess.model.board.AttackTables;
 import chess.model.board.Board;
 import chess.model.game.Move;
-import chess.model.game.Move.AttackMove;
-import chess.model.game.Move.CommonMove;
 
 /**
  * This class represents Knight piece. It defines methods to 
@@ -17,9 +16,6 @@ import chess.model.game.Move.CommonMove;
  */
 public class Knight extends Piece
 {
-	/** Table of offsets which defines possible Knight moves on
-	 * the linear positioned board fields */
-	private static final int[] possibleMoveOffset = {-17, -15, -10, -6, 6, 10, 15, 17};
 	/**
 	 * Knight constructor which takes position and alliance of new Knight.
 	 * @param position is position of new Knight
@@ -39,25 +35,9 @@ public class Knight extends Piece
 	@Override
 	public final List<Move> findPossibleMoves(final Board board)
 	{
-		List<Move> possibleMovesList = new ArrayList<>();
-		int potentialAbsolutePosition;
-		for(int offset : possibleMoveOffset)
-		{
-			potentialAbsolutePosition = this.position + offset;
-			if(board.isFieldValid(potentialAbsolutePosition) && 
-					!isKnightPotentialPositionCrossingBorder(position, potentialAbsolutePosition))
-			{
-				if(board.isBoardFieldOccupied(potentialAbsolutePosition))
-				{
-					if(board.getPieceOnField(potentialAbsolutePosition).alliance != alliance)
-						possibleMovesList.add(new AttackMove(board, this, board.getPieceOnField(potentialAbsolutePosition),
-								position, potentialAbsolutePosition));
-				}
-				else
-					possibleMovesList.add(new CommonMove(board, this, position, potentialAbsolutePosition));
-			}
-		}
-		return possibleMovesList;
+		final long targets = AttackTables.knightAttacks(position)
+				& ~board.getPosition().getAllianceOccupancy(alliance.ordinal());
+		return addMovesToTargets(board, this, targets, new ArrayList<>(Long.bitCount(targets)));
 	}
 	/**
 	 * Knight specific method which return set of possible attack moves which Knight
@@ -81,27 +61,4 @@ public class Knight extends Piece
 	{
 		return PieceType.KNIGHT.toString();
 	}
-	/**
-	 * Auxiliary method which checks whether or not this king's new potential position
-	 * is crossing the border according to current position.
-	 * @param currentPosition is current position of the Knight
-	 * @param targetPosition is target position of the Knight
-	 * @return true if move from current to target position crosses the board border,
-	 * false otherwise.
-	 */
-	private final boolean isKnightPotentialPositionCrossingBorder(
-			final int currentPosition,
-			final int targetPosition)
-	{
-		if(currentPosition % 8 == 6 && targetPosition % 8 == 0)
-			return true;
-		if(currentPosition % 8 == 7 && (targetPosition % 8 == 0 || targetPosition % 8 == 1))
-			return true;
-		if(currentPosition % 8 == 1 && targetPosition % 8 == 7)
-			return true;
-		if(currentPosition % 8 == 0 && (targetPosition % 8 == 7 || targetPosition % 8 == 6))
-			return true;
-
-		return false;
-	}
 }
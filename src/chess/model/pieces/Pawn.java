@@ -3,6 +3,7 @@ package chess.model.pieces;
 import java.util.ArrayList;
 import java.util.List;
 import chess.model.common.Alliance;
+import chess.model.board.AttackTables;
 import chess.model.board.Board;
 import chess.model.game.Move;
 import chess.model.game.Move.AttackMove;
@@ -66,16 +67,17 @@ public class Pawn extends Piece
 			}
 		}
 		/*
-		 * Capturing fields (diagonal)
+		 * Capturing fields (diagonal) occupied by the enemy pieces
 		 */
-		potentialAbsolutePosition = position + alliance.getDirection()*7;
-		if(isFieldValidToCapture(board, position, potentialAbsolutePosition))
-			possibleMovesList.add(new AttackMove(board, this, board.getPieceOnField(potentialAbsolutePosition),
-					position, potentialAbsolutePosition));
-		potentialAbsolutePosition = position + alliance.getDirection()*9;
-		if(isFieldValidToCapture(board, position, potentialAbsolutePosition))
+		long targets = AttackTables.pawnAttacks(alliance.ordinal(), position)
+				& board.getPosition().getAllianceOccupancy(alliance.getContraryAlliance().ordinal());
+		while(targets != 0)
+		{
+			potentialAbsolutePosition = Long.numberOfTrailingZeros(targets);
 			possibleMovesList.add(new AttackMove(board, this, board.getPieceOnField(potentialAbsolutePosition),
 					position, potentialAbsolutePosition));
+			targets &= targets - 1;
+		}
 		
 		return possibleMovesList;
 	}
@@ -89,44 +91,22 @@ public class Pawn extends Piece
 	@Override	
 	public List<Move> findPossibleAttackMoves(final Board board)
 	{
-		List<Move> possibleMovesList = new ArrayList<>();
+		List<Move> possibleMovesList = new ArrayList<>(2);
 		int potentialAbsolutePosition;
 		/*
 		 * Capturing fields (diagonal)
 		 */
-		potentialAbsolutePosition = position + alliance.getDirection()*7;
-		if(!Board.isPositionOutOfTheBoardLinear(potentialAbsolutePosition) &&
-				!Board.isNewPositionCrossingTheBoard(position, potentialAbsolutePosition))
-			possibleMovesList.add(new AttackMove(board, this, board.getPieceOnField(potentialAbsolutePosition),
-					position, potentialAbsolutePosition));
-		potentialAbsolutePosition = position + alliance.getDirection()*9;
-		if(!Board.isPositionOutOfTheBoardLinear(potentialAbsolutePosition) &&
-				!Board.isNewPositionCrossingTheBoard(position, potentialAbsolutePosition))
+		long targets = AttackTables.pawnAttacks(alliance.ordinal(), position);
+		while(targets != 0)
+		{
+			potentialAbsolutePosition = Long.numberOfTrailingZeros(targets);
 			possibleMovesList.add(new AttackMove(board, this, board.getPieceOnField(potentialAbsolutePosition),
 					position, potentialAbsolutePosition));
+			targets &= targets - 1;
+		}
 		
 		return possibleMovesList;
 	}
-	/**
-	 * This method checks if given target position is valid to move on.
-	 * @param board reference to the board object
-	 * @param currentPosition current position of this pawn
-	 * @param targetPosition target position of this pawn
-	 * @return true if target position is valid to move on, false otherwise.
-	 */
-	private final boolean isFieldValidToCapture(
-			Board board, final int currentPosition, final int targetPosition)
-	{
-		if(Board.isPositionOutOfTheBoardLinear(targetPosition) ||
-				Board.isNewPositionCrossingTheBoard(currentPosition, targetPosition))
-			return false;
-
-		if(board.isBoardFieldOccupied(targetPosition) && 
-				board.getPieceOnField(targetPosition).getAlliance() != getAlliance())
-			return true;	
-		
-		return false;
-	}
 	/**
 	 * This is toString method specific for Pawn object. it returns String 
 	 * with letter 'P' of the Pawn piece.
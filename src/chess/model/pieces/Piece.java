@@ -4,6 +4,8 @@ import java.util.List;
 import chess.model.common.Alliance;
 import chess.model.board.Board;
 import chess.model.game.Move;
+import chess.model.game.Move.AttackMove;
+import chess.model.game.Move.CommonMove;
 
 /**
  * This is abstract class which is the base for all
@@ -36,6 +38,42 @@ public abstract class Piece
 		this.alliance = pieceAlliance;
 		this.afterFirstMove = false;
 	}
+	/**
+	 * This method creates new piece of the given type.
+	 * @param type is type of the new piece.
+	 * @param position is position of the new piece.
+	 * @param alliance is alliance of the new piece.
+	 * @return new piece object.
+	 */
+	public static Piece createPiece(final PieceType type, final int position, final Alliance alliance)
+	{
+		switch(type)
+		{
+			case PAWN:
+				return new Pawn(position, alliance);
+			case BISHOP:
+				return new Bishop(position, alliance);
+			case KNIGHT:
+				return new Knight(position, alliance);
+			case ROOK:
+				return new Rook(position, alliance);
+			case QUEEN:
+				return new Queen(position, alliance);
+			default:
+				return new King(position, alliance);
+		}
+	}
+	/**
+	 * This method creates independent copy of this piece with the same
+	 * type, position, alliance and first move flag.
+	 * @return copy of this piece.
+	 */
+	public Piece copy()
+	{
+		final Piece copy = createPiece(pieceType, position, alliance);
+		copy.setFirstMoveFlag(afterFirstMove);
+		return copy;
+	}
 	/**
 	 * Abstract method which return set of possible moves which specific piece
 	 * can perform.
@@ -51,6 +89,33 @@ public abstract class Piece
 	 * attack moves. 
 	 */
 	public abstract List<Move> findPossibleAttackMoves(final Board board);
+	/**
+	 * This method adds moves of the given piece to all target fields set
+	 * in the given mask. Occupied target fields result in attack moves,
+	 * empty ones in common moves.
+	 * @param board is reference to the board object
+	 * @param examinedPiece is piece which is moved.
+	 * @param targets is mask of the target fields, without fields occupied
+	 * by the pieces of the examined piece alliance.
+	 * @param possibleMovesList is list to which moves are added.
+	 * @return list with added moves.
+	 */
+	protected static final List<Move> addMovesToTargets(final Board board, final Piece examinedPiece,
+			long targets, final List<Move> possibleMovesList)
+	{
+		final int sourcePosition = examinedPiece.getPosition();
+		while(targets != 0)
+		{
+			final int targetPosition = Long.numberOfTrailingZeros(targets);
+			final Piece targetPiece = board.getPieceOnField(targetPosition);
+			if(targetPiece != null)
+				possibleMovesList.add(new AttackMove(board, examinedPiece, targetPiece, sourcePosition, targetPosition));
+			else
+				possibleMovesList.add(new CommonMove(board, examinedPiece, sourcePosition, targetPosition));
+			targets &= targets - 1;
+		}
+		return possibleMovesList;
+	}
 	/**
 	 * This method returns position of this piece.
 	 * @return position of piece.
@@ -3,6 +3,7 @@ package chess.model.pieces;
 import java.util.ArrayList;
 import java.util.List;
 import chess.model.common.Alliance;
+import chess.model.board.AttackTables;
 import chess.model.board.Board;
 import chess.model.game.Move;
 /**
@@ -25,17 +26,17 @@ public class Queen extends Piece
 	}
 	/**
 	 * Queen specific method which returns set of possible moves which Queen
-	 * can perform. It consists of Bishop and Rook moves.
+	 * can perform. It consists of Bishop and Rook moves, so its targets are
+	 * union of the rook and bishop attack tables.
 	 * @param board is reference to the board object
 	 * @return container of Move object which this Queen can perform.
 	 */
 	@Override
 	public List<Move> findPossibleMoves(Board board) 
 	{
-		List<Move> possibleMovesList = new ArrayList<>();
-		possibleMovesList = Rook.findPossibleRookPieceMoves(board, this);
-		possibleMovesList.addAll(Bishop.findPossibleBishopPieceMoves(board, this));
-		return possibleMovesList;
+		final long targets = AttackTables.queenAttacks(position, board.getPosition().getOccupancy())
+				& ~board.getPosition().getAllianceOccupancy(alliance.ordinal());
+		return addMovesToTargets(board, this, targets, new ArrayList<>(Long.bitCount(targets)));
 	}
 	/**
 	 * Queen specific method which return set of possible attack moves which Queen
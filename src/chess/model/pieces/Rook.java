@@ -3,10 +3,9 @@ package chess.model.pieces;
 import java.util.ArrayList;
 import java.util.List;
 import chess.model.common.Alliance;
+import chess.model.board.AttackTables;
 import chess.model.board.Board;
 import chess.model.game.Move;
-import chess.model.game.Move.AttackMove;
-import chess.model.game.Move.CommonMove;
 
 /**
 * This class represents Rook piece. It defines methods to 
@@ -39,90 +38,17 @@ public class Rook extends Piece
 	}
 	/**
 	 * Static method which compute all possible rook moves for the given piece
-	 * on specific position.
+	 * on specific position. Horizontal and vertical rays are taken from the
+	 * attack tables.
 	 * @param board is reference to the board object
 	 * @param examinedPiece is rook piece which moves are desired.
 	 * @return list of Move object which are possible rook moves.
 	 */
 	public static final List<Move> findPossibleRookPieceMoves(final Board board, final Piece examinedPiece)
 	{
-		List<Move> possibleMovesList = new ArrayList<>();
-		int potentialAbsolutePosition, previouslyCheckedPosition;
-		/*
-		 * Add possible fields on the right
-		 */
-		previouslyCheckedPosition = examinedPiece.getPosition();
-		potentialAbsolutePosition = previouslyCheckedPosition + 1;
-		while(!Board.isNewPositionCrossingTheBoard(previouslyCheckedPosition, potentialAbsolutePosition)
-				&& board.isFieldValid(potentialAbsolutePosition))
-		{
-			if(board.isBoardFieldOccupied(potentialAbsolutePosition))
-			{
-				if(board.getPieceOnField(potentialAbsolutePosition).alliance != examinedPiece.getAlliance())
-					possibleMovesList.add(new AttackMove(board, examinedPiece, board.getPieceOnField(potentialAbsolutePosition), 
-							examinedPiece.getPosition(), potentialAbsolutePosition));
-				break;
-			}
-			possibleMovesList.add(new CommonMove(board, examinedPiece, examinedPiece.getPosition(), potentialAbsolutePosition));
-			previouslyCheckedPosition = potentialAbsolutePosition;
-			potentialAbsolutePosition++;
-		}
-		/*
-		 * Add possible fields on the left
-		 */
-		previouslyCheckedPosition = examinedPiece.getPosition();
-		potentialAbsolutePosition = previouslyCheckedPosition - 1;
-		while(!Board.isNewPositionCrossingTheBoard(previouslyCheckedPosition, potentialAbsolutePosition)
-				&& board.isFieldValid(potentialAbsolutePosition))
-		{
-			if(board.isBoardFieldOccupied(potentialAbsolutePosition))
-			{
-				if(board.getPieceOnField(potentialAbsolutePosition).alliance != examinedPiece.getAlliance())
-					possibleMovesList.add(new AttackMove(board, examinedPiece, board.getPieceOnField(potentialAbsolutePosition), 
-							examinedPiece.getPosition(), potentialAbsolutePosition));
-				break;
-			}
-			possibleMovesList.add(new CommonMove(board, examinedPiece, examinedPiece.getPosition(), potentialAbsolutePosition));
-			previouslyCheckedPosition = potentialAbsolutePosition;
-			potentialAbsolutePosition--;
-		}
-		/*
-		 * Add possible fields above
-		 */
-		previouslyCheckedPosition = examinedPiece.getPosition();
-		potentialAbsolutePosition = previouslyCheckedPosition + 8;
-		while(board.isFieldValid(potentialAbsolutePosition))
-		{
-			if(board.isBoardFieldOccupied(potentialAbsolutePosition))
-			{
-				if(board.getPieceOnField(potentialAbsolutePosition).alliance != examinedPiece.getAlliance())
-					possibleMovesList.add(new AttackMove(board, examinedPiece, board.getPieceOnField(potentialAbsolutePosition), 
-							examinedPiece.getPosition(), potentialAbsolutePosition));
-				break;
-			}
-			possibleMovesList.add(new CommonMove(board, examinedPiece, examinedPiece.getPosition(), potentialAbsolutePosition));
-			previouslyCheckedPosition = potentialAbsolutePosition;
-			potentialAbsolutePosition += 8;
-		}
-		/*
-		 * Add possible fields on the bottom
-		 */
-		previouslyCheckedPosition = examinedPiece.getPosition();
-		potentialAbsolutePosition = previouslyCheckedPosition - 8;
-		while(board.isFieldValid(potentialAbsolutePosition))
-		{
-			if(board.isBoardFieldOccupied(potentialAbsolutePosition))
-			{
-				if(board.getPieceOnField(potentialAbsolutePosition).alliance != examinedPiece.getAlliance())
-					possibleMovesList.add(new AttackMove(board, examinedPiece, board.getPieceOnField(potentialAbsolutePosition), 
-							examinedPiece.getPosition(), potentialAbsolutePosition));
-				break;
-			}
-			possibleMovesList.add(new CommonMove(board, examinedPiece, examinedPiece.getPosition(), potentialAbsolutePosition));
-			previouslyCheckedPosition = potentialAbsolutePosition;
-			potentialAbsolutePosition -= 8;
-		}
-		return possibleMovesList;
+		final long targets = AttackTables.rookAttacks(examinedPiece.getPosition(), board.getPosition().getOccupancy())
+				& ~board.getPosition().getAllianceOccupancy(examinedPiece.getAlliance().ordinal());
+		return addMovesToTargets(board, examinedPiece, targets, new ArrayList<>(Long.bitCount(targets)));
 	}
 	/**
 	 * Rook specific method which return set of possible attack moves which Rook
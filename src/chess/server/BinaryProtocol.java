@@ -0,0 +1,144 @@
+package chess.server;
+
+/**
+ * This is class which defines binary framing of the chess server
+ * protocol. Client which wants it sends text line BINARY (best at once
+ * after connection) and must not send anything else until the answer: the
+ * server answers with the text line BINARY OK and from the next byte on
+ * both sides send only binary frames. Servers which do not know binary
+ * framing never answer and the client goes on in the text protocol, it may
+ * not send moves before the answer only to the servers knowing it. Server
+ * puts the client into the matchmaking queue only after its first line
+ * (or ServerProtocol.NEGOTIATION_TIMEOUT), so BINARY sent at once gets
+ * its answer before any match message.
+ * <p>
+ * Frame is one byte opcode followed by the fixed number of payload bytes:
+ * <pre>
+ * MOVE          2 bytes - 16-bit move code (MoveCode.toCompact), big-endian
+ * ALLIANCE      1 byte  - 'W' or 'B'
+ * START, YOUR_MOVE, OPPONENT_MOVE, DISCONNECT, SERVER_CLOSE, QUIT, NO_OPPONENT
+ *               no payload
+ * REJECT        1 byte  - ordinal of Match.Result
+ * SEEK          6 bytes - rating, minutes, increment (2 bytes each)
+ * </pre>
+ * Framing is chosen by every client for itself, so binary and text clients
+ * play together. Moves are relayed between binary clients as received,
+ * they are neither converted nor decoded into String; only moves between
+ * clients of different framing are encoded again by the server.
+ *
+ * @author Piotr Poskart
+ *
+ */
+public final class BinaryProtocol
+{
+	/** Text line requesting binary framing */
+	public static final String REQUEST = "BINARY";
+	/** Text line accepting binary framing */
+	public static final String ACCEPTED = "BINARY OK";
+	/** Opcodes of the frames */
+	public static final byte MOVE = 1;
+	public static final byte ALLIANCE = 2;
+	public static final byte START = 3;
+	public static final byte YOUR_MOVE = 4;
+	public static final byte OPPONENT_MOVE = 5;
+	public static final byte DISCONNECT = 6;
+	public static final byte SERVER_CLOSE = 7;
+	public static final byte QUIT = 8;
+	public static final byte REJECT = 9;
+	public static final byte NO_OPPONENT = 10;
+	public static final byte SEEK = 11;
+	/** Maximal length of the frame in bytes */
+	public static final int MAX_FRAME_LENGTH = 7;
+	/** Lengths of the frames (with opcode) indexed by opcode, 0 for unknown */
+	private static final int[] FRAME_LENGTHS = {0, 3, 2, 1, 1, 1, 1, 1, 1, 2, 1, 7};
+
+	private BinaryProtocol() {}
+
+	/**
+	 * This method returns length of the frame.
+	 * @param opcode is opcode of the frame.
+	 * @return length of the frame in bytes, -1 for unknown opcode.
+	 */
+	public static int frameLength(final int opcode)
+	{
+		return opcode > 0 && opcode < FRAME_LENGTHS.length ? FRAME_LENGTHS[opcode] : -1;
+	}
+	/**
+	 * This method creates frame without payload.
+	 * @param opcode is opcode of the frame.
+	 * @return frame bytes.
+	 */
+	public static byte[] frame(final byte opcode)
+	{
+		return new byte[] {opcode};
+	}
+	/**
+	 * This method creates move frame.
+	 * @param compactMove is 16-bit move code.
+	 * @return frame bytes.
+	 */
+	public static byte[] moveFrame(final short compactMove)
+	{
+		return new byte[] {MOVE, (byte) (compactMove >>> 8), (byte) compactMove};
+	}
+	/**
+	 * This method reads move from the move frame.
+	 * @param frame is buffer with the frame.
+	 * @param offset is index of the frame opcode in the buffer.
+	 * @return 16-bit move code.
+	 */
+	public static short readMove(final byte[] frame, final int offset)
+	{
+		return (short) (((frame[offset + 1] & 0xFF) << 8) | (frame[offset + 2] & 0xFF));
+	}
+	/**
+	 * This method creates alliance frame.
+	 * @param mark is mark of the player alliance, 'W' or 'B'.
+	 * @return frame bytes.
+	 */
+	public static byte[] allianceFrame(final char mark)
+	{
+		return new byte[] {ALLIANCE, (byte) mark};
+	}
+	/**
+	 * This method creates frame rejecting the move.
+	 * @param result is result of the move check.
+	 * @return frame bytes.
+	 */
+	public static byte[] rejectFrame(final Match.Result result)
+	{
+		return new byte[] {REJECT, (byte) result.ordinal()};
+	}
+	/**
+	 * This method reads result of the move check from the reject frame.
+	 * @param reason is payload byte of the reject frame.
+	 * @return result of the move check, ILLEGAL_MOVE for unknown reason.
+	 */
+	public static Match.Result readResult(final int reason)
+	{
+		final Match.Result[] results = Match.Result.values();
+		return reason >= 0 && reason < results.length ? results[reason] : Match.Result.ILLEGAL_MOVE;
+	}
+	/**
+	 * This method creates seek frame.
+	 * @param rating is rating of the client, Matchmaker.NO_RATING if unknown.
+	 * @param minutes is base time of the sought time control.
+	 * @param increment is increment of the sought time control.
+	 * @return frame bytes.
+	 */
+	public static byte[] seekFrame(final int rating, final int minutes, final int increment)
+	{
+		return new byte[] {SEEK, (byte) (rating >>> 8), (byte) rating, (byte) (minutes >>> 8), (byte) minutes,
+				(byte) (increment >>> 8), (byte) increment};
+	}
+	/**
+	 * This method reads 2-byte unsigned field of the frame.
+	 * @param frame is buffer with the frame.
+	 * @param index is index of the field in the buffer.
+	 * @return field value.
+	 */
+	public static int readUnsignedShort(final byte[] frame, final int index)
+	{
+		return ((frame[index] & 0xFF) << 8) | (frame[index + 1] & 0xFF);
+	}
+}
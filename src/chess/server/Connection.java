@@ -0,0 +1,498 @@
+package chess.server;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+
+import chess.model.game.MoveCode;
+
+/**
+ * This is class which serves one client of the non-blocking server. Bytes
+ * read from the channel are collected in the read buffer and split into
+ * lines ended with '\n' (optionally preceded by '\r'), which are handled
+ * as protocol messages; messages sent to the client are appended to the
+ * write buffer and written when the channel accepts them, so the loop
+ * never blocks on a slow client. Lines are encoded with the default
+ * charset and ended with the line separator of the platform, exactly as
+ * PrintWriter of the thread per client server does. Client which sent
+ * BINARY request is served with binary frames instead of lines (see
+ * BinaryProtocol); its moves are checked from their 16-bit codes. Moves
+ * are relayed as received if both players use the same framing, else the
+ * move checked by the match is sent in the framing of the opponent.
+ * <p>
+ * After registration the client gets ServerProtocol.NEGOTIATION_TIMEOUT
+ * to send its first line, so BINARY or SEEK request is handled before it
+ * can be paired; then it waits in the matchmaking queue until it is
+ * paired. SEEK message moves it to the queue of given rating and time
+ * control, disconnection removes it from the queue.
+ * <p>
+ * Connection is used only by the thread of its event loop. Methods which
+ * may be called by other threads (startMatch(), opponentMoved(),
+ * opponentLeft(), noOpponent()) pass their work to the loop, so the state of the match
+ * is changed only by the loop thread.
+ *
+ * @author Piotr Poskart
+ *
+ */
+final class Connection
+{
+	/** Maximal length of the received line in bytes */
+	private static final int MAX_LINE_LENGTH = 1024;
+	/** Initial size of the write buffer in bytes */
+	private static final int WRITE_BUFFER_SIZE = 256;
+	/** Maximal number of bytes waiting for the slow client */
+	private static final int MAX_PENDING_BYTES = 64 * 1024;
+	/** Charset of the messages */
+	private static final Charset CHARSET = Charset.defaultCharset();
+	/** Line separator appended to the sent messages */
+	private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(CHARSET);
+	/** Empty separator of the frames */
+	private static final byte[] NO_BYTES = new byte[0];
+
+	/** Socket channel of the client */
+	private final SocketChannel channel;
+	/** Event loop serving this connection */
+	private final EventLoop loop;
+	/** Matchmaker pairing the clients */
+	private final Matchmaker<Connection> matchmaker;
+	/** Buffer of the received bytes not handled yet */
+	private final ByteBuffer readBuffer;
+	/** Buffer of the bytes waiting to be written */
+	private ByteBuffer writeBuffer;
+	/** Selection key of the channel, null until registered */
+	private SelectionKey key;
+	/** Place of the client in the matchmaking queue */
+	private Matchmaker.Ticket<Connection> ticket;
+	/** Flag of the client which has entered the matchmaking queue */
+	private boolean queued;
+	/** Mark of the player alliance 'W' or 'B', set when the match starts */
+	private char mark;
+	/** Connection of the opponent, null until the match starts */
+	private Connection opponent;
+	/** State of the match checking the moves, null until the match starts */
+	private Match match;
+	/** Flag of the client using binary frames */
+	private boolean binary;
+	/** Flag of the closed connection */
+	private volatile boolean closed;
+
+	/**
+	 * Connection constructor.
+	 * @param channel is socket channel of the client in non-blocking mode.
+	 * @param loop is event loop serving the connection.
+	 * @param matchmaker is matchmaker pairing the clients.
+	 */
+	Connection(final SocketChannel channel, final EventLoop loop, final Matchmaker<Connection> matchmaker)
+	{
+		this.channel = channel;
+		this.loop = loop;
+		this.matchmaker = matchmaker;
+		readBuffer = ByteBuffer.allocate(MAX_LINE_LENGTH);
+		writeBuffer = ByteBuffer.allocate(WRITE_BUFFER_SIZE);
+	}
+	/**
+	 * This method registers connection with its loop and welcomes the
+	 * client. Client is put into the matchmaking queue after its first line
+	 * or after the negotiation timeout.
+	 */
+	void open()
+	{
+		loop.execute(() ->
+		{
+			try
+			{
+				key = loop.register(this, channel);
+			}
+			catch(IOException e)
+			{
+				close();
+				return;
+			}
+			write(ServerProtocol.WELCOME);
+			loop.schedule(this::enterQueue, ServerProtocol.NEGOTIATION_TIMEOUT);
+		});
+	}
+	/**
+	 * This method starts the match against the opponent: sets the opponent
+	 * and sends alliance, start and prompt messages to the client. It is
+	 * called for white, white's loop starts the match of black, so none of
+	 * the players can be notified about the opponent before its own start.
+	 * If the client has already left, the opponent is notified after its
+	 * start.
+	 * @param opponent is connection of the opponent.
+	 * @param mark is mark of the player alliance.
+	 * @param match is state of the match shared with the opponent.
+	 */
+	void startMatch(final Connection opponent, final char mark, final Match match)
+	{
+		loop.execute(() ->
+		{
+			if(!closed)
+			{
+				this.opponent = opponent;
+				this.mark = mark;
+				this.match = match;
+				ticket = null;
+				if(binary)
+				{
+					writeFrame(BinaryProtocol.allianceFrame(mark));
+					writeFrame(BinaryProtocol.frame(BinaryProtocol.START));
+					writeFrame(BinaryProtocol.frame(mark == ServerProtocol.WHITE ? BinaryProtocol.YOUR_MOVE
+							: BinaryProtocol.OPPONENT_MOVE));
+				}
+				else
+				{
+					write(ServerProtocol.ALLIANCE + mark);
+					write(ServerProtocol.START);
+					write(mark == ServerProtocol.WHITE ? ServerProtocol.prompt(mark) : ServerProtocol.OPPONENT_MOVE);
+				}
+			}
+			if(mark == ServerProtocol.WHITE)
+				opponent.startMatch(this, ServerProtocol.BLACK, match);
+			if(closed)
+				opponent.opponentLeft();
+		});
+	}
+	/**
+	 * This method relays opponent's move to the client and prompts it to
+	 * move. Move is relayed as received by the opponent if the client uses
+	 * the same framing, otherwise it is encoded from the move code.
+	 * @param move is code of the move.
+	 * @param message is move message of the text opponent, null for binary
+	 * opponent.
+	 * @param frame is move frame of the binary opponent, null for text
+	 * opponent.
+	 */
+	void opponentMoved(final int move, final String message, final byte[] frame)
+	{
+		loop.execute(() ->
+		{
+			if(binary)
+			{
+				writeFrame(frame != null ? frame : BinaryProtocol.moveFrame(MoveCode.toCompact(move)));
+				writeFrame(BinaryProtocol.frame(BinaryProtocol.YOUR_MOVE));
+			}
+			else
+			{
+				write(message != null ? message : ServerProtocol.moveMessage(move));
+				write(ServerProtocol.prompt(mark));
+			}
+		});
+	}
+	/**
+	 * This method notifies the client that the opponent left the match.
+	 */
+	void opponentLeft()
+	{
+		notify(ServerProtocol.OPPONENT_DISCONNECTED, BinaryProtocol.DISCONNECT);
+	}
+	/**
+	 * This method notifies the client that no opponent was found in time.
+	 */
+	void noOpponent()
+	{
+		notify(ServerProtocol.NO_OPPONENT, BinaryProtocol.NO_OPPONENT);
+	}
+	/**
+	 * This method notifies the client that the server is shut down. It has
+	 * to be called by the loop thread.
+	 */
+	void serverClosed()
+	{
+		if(binary)
+			writeFrame(BinaryProtocol.frame(BinaryProtocol.SERVER_CLOSE));
+		else
+		{
+			write(ServerProtocol.SERVER_CLOSING);
+			write(ServerProtocol.SERVER_CLOSE);
+		}
+	}
+	/**
+	 * This method reads available bytes from the channel and handles all
+	 * complete lines or frames. Connection is closed at the end of the
+	 * stream, on read error, if the line is too long or if the frame is not
+	 * known.
+	 */
+	void read()
+	{
+		int count;
+		try
+		{
+			count = channel.read(readBuffer);
+		}
+		catch(IOException e)
+		{
+			count = -1;
+		}
+		if(count < 0)
+		{
+			disconnect();
+			return;
+		}
+		final byte[] bytes = readBuffer.array();
+		final int end = readBuffer.position();
+		int start = 0;
+		while(start < end && !closed)
+		{
+			final int length = binary ? handleFrame(bytes, start, end) : handleLine(bytes, start, end);
+			if(length == 0)
+				break;
+			start += length;
+		}
+		if(closed)
+			return;
+		readBuffer.limit(end).position(start);
+		readBuffer.compact();
+		if(!readBuffer.hasRemaining())
+		{
+			System.out.println("Client sent too long line, connection closed");
+			disconnect();
+		}
+	}
+	/**
+	 * This method writes pending bytes to the channel. Write interest is
+	 * kept only while some bytes wait for the client.
+	 */
+	void flush()
+	{
+		if(closed || key == null)
+			return;
+		writeBuffer.flip();
+		try
+		{
+			channel.write(writeBuffer);
+		}
+		catch(IOException e)
+		{
+			writeBuffer.clear();
+			disconnect();
+			return;
+		}
+		final boolean pending = writeBuffer.hasRemaining();
+		writeBuffer.compact();
+		key.interestOps(pending ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+	}
+	/**
+	 * This method closes the connection. It has to be called by the loop
+	 * thread.
+	 */
+	void close()
+	{
+		if(closed)
+			return;
+		flush();
+		closed = true;
+		loop.unregister(this);
+		if(key != null)
+			key.cancel();
+		try {channel.close();} catch (IOException e) {}
+	}
+
+	/**
+	 * This method puts the client into the matchmaking queue with unknown
+	 * rating and any time control, unless it has entered it already or
+	 * the connection is closed.
+	 */
+	private void enterQueue()
+	{
+		if(queued || closed)
+			return;
+		queued = true;
+		ticket = matchmaker.enqueue(this, Matchmaker.NO_RATING, Matchmaker.ANY_TIME_CONTROL);
+	}
+	/**
+	 * This method handles the first line of the received bytes. Client
+	 * enters the matchmaking queue after its first line is handled.
+	 * @param bytes are received bytes.
+	 * @param start is index of the first not handled byte.
+	 * @param end is index after the last received byte.
+	 * @return number of handled bytes, 0 if the line is not complete.
+	 */
+	private int handleLine(final byte[] bytes, final int start, final int end)
+	{
+		for(int i = start; i < end; i++)
+		{
+			if(bytes[i] != '\n')
+				continue;
+			final int lineEnd = i > start && bytes[i - 1] == '\r' ? i - 1 : i;
+			handleMessage(new String(bytes, start, lineEnd - start, CHARSET));
+			enterQueue();
+			return i + 1 - start;
+		}
+		return 0;
+	}
+	/**
+	 * This method handles the first frame of the received bytes: legal moves
+	 * are relayed to the opponent, other are rejected, SEEK moves waiting
+	 * client to another queue, QUIT ends the session. Frames which only
+	 * server sends are ignored, unknown frame closes the connection.
+	 * @param bytes are received bytes.
+	 * @param start is index of the first not handled byte.
+	 * @param end is index after the last received byte.
+	 * @return number of handled bytes, 0 if the frame is not complete.
+	 */
+	private int handleFrame(final byte[] bytes, final int start, final int end)
+	{
+		final int length = BinaryProtocol.frameLength(bytes[start]);
+		if(length < 0)
+		{
+			System.out.println("Client sent unknown frame, connection closed");
+			disconnect();
+			return 0;
+		}
+		if(end - start < length)
+			return 0;
+		switch(bytes[start])
+		{
+			case BinaryProtocol.MOVE:
+				if(opponent == null)
+					break;
+				final Match.Result result = match.play(mark, BinaryProtocol.readMove(bytes, start));
+				if(result != Match.Result.ACCEPTED)
+				{
+					writeFrame(BinaryProtocol.rejectFrame(result));
+					break;
+				}
+				opponent.opponentMoved(match.getLastMove(), null,
+						new byte[] {bytes[start], bytes[start + 1], bytes[start + 2]});
+				writeFrame(BinaryProtocol.frame(BinaryProtocol.OPPONENT_MOVE));
+				break;
+			case BinaryProtocol.SEEK:
+				if(matchmaker.cancel(ticket))
+					ticket = matchmaker.enqueue(this,
+							ServerProtocol.rating(BinaryProtocol.readUnsignedShort(bytes, start + 1)),
+							ServerProtocol.timeControl(BinaryProtocol.readUnsignedShort(bytes, start + 3),
+									BinaryProtocol.readUnsignedShort(bytes, start + 5)));
+				break;
+			case BinaryProtocol.QUIT:
+				disconnect();
+				break;
+			default:
+				break;
+		}
+		return length;
+	}
+	/**
+	 * This method handles message received from the client: legal moves
+	 * are relayed to the opponent, other are rejected, SEEK moves waiting client to another queue,
+	 * BINARY switches client to binary frames, QUIT ends the session.
+	 * @param message is received line.
+	 */
+	private void handleMessage(final String message)
+	{
+		if(message.startsWith(ServerProtocol.MOVE))
+		{
+			if(opponent == null)
+				return;
+			final Match.Result result = match.play(mark, message);
+			if(result != Match.Result.ACCEPTED)
+			{
+				write(ServerProtocol.rejection(result));
+				return;
+			}
+			opponent.opponentMoved(match.getLastMove(), message, null);
+			write(ServerProtocol.OPPONENT_MOVE);
+		}
+		else if(message.startsWith(ServerProtocol.SEEK))
+		{
+			if(!queued || matchmaker.cancel(ticket))
+			{
+				queued = true;
+				ticket = matchmaker.enqueue(this, ServerProtocol.parseRating(message),
+						ServerProtocol.parseTimeControl(message));
+			}
+		}
+		else if(message.equals(BinaryProtocol.REQUEST))
+		{
+			write(BinaryProtocol.ACCEPTED);
+			binary = true;
+		}
+		else
+		{
+			System.out.println(message);
+			if(message.startsWith(ServerProtocol.QUIT))
+				disconnect();
+		}
+	}
+	/**
+	 * This method notifies the opponent that the client left and closes
+	 * the connection.
+	 */
+	private void disconnect()
+	{
+		matchmaker.cancel(ticket);
+		ticket = null;
+		// opponent is forgotten first, its failed notification may disconnect it too
+		final Connection left = opponent;
+		opponent = null;
+		if(left != null)
+			left.opponentLeft();
+		close();
+	}
+	/**
+	 * This method sends notification ending the session to the client. It
+	 * may be called by any thread.
+	 * @param message is message sent to the text client before DISCON line.
+	 * @param opcode is opcode of the frame sent to the binary client.
+	 */
+	private void notify(final String message, final byte opcode)
+	{
+		loop.execute(() ->
+		{
+			if(binary)
+				writeFrame(BinaryProtocol.frame(opcode));
+			else
+			{
+				write(message);
+				write(ServerProtocol.DISCONNECT);
+			}
+		});
+	}
+	/**
+	 * This method appends message line to the write buffer and tries to
+	 * write it at once. Client which does not read the messages is
+	 * disconnected when too many bytes wait for it.
+	 * @param message is message without line separator.
+	 */
+	private void write(final String message)
+	{
+		write(message.getBytes(CHARSET), LINE_SEPARATOR);
+	}
+	/**
+	 * This method appends frame to the write buffer and tries to write it at
+	 * once.
+	 * @param frame is frame bytes.
+	 */
+	private void writeFrame(final byte[] frame)
+	{
+		write(frame, NO_BYTES);
+	}
+	/**
+	 * This method appends bytes to the write buffer.
+	 * @param bytes are encoded message or frame.
+	 * @param separator are bytes ending the message.
+	 */
+	private void write(final byte[] bytes, final byte[] separator)
+	{
+		if(closed)
+			return;
+		final int length = bytes.length + separator.length;
+		if(writeBuffer.remaining() < length)
+		{
+			if(writeBuffer.position() + length > MAX_PENDING_BYTES)
+			{
+				System.out.println("Client does not read messages, connection closed");
+				disconnect();
+				return;
+			}
+			final ByteBuffer buffer = ByteBuffer.allocate(Math.max(2 * writeBuffer.capacity(),
+					writeBuffer.position() + length));
+			writeBuffer.flip();
+			writeBuffer = buffer.put(writeBuffer);
+		}
+		writeBuffer.put(bytes).put(separator);
+		flush();
+	}
+}
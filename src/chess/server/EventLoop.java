@@ -0,0 +1,253 @@
+package chess.server;
+
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * This is class which runs one event loop of the non-blocking server. The
+ * loop waits on its selector for ready channels and serves them on its
+ * own thread, so one loop handles many connections. Connections are
+ * touched only by the thread of their loop; other threads pass work to it
+ * with execute(), which queues the task and wakes the selector up. Delayed
+ * tasks of the loop thread are kept by their deadlines, and the selector
+ * waits at most until the nearest one.
+ *
+ * @author Piotr Poskart
+ *
+ */
+final class EventLoop implements Runnable
+{
+	/** Selector of the channels served by this loop */
+	private final Selector selector;
+	/** Tasks passed from other threads */
+	private final Queue<Runnable> tasks;
+	/** Delayed tasks ordered by deadline, used only by the loop thread */
+	private final PriorityQueue<Timer> timers;
+	/** Connections served by this loop, used only by the loop thread */
+	private final Set<Connection> connections;
+	/** Thread running the loop */
+	private volatile Thread thread;
+	/** Flag of the running loop */
+	private volatile boolean running;
+
+	/**
+	 * EventLoop constructor.
+	 * @throws IOException if selector can not be opened.
+	 */
+	EventLoop() throws IOException
+	{
+		selector = Selector.open();
+		tasks = new ConcurrentLinkedQueue<>();
+		timers = new PriorityQueue<>();
+		connections = new HashSet<>();
+		running = true;
+	}
+	/**
+	 * This method starts the loop on the new thread.
+	 * @param name is name of the loop thread.
+	 */
+	void start(final String name)
+	{
+		thread = new Thread(this, name);
+		thread.start();
+	}
+	/**
+	 * This method waits until the loop thread ends.
+	 * @param millis is maximal waiting time in milliseconds.
+	 * @throws InterruptedException if waiting thread is interrupted.
+	 */
+	void join(final long millis) throws InterruptedException
+	{
+		if(thread != null)
+			thread.join(millis);
+	}
+	/**
+	 * This method checks if it is called by the loop thread.
+	 * @return true if current thread runs this loop.
+	 */
+	boolean inLoop()
+	{
+		return Thread.currentThread() == thread;
+	}
+	/**
+	 * This method runs the task on the loop thread: immediately if it is
+	 * called by the loop thread, otherwise at the next wakeup of the loop.
+	 * @param task is task to be run.
+	 */
+	void execute(final Runnable task)
+	{
+		if(inLoop())
+			task.run();
+		else
+		{
+			tasks.add(task);
+			selector.wakeup();
+		}
+	}
+	/**
+	 * This method runs the task on the loop thread after the delay. It has
+	 * to be called by the loop thread.
+	 * @param task is task to be run.
+	 * @param delay is delay in milliseconds.
+	 */
+	void schedule(final Runnable task, final long delay)
+	{
+		timers.add(new Timer(System.currentTimeMillis() + delay, task));
+	}
+	/**
+	 * This method registers channel accepting connections with this loop.
+	 * @param channel is server channel in non-blocking mode.
+	 * @param acceptor is task accepting ready connections.
+	 * @throws ClosedChannelException if channel is closed.
+	 */
+	void registerAcceptor(final SelectableChannel channel, final Runnable acceptor) throws ClosedChannelException
+	{
+		channel.register(selector, SelectionKey.OP_ACCEPT, acceptor);
+	}
+	/**
+	 * This method registers connection with the selector of this loop. It
+	 * has to be called by the loop thread.
+	 * @param connection is new connection.
+	 * @param channel is socket channel of the connection in non-blocking mode.
+	 * @return selection key of the connection.
+	 * @throws ClosedChannelException if channel is closed.
+	 */
+	SelectionKey register(final Connection connection, final SocketChannel channel) throws ClosedChannelException
+	{
+		connections.add(connection);
+		return channel.register(selector, SelectionKey.OP_READ, connection);
+	}
+	/**
+	 * This method removes closed connection from this loop. It has to be
+	 * called by the loop thread.
+	 * @param connection is closed connection.
+	 */
+	void unregister(final Connection connection)
+	{
+		connections.remove(connection);
+	}
+	/**
+	 * This method notifies all connections of the loop that the server is
+	 * shut down, closes them and ends the loop.
+	 */
+	void shutdown()
+	{
+		execute(() ->
+		{
+			for(Connection connection : new ArrayList<>(connections))
+			{
+				connection.serverClosed();
+				connection.close();
+			}
+			running = false;
+		});
+	}
+	/**
+	 * The run method of the loop. It serves ready channels and tasks until
+	 * the loop is shut down.
+	 */
+	@Override
+	public void run()
+	{
+		thread = Thread.currentThread();
+		try
+		{
+			while(running)
+			{
+				final Timer nearest = timers.peek();
+				if(nearest == null)
+					selector.select();
+				else
+					selector.select(Math.max(1, nearest.deadline - System.currentTimeMillis()));
+				runTasks();
+				runTimers();
+				final Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+				while(keys.hasNext())
+				{
+					final SelectionKey key = keys.next();
+					keys.remove();
+					if(!key.isValid())
+						continue;
+					if(key.isAcceptable())
+						((Runnable) key.attachment()).run();
+					else
+					{
+						final Connection connection = (Connection) key.attachment();
+						if(key.isReadable())
+							connection.read();
+						if(key.isValid() && key.isWritable())
+							connection.flush();
+					}
+				}
+			}
+		}
+		catch(IOException e)
+		{
+			System.out.println("Exception! - event loop failed");
+			e.printStackTrace(System.out);
+		}
+		finally
+		{
+			for(Connection connection : new ArrayList<>(connections))
+				connection.close();
+			try {selector.close();} catch (IOException e) {}
+		}
+	}
+
+	/**
+	 * This method runs all tasks passed from other threads.
+	 */
+	private void runTasks()
+	{
+		Runnable task;
+		while((task = tasks.poll()) != null)
+			task.run();
+	}
+	/**
+	 * This method runs delayed tasks which deadlines have passed.
+	 */
+	private void runTimers()
+	{
+		final long now = System.currentTimeMillis();
+		while(!timers.isEmpty() && timers.peek().deadline <= now)
+			timers.poll().task.run();
+	}
+
+	/**
+	 * This is class which represents the delayed task of the loop.
+	 */
+	private static final class Timer implements Comparable<Timer>
+	{
+		/** Time of running the task in milliseconds */
+		private final long deadline;
+		/** Delayed task */
+		private final Runnable task;
+
+		/**
+		 * Timer constructor.
+		 * @param deadline is time of running the task in milliseconds.
+		 * @param task is delayed task.
+		 */
+		private Timer(final long deadline, final Runnable task)
+		{
+			this.deadline = deadline;
+			this.task = task;
+		}
+		@Override
+		public int compareTo(final Timer other)
+		{
+			return Long.compare(deadline, other.deadline);
+		}
+	}
+}
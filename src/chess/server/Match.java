@@ -0,0 +1,301 @@
+package chess.server;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+import chess.model.board.Board;
+import chess.model.board.Fen;
+import chess.model.board.MoveGenerator;
+import chess.model.board.Position;
+import chess.model.game.Move.AttackMove;
+import chess.model.game.Move.CastlingMove;
+import chess.model.game.Move.CommonMove;
+import chess.model.game.Move.PawnPromotionMove;
+import chess.model.game.MoveCode;
+import chess.model.game.MoveList;
+
+/**
+ * This is class which keeps authoritative state of one match on the
+ * server. Every MOVE message is checked against it before it is relayed
+ * to the opponent: message has to come from the side to move, describe
+ * legal move of the current position and its signature (CM, AM, PP, CS)
+ * has to agree with the kind of the move, because the opponent's client
+ * builds its Move object from the signature. Accepted moves are played on
+ * the position; after mate or stalemate no move is accepted.
+ * <p>
+ * State of the match is one bitboard Position and moves are checked with
+ * MoveGenerator.isLegal() without generating all moves and creating Move
+ * objects; all moves are generated only to find the end of the match,
+ * into the list kept by the match. So thousands of matches can be served
+ * cheaply. Message is parsed in place,
+ * without regular expressions; moves of the binary clients are checked
+ * straight from their 16-bit codes. Both players' sessions call play(), which
+ * is guarded by the lock (not synchronized block, so virtual threads are
+ * not pinned).
+ *
+ * @author Piotr Poskart
+ *
+ */
+public final class Match
+{
+	/**
+	 * This is enumeration of the results of the move check.
+	 */
+	public enum Result
+	{
+		/** Move is legal, it was played and may be relayed */
+		ACCEPTED,
+		/** Move was sent by the side which is not to move */
+		NOT_YOUR_TURN,
+		/** Move is malformed or not legal in the current position */
+		ILLEGAL_MOVE,
+		/** Match is over, no more moves are accepted */
+		GAME_OVER
+	}
+
+	/** Initial position of every match */
+	private static final Position START_POSITION = Fen.toPosition(Fen.START_POSITION);
+	/** Kinds of the moves given by their signatures */
+	private static final int COMMON = 0;
+	private static final int ATTACK = 1;
+	private static final int PROMOTION = 2;
+	private static final int CASTLING = 3;
+	private static final int UNKNOWN = -1;
+
+	/** Lock of the match state */
+	private final ReentrantLock lock;
+	/** Current position of the match */
+	private final Position position;
+	/** Moves list used for detection of the end of the match */
+	private final MoveList moves;
+	/** Code of the last accepted move, NO_MOVE before the first one */
+	private int lastMove;
+	/** Flag of the finished match */
+	private boolean gameOver;
+	/** Index of the next character of the parsed message */
+	private int cursor;
+
+	/**
+	 * Match constructor. Creates match in the initial position.
+	 */
+	public Match()
+	{
+		lock = new ReentrantLock();
+		position = START_POSITION.copy();
+		moves = new MoveList();
+	}
+	/**
+	 * This method checks move received from the player and plays it if it
+	 * is legal.
+	 * @param mark is mark of the player alliance, 'W' or 'B'.
+	 * @param message is MOVE message received from the player.
+	 * @return result of the check, move may be relayed only if ACCEPTED.
+	 */
+	public Result play(final char mark, final String message)
+	{
+		lock.lock();
+		try
+		{
+			final Result result = checkTurn(mark);
+			return result != null ? result : play(parseMove(message));
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+	/**
+	 * This method checks move received from the binary client and plays it
+	 * if it is legal. Castling is given by the two fields move of the king.
+	 * @param mark is mark of the player alliance, 'W' or 'B'.
+	 * @param compactMove is 16-bit move code (see MoveCode.toCompact()).
+	 * @return result of the check, move may be relayed only if ACCEPTED.
+	 */
+	public Result play(final char mark, final short compactMove)
+	{
+		lock.lock();
+		try
+		{
+			final Result result = checkTurn(mark);
+			return result != null ? result : play(MoveCode.fromCompact(compactMove, position));
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+	/**
+	 * Checks if the match is over.
+	 * @return true after mate or stalemate.
+	 */
+	public boolean isGameOver()
+	{
+		lock.lock();
+		try
+		{
+			return gameOver;
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+	/**
+	 * This method returns the last accepted move, so it can be relayed to
+	 * the opponent which uses another framing than the player.
+	 * @return move code, NO_MOVE before the first move.
+	 */
+	public int getLastMove()
+	{
+		lock.lock();
+		try
+		{
+			return lastMove;
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+	/**
+	 * This method returns current position of the match in FEN.
+	 * @return position in FEN.
+	 */
+	public String getFen()
+	{
+		lock.lock();
+		try
+		{
+			return Fen.toFen(position);
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * This method checks if the player may move now.
+	 * @param mark is mark of the player alliance.
+	 * @return result rejecting the move, null if the player is to move.
+	 */
+	private Result checkTurn(final char mark)
+	{
+		if(gameOver)
+			return Result.GAME_OVER;
+		final int alliance = mark == ServerProtocol.WHITE ? Position.WHITE : Position.BLACK;
+		return position.getSideToMove() == alliance ? null : Result.NOT_YOUR_TURN;
+	}
+	/**
+	 * This method plays the move if it is legal and checks if the match is
+	 * over.
+	 * @param move is move code, NO_MOVE for malformed move.
+	 * @return result of the check.
+	 */
+	private Result play(final int move)
+	{
+		if(move == MoveCode.NO_MOVE || !MoveGenerator.isLegal(position, move))
+			return Result.ILLEGAL_MOVE;
+		position.makeMove(move);
+		lastMove = move;
+		moves.clear();
+		MoveGenerator.generateLegalMoves(position, moves);
+		gameOver = moves.isEmpty();
+		return Result.ACCEPTED;
+	}
+	/**
+	 * This method reads move from the message "MOVE signature source
+	 * target [rook]" and checks if the signature agrees with the move.
+	 * @param message is MOVE message.
+	 * @return move code, NO_MOVE if message is malformed or signature does
+	 * not agree with the move.
+	 */
+	private int parseMove(final String message)
+	{
+		cursor = ServerProtocol.MOVE.length();
+		skipSpaces(message);
+		final int kind = parseSignature(message);
+		if(kind == UNKNOWN)
+			return MoveCode.NO_MOVE;
+		final int from = parseField(message);
+		final int to = parseField(message);
+		final int rook = kind == CASTLING ? parseField(message) : 0;
+		skipSpaces(message);
+		if(from < 0 || to < 0 || rook < 0 || cursor != message.length())
+			return MoveCode.NO_MOVE;
+		final int move = MoveCode.fromCompact(MoveCode.toCompact(from, to, kind == PROMOTION), position);
+		if(move == MoveCode.NO_MOVE)
+			return MoveCode.NO_MOVE;
+		final boolean agrees;
+		switch(kind)
+		{
+			case COMMON:
+				agrees = !MoveCode.isCapture(move) && !MoveCode.isPromotion(move) && !MoveCode.isCastling(move);
+				break;
+			case ATTACK:
+				agrees = MoveCode.isCapture(move) && !MoveCode.isPromotion(move);
+				break;
+			case PROMOTION:
+				agrees = MoveCode.getMovedType(move) == Position.PAWN;
+				break;
+			default:
+				agrees = MoveCode.isCastling(move) && MoveCode.getCastlingRookSource(move) == rook;
+				break;
+		}
+		return agrees ? move : MoveCode.NO_MOVE;
+	}
+	/**
+	 * This method reads move signature at the cursor.
+	 * @param message is MOVE message.
+	 * @return kind of the move, UNKNOWN if signature is not known (also
+	 * for empty move, which is never legal).
+	 */
+	private int parseSignature(final String message)
+	{
+		final int kind;
+		if(message.startsWith(CommonMove.moveSignature, cursor))
+			kind = COMMON;
+		else if(message.startsWith(AttackMove.moveSignature, cursor))
+			kind = ATTACK;
+		else if(message.startsWith(PawnPromotionMove.moveSignature, cursor))
+			kind = PROMOTION;
+		else if(message.startsWith(CastlingMove.moveSignature, cursor))
+			kind = CASTLING;
+		else
+			return UNKNOWN;
+		cursor += CommonMove.moveSignature.length();
+		return kind;
+	}
+	/**
+	 * This method reads field number preceded by spaces at the cursor.
+	 * @param message is MOVE message.
+	 * @return field number, -1 if it is missing or out of the board.
+	 */
+	private int parseField(final String message)
+	{
+		final int start = cursor;
+		skipSpaces(message);
+		if(cursor == start)
+			return -1;
+		int field = 0;
+		int digits = 0;
+		while(cursor < message.length() && digits < 3)
+		{
+			final char digit = message.charAt(cursor);
+			if(digit < '0' || digit > '9')
+				break;
+			field = 10 * field + digit - '0';
+			digits++;
+			cursor++;
+		}
+		return digits > 0 && field < Board.BOARD_FIELDS_NUMBER ? field : -1;
+	}
+	/**
+	 * This method moves the cursor over whitespace.
+	 * @param message is MOVE message.
+	 */
+	private void skipSpaces(final String message)
+	{
+		while(cursor < message.length() && Character.isWhitespace(message.charAt(cursor)))
+			cursor++;
+	}
+}
@@ -0,0 +1,430 @@
+package chess.server;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * This is class which pairs clients waiting for the match. Clients are
+ * kept in pools by the time control they seek; only clients of the same
+ * pool are paired, and only if their ratings differ at most by the rating
+ * band (unrated clients are paired with anyone). Client entering the pool
+ * is paired at once with the longest waiting compatible client, who plays
+ * white; if there is none, it waits for the next one.
+ * <p>
+ * Every pool has its own lock held only for a few operations, so clients
+ * seeking different time controls never wait for each other and a client
+ * which stalls does not block pairing of the others. Waiting clients are
+ * kept in insertion ordered hash sets, so leaving the queue on disconnect
+ * takes constant time and the longest waiting clients are at their front.
+ * Rated clients are also kept in buckets of the rating band width, so a
+ * compatible opponent is searched only among unrated clients and in three
+ * neighbouring buckets instead of the whole pool. Pool which becomes empty
+ * is removed, so the number of pools never exceeds the number of waiting
+ * clients. Clients waiting longer than the timeout are removed by the
+ * sweeper thread. Listener is notified about pairs and timeouts outside
+ * the locks.
+ *
+ * @author Piotr Poskart
+ *
+ * @param <T> is type of the client.
+ */
+public final class Matchmaker<T>
+{
+	/** Rating of the client who did not give it */
+	public static final int NO_RATING = 0;
+	/** Time control of the clients which do not seek particular one */
+	public static final String ANY_TIME_CONTROL = "-";
+	/** Default maximal rating difference of the paired clients */
+	public static final int DEFAULT_RATING_BAND = 200;
+	/** Default maximal waiting time in milliseconds */
+	public static final long DEFAULT_WAIT_TIMEOUT = 300_000;
+	/** Interval between removals of the timed out clients in milliseconds */
+	private static final long SWEEP_INTERVAL = 1000;
+
+	/**
+	 * This is interface of the object notified about results of the
+	 * matchmaking. Methods are called by the thread which paired or
+	 * removed the clients.
+	 *
+	 * @author Piotr Poskart
+	 *
+	 * @param <T> is type of the client.
+	 */
+	public interface Listener<T>
+	{
+		/**
+		 * This method is called when two clients are paired.
+		 * @param white is client playing white, the one who waited longer.
+		 * @param black is client playing black.
+		 */
+		void matched(T white, T black);
+		/**
+		 * This method is called when client waited too long and was removed.
+		 * @param client is removed client.
+		 */
+		void timedOut(T client);
+	}
+
+	/**
+	 * This is class which represents client's place in the queue. It is
+	 * returned by enqueue() and lets the client leave the queue.
+	 *
+	 * @author Piotr Poskart
+	 *
+	 * @param <T> is type of the client.
+	 */
+	public static final class Ticket<T>
+	{
+		/** Waiting client */
+		private final T client;
+		/** Rating of the client, NO_RATING if unknown */
+		private final int rating;
+		/** Pool of the time control sought by the client */
+		private final Pool<T> pool;
+		/** Time of entering the queue in milliseconds */
+		private final long enqueueTime;
+
+		/**
+		 * Ticket constructor.
+		 * @param client is waiting client.
+		 * @param rating is rating of the client.
+		 * @param pool is pool of the sought time control.
+		 * @param enqueueTime is time of entering the queue.
+		 */
+		private Ticket(final T client, final int rating, final Pool<T> pool, final long enqueueTime)
+		{
+			this.client = client;
+			this.rating = rating;
+			this.pool = pool;
+			this.enqueueTime = enqueueTime;
+		}
+		/**
+		 * Returns waiting client.
+		 * @return client.
+		 */
+		public T getClient()
+		{
+			return client;
+		}
+		/**
+		 * Returns rating of the client.
+		 * @return rating, NO_RATING if unknown.
+		 */
+		public int getRating()
+		{
+			return rating;
+		}
+	}
+
+	/**
+	 * This is class which holds clients waiting for one time control.
+	 * All its methods have to be called with the lock held.
+	 *
+	 * @param <T> is type of the client.
+	 */
+	private static final class Pool<T>
+	{
+		/** Time control sought by the waiting clients */
+		private final String timeControl;
+		/** Maximal rating difference of the paired clients */
+		private final int ratingBand;
+		/** Lock of the waiting clients */
+		private final ReentrantLock lock = new ReentrantLock();
+		/** Waiting clients in order of arrival */
+		private final LinkedHashSet<Ticket<T>> waiting = new LinkedHashSet<>();
+		/** Waiting unrated clients in order of arrival */
+		private final LinkedHashSet<Ticket<T>> unrated = new LinkedHashSet<>();
+		/** Waiting rated clients in order of arrival by rating bucket */
+		private final HashMap<Integer, LinkedHashSet<Ticket<T>>> buckets = new HashMap<>();
+		/** Flag which means that the pool was removed and cannot be used */
+		private boolean removed;
+
+		/**
+		 * Pool constructor.
+		 * @param timeControl is time control sought by the clients.
+		 * @param ratingBand is maximal rating difference of the paired clients.
+		 */
+		private Pool(final String timeControl, final int ratingBand)
+		{
+			this.timeControl = timeControl;
+			this.ratingBand = ratingBand;
+		}
+		/**
+		 * This method returns bucket of the rating. Buckets are as wide as
+		 * the rating band, so compatible rated clients are in the same or
+		 * in the neighbouring bucket.
+		 * @param rating is client rating.
+		 * @return bucket number.
+		 */
+		private int bucketOf(final int rating)
+		{
+			return Math.floorDiv(rating, Math.max(1, ratingBand));
+		}
+		/**
+		 * This method adds client at the end of the queue.
+		 * @param ticket is ticket of the client.
+		 */
+		private void add(final Ticket<T> ticket)
+		{
+			waiting.add(ticket);
+			if(ticket.rating == NO_RATING)
+				unrated.add(ticket);
+			else
+				buckets.computeIfAbsent(bucketOf(ticket.rating), bucket -> new LinkedHashSet<>()).add(ticket);
+		}
+		/**
+		 * This method removes client from the queue.
+		 * @param ticket is ticket of the client.
+		 * @return true if client was waiting in this pool.
+		 */
+		private boolean remove(final Ticket<T> ticket)
+		{
+			if(!waiting.remove(ticket))
+				return false;
+			if(ticket.rating == NO_RATING)
+				unrated.remove(ticket);
+			else
+			{
+				final int bucket = bucketOf(ticket.rating);
+				final LinkedHashSet<Ticket<T>> rated = buckets.get(bucket);
+				rated.remove(ticket);
+				if(rated.isEmpty())
+					buckets.remove(bucket);
+			}
+			return true;
+		}
+		/**
+		 * This method finds the longest waiting client compatible with the
+		 * given rating: any client for the unrated one, otherwise unrated
+		 * client or client rated within the band.
+		 * @param rating is rating of the client seeking the opponent.
+		 * @return ticket of the opponent, null if there is none.
+		 */
+		private Ticket<T> findOpponent(final int rating)
+		{
+			if(rating == NO_RATING)
+				return waiting.isEmpty() ? null : waiting.iterator().next();
+			Ticket<T> opponent = unrated.isEmpty() ? null : unrated.iterator().next();
+			final int bucket = bucketOf(rating);
+			for(int neighbour = bucket - 1; neighbour <= bucket + 1; neighbour++)
+			{
+				final LinkedHashSet<Ticket<T>> rated = buckets.get(neighbour);
+				if(rated == null)
+					continue;
+				for(Ticket<T> candidate : rated)
+				{
+					if(opponent != null && candidate.enqueueTime >= opponent.enqueueTime)
+						break;
+					if(Math.abs(candidate.rating - rating) <= ratingBand)
+					{
+						opponent = candidate;
+						break;
+					}
+				}
+			}
+			return opponent;
+		}
+	}
+
+	/** Pools of the waiting clients by time control */
+	private final ConcurrentHashMap<String, Pool<T>> pools;
+	/** Listener notified about pairs and timeouts */
+	private final Listener<T> listener;
+	/** Maximal rating difference of the paired clients */
+	private final int ratingBand;
+	/** Maximal waiting time in milliseconds */
+	private final long waitTimeout;
+	/** Number of waiting clients */
+	private final AtomicInteger waitingCount;
+	/** Thread removing timed out clients */
+	private final ScheduledExecutorService sweeper;
+
+	/**
+	 * Matchmaker constructor. Creates matchmaker with the default rating
+	 * band and timeout.
+	 * @param listener is listener notified about pairs and timeouts.
+	 */
+	public Matchmaker(final Listener<T> listener)
+	{
+		this(listener, DEFAULT_RATING_BAND, DEFAULT_WAIT_TIMEOUT);
+	}
+	/**
+	 * Matchmaker constructor.
+	 * @param listener is listener notified about pairs and timeouts.
+	 * @param ratingBand is maximal rating difference of the paired clients.
+	 * @param waitTimeout is maximal waiting time in milliseconds.
+	 */
+	public Matchmaker(final Listener<T> listener, final int ratingBand, final long waitTimeout)
+	{
+		this.listener = listener;
+		this.ratingBand = ratingBand;
+		this.waitTimeout = waitTimeout;
+		pools = new ConcurrentHashMap<>();
+		waitingCount = new AtomicInteger();
+		sweeper = Executors.newSingleThreadScheduledExecutor(runnable ->
+		{
+			final Thread thread = new Thread(runnable, "matchmaker-sweeper");
+			thread.setDaemon(true);
+			return thread;
+		});
+		final long interval = Math.min(SWEEP_INTERVAL, Math.max(1, waitTimeout / 2));
+		sweeper.scheduleWithFixedDelay(this::removeTimedOut, interval, interval, TimeUnit.MILLISECONDS);
+	}
+	/**
+	 * This method puts client into the queue. If compatible client waits
+	 * already, both are paired before the method returns.
+	 * @param client is client seeking the match.
+	 * @param rating is rating of the client, NO_RATING if unknown.
+	 * @param timeControl is sought time control, ANY_TIME_CONTROL if any.
+	 * @return ticket which lets the client leave the queue.
+	 */
+	public Ticket<T> enqueue(final T client, final int rating, final String timeControl)
+	{
+		Pool<T> pool;
+		Ticket<T> ticket;
+		Ticket<T> opponent;
+		boolean retry;
+		do
+		{
+			pool = pools.computeIfAbsent(timeControl, key -> new Pool<>(key, ratingBand));
+			ticket = new Ticket<>(client, rating, pool, System.currentTimeMillis());
+			opponent = null;
+			pool.lock.lock();
+			try
+			{
+				retry = pool.removed;
+				if(!retry)
+				{
+					opponent = pool.findOpponent(rating);
+					if(opponent == null)
+						pool.add(ticket);
+					else
+					{
+						pool.remove(opponent);
+						removeIfEmpty(pool);
+					}
+				}
+			}
+			finally
+			{
+				pool.lock.unlock();
+			}
+		}
+		while(retry);
+		if(opponent == null)
+			waitingCount.incrementAndGet();
+		else
+		{
+			waitingCount.decrementAndGet();
+			listener.matched(opponent.client, client);
+		}
+		return ticket;
+	}
+	/**
+	 * This method removes client from the queue, e.g. when it disconnects.
+	 * @param ticket is ticket of the client, null is ignored.
+	 * @return true if client was waiting, false if it was already paired,
+	 * timed out or removed.
+	 */
+	public boolean cancel(final Ticket<T> ticket)
+	{
+		if(ticket == null)
+			return false;
+		final boolean removed;
+		ticket.pool.lock.lock();
+		try
+		{
+			removed = ticket.pool.remove(ticket);
+			removeIfEmpty(ticket.pool);
+		}
+		finally
+		{
+			ticket.pool.lock.unlock();
+		}
+		if(removed)
+			waitingCount.decrementAndGet();
+		return removed;
+	}
+	/**
+	 * This method returns number of waiting clients.
+	 * @return number of clients in the queue.
+	 */
+	public int getWaitingCount()
+	{
+		return waitingCount.get();
+	}
+	/**
+	 * This method stops the sweeper thread. Waiting clients stay in the
+	 * queue.
+	 */
+	public void close()
+	{
+		sweeper.shutdownNow();
+	}
+
+	/**
+	 * This method removes the pool from the map if it has no waiting
+	 * clients. It has to be called with the pool lock held; clients which
+	 * got the removed pool from the map retry with a new one.
+	 * @param pool is examined pool.
+	 */
+	private void removeIfEmpty(final Pool<T> pool)
+	{
+		if(pool.waiting.isEmpty() && !pool.removed)
+		{
+			pool.removed = true;
+			pools.remove(pool.timeControl, pool);
+		}
+	}
+	/**
+	 * This method removes clients waiting longer than the timeout and
+	 * notifies the listener. The longest waiting clients are at the front
+	 * of every pool, so only removed clients are visited.
+	 */
+	private void removeTimedOut()
+	{
+		final long deadline = System.currentTimeMillis() - waitTimeout;
+		final List<T> timedOut = new ArrayList<>();
+		for(Pool<T> pool : pools.values())
+		{
+			pool.lock.lock();
+			try
+			{
+				while(!pool.waiting.isEmpty())
+				{
+					final Ticket<T> ticket = pool.waiting.iterator().next();
+					if(ticket.enqueueTime > deadline)
+						break;
+					pool.remove(ticket);
+					timedOut.add(ticket.client);
+				}
+				removeIfEmpty(pool);
+			}
+			finally
+			{
+				pool.lock.unlock();
+			}
+		}
+		waitingCount.addAndGet(-timedOut.size());
+		for(T client : timedOut)
+		{
+			try
+			{
+				listener.timedOut(client);
+			}
+			catch(RuntimeException e)
+			{
+				System.out.println("Exception! - cannot notify timed out client");
+				e.printStackTrace(System.out);
+			}
+		}
+	}
+}
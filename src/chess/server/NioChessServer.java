@@ -0,0 +1,147 @@
+package chess.server;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+/**
+ * This is class which implements non-blocking core of the chess server.
+ * Instead of the thread per client it uses a small pool of event loops:
+ * the first loop accepts connections from the server channel and assigns
+ * them to the loops in turn, every loop serves its connections with one
+ * selector and one thread. Clients are paired by the matchmaker, the one
+ * who waited longer plays white. Text protocol is the same as the
+ * protocol of the thread per client server (see ServerProtocol), so the
+ * clients work with both of them.
+ *
+ * @author Piotr Poskart
+ *
+ */
+public final class NioChessServer
+{
+	/** Maximal time of waiting for the loops at shutdown in milliseconds */
+	private static final long SHUTDOWN_TIMEOUT = 1000;
+
+	/** Port of the server */
+	private final int port;
+	/** Event loops serving the connections */
+	private final EventLoop[] loops;
+	/** Matchmaker pairing the clients */
+	private final Matchmaker<Connection> matchmaker;
+	/** Server channel accepting connections */
+	private ServerSocketChannel serverChannel;
+	/** Index of the loop receiving the next connection */
+	private int nextLoop;
+
+	/**
+	 * NioChessServer constructor.
+	 * @param port is port of the server.
+	 * @param loopCount is number of event loops.
+	 * @throws IOException if selectors can not be opened.
+	 * @throws IllegalArgumentException if number of loops is not positive.
+	 */
+	public NioChessServer(final int port, final int loopCount) throws IOException
+	{
+		if(loopCount < 1)
+			throw new IllegalArgumentException("Number of event loops must be positive: " + loopCount);
+		this.port = port;
+		loops = new EventLoop[loopCount];
+		for(int i = 0; i < loopCount; i++)
+			loops[i] = new EventLoop();
+		matchmaker = new Matchmaker<>(new Matchmaker.Listener<Connection>()
+		{
+			@Override
+			public void matched(final Connection white, final Connection black)
+			{
+				// white's loop starts black, see Connection.startMatch()
+				white.startMatch(black, ServerProtocol.WHITE, new Match());
+			}
+			@Override
+			public void timedOut(final Connection client)
+			{
+				client.noOpponent();
+			}
+		});
+	}
+	/**
+	 * This method returns default number of event loops: half of the
+	 * available processors.
+	 * @return number of event loops.
+	 */
+	public static int defaultLoopCount()
+	{
+		return Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+	}
+	/**
+	 * This method runs the server. It opens server channel, starts the
+	 * loops and returns when the server is closed.
+	 * @throws IOException if server channel can not be opened.
+	 */
+	public void run() throws IOException
+	{
+		serverChannel = ServerSocketChannel.open();
+		serverChannel.bind(new InetSocketAddress(port));
+		serverChannel.configureBlocking(false);
+		loops[0].registerAcceptor(serverChannel, this::acceptConnections);
+		for(int i = 1; i < loops.length; i++)
+			loops[i].start("server-loop-" + i);
+		System.out.println("Chess Server is Running (" + loops.length + " event loops)");
+		try
+		{
+			loops[0].run();
+		}
+		finally
+		{
+			try {serverChannel.close();} catch (IOException e) {}
+		}
+	}
+	/**
+	 * This method notifies all clients that the server is closed, closes
+	 * their connections and stops the loops.
+	 */
+	public void close()
+	{
+		matchmaker.close();
+		for(EventLoop loop : loops)
+			loop.shutdown();
+		try
+		{
+			for(EventLoop loop : loops)
+				loop.join(SHUTDOWN_TIMEOUT);
+		}
+		catch(InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * This method accepts all pending connections. It is called by the
+	 * first loop when the server channel is ready.
+	 */
+	private void acceptConnections()
+	{
+		while(true)
+		{
+			final SocketChannel channel;
+			try
+			{
+				channel = serverChannel.accept();
+				if(channel == null)
+					return;
+				channel.configureBlocking(false);
+			}
+			catch(IOException e)
+			{
+				System.out.println("Exception! - cannot accept connection");
+				e.printStackTrace(System.out);
+				return;
+			}
+			final EventLoop loop = loops[nextLoop];
+			nextLoop = (nextLoop + 1) % loops.length;
+			new Connection(channel, loop, matchmaker).open();
+			System.out.println("Server accepted player");
+		}
+	}
+}
@@ -0,0 +1,198 @@
+package chess.server;
+
+import chess.model.game.Move.AttackMove;
+import chess.model.game.Move.CastlingMove;
+import chess.model.game.Move.CommonMove;
+import chess.model.game.Move.PawnPromotionMove;
+import chess.model.game.MoveCode;
+
+/**
+ * This is class which defines text messages of the chess server protocol.
+ * Every message is one line. Server sends to the client:
+ * <pre>
+ * Welcome to the chess game! Waiting for opponent...
+ * ALLIANCE W|B         - alliance of the client in the match
+ * START                - match starts
+ * White, your move     - prompt of the side to move
+ * MOVE ...             - move of the opponent, relayed as received
+ * Opponent disconnected...
+ * DISCON               - opponent left the match
+ * SERVER CLOSE         - server is shut down
+ * REJECT reason        - move of the client was not relayed
+ * </pre>
+ * and receives MOVE and QUIT messages. Moves are checked by the server
+ * (see Match), illegal or out of turn moves are rejected. Client waiting for the opponent
+ * may also send
+ * <pre>
+ * SEEK rating [minutes+increment]
+ * </pre>
+ * to be paired only with clients of similar rating and the same time
+ * control; clients which do not send it are paired with any client not
+ * seeking particular time control. Client enters the queue after its
+ * first line or after NEGOTIATION_TIMEOUT if it sends nothing, so BINARY
+ * or SEEK request sent at once after connection is handled before the
+ * client can be paired. Both server cores (thread per
+ * client and event loop) send exactly the same messages, so clients do
+ * not know which one they are connected to. Client may also switch to
+ * binary framing of the same messages, see BinaryProtocol.
+ *
+ * @author Piotr Poskart
+ *
+ */
+public final class ServerProtocol
+{
+	/** Port of the chess server */
+	public static final int PORT = 8901;
+	/** Mark of the white player */
+	public static final char WHITE = 'W';
+	/** Mark of the black player */
+	public static final char BLACK = 'B';
+	/** Message sent to the client after connection */
+	public static final String WELCOME = "Welcome to the chess game! Waiting for opponent...";
+	/** Prefix of the alliance message */
+	public static final String ALLIANCE = "ALLIANCE ";
+	/** Message starting the match */
+	public static final String START = "START ";
+	/** Prefix of the move message */
+	public static final String MOVE = "MOVE";
+	/** Prefix of the message ending client session */
+	public static final String QUIT = "QUIT";
+	/** Prefix of the message with the rating and time control of the client */
+	public static final String SEEK = "SEEK";
+	/** Message sent to the client waiting for opponent's move */
+	public static final String OPPONENT_MOVE = "Opponent's move...";
+	/** Message sent to the client which opponent left */
+	public static final String OPPONENT_DISCONNECTED = "Opponent disconnected...";
+	/** Message ending the match after opponent left */
+	public static final String DISCONNECT = "DISCON";
+	/** Message sent to the client which waited too long for the opponent */
+	public static final String NO_OPPONENT = "No opponent found, try again later...";
+	/** Prefix of the message rejecting the move of the client */
+	public static final String REJECT = "REJECT ";
+	/** Message sent to the clients when server is shut down */
+	public static final String SERVER_CLOSING = "Chess server is closed, try another server...";
+	/** Message ending the session when server is shut down */
+	public static final String SERVER_CLOSE = "SERVER CLOSE";
+	/** Time in milliseconds the server waits for the first line of the client before queueing it */
+	public static final int NEGOTIATION_TIMEOUT = 250;
+	/** Maximal rating accepted in SEEK message */
+	private static final int MAX_RATING = 4000;
+	/** Maximal minutes and increment of the time control */
+	private static final int MAX_TIME_CONTROL_VALUE = 999;
+
+	private ServerProtocol() {}
+
+	/**
+	 * This method returns prompt of the side to move.
+	 * @param mark is mark of the player to move.
+	 * @return prompt message.
+	 */
+	public static String prompt(final char mark)
+	{
+		return mark == BLACK ? "Black, your move" : "White, your move";
+	}
+	/**
+	 * This method returns MOVE message of the move, as the client sends it.
+	 * @param move is move code.
+	 * @return move message.
+	 */
+	public static String moveMessage(final int move)
+	{
+		final String signature;
+		if(MoveCode.isCastling(move))
+			signature = CastlingMove.moveSignature;
+		else if(MoveCode.isPromotion(move))
+			signature = PawnPromotionMove.moveSignature;
+		else if(MoveCode.isCapture(move))
+			signature = AttackMove.moveSignature;
+		else
+			signature = CommonMove.moveSignature;
+		final StringBuilder message = new StringBuilder(20).append(MOVE).append(' ').append(signature)
+				.append(' ').append(MoveCode.getSource(move)).append(' ').append(MoveCode.getTarget(move));
+		if(MoveCode.isCastling(move))
+			message.append(' ').append(MoveCode.getCastlingRookSource(move));
+		return message.toString();
+	}
+	/**
+	 * This method returns message rejecting the move.
+	 * @param result is result of the move check.
+	 * @return rejection message.
+	 */
+	public static String rejection(final Match.Result result)
+	{
+		switch(result)
+		{
+			case NOT_YOUR_TURN:
+				return REJECT + "Not your move";
+			case GAME_OVER:
+				return REJECT + "Game is over";
+			default:
+				return REJECT + "Illegal move";
+		}
+	}
+	/**
+	 * This method reads rating from SEEK message.
+	 * @param message is SEEK message.
+	 * @return rating, Matchmaker.NO_RATING if it is missing or wrong.
+	 */
+	public static int parseRating(final String message)
+	{
+		final String[] tokens = message.trim().split("\\s+");
+		try
+		{
+			return tokens.length > 1 ? rating(Integer.parseInt(tokens[1])) : Matchmaker.NO_RATING;
+		}
+		catch(NumberFormatException e)
+		{
+			return Matchmaker.NO_RATING;
+		}
+	}
+	/**
+	 * This method reads time control from SEEK message. Only time controls
+	 * in the form minutes+increment are accepted, so clients can not create
+	 * unlimited number of matchmaking pools.
+	 * @param message is SEEK message.
+	 * @return time control, Matchmaker.ANY_TIME_CONTROL if it is missing
+	 * or wrong.
+	 */
+	public static String parseTimeControl(final String message)
+	{
+		final String[] tokens = message.trim().split("\\s+");
+		if(tokens.length < 3)
+			return Matchmaker.ANY_TIME_CONTROL;
+		final int separator = tokens[2].indexOf('+');
+		try
+		{
+			final int minutes = Integer.parseInt(tokens[2].substring(0, separator));
+			final int increment = Integer.parseInt(tokens[2].substring(separator + 1));
+			return timeControl(minutes, increment);
+		}
+		catch(NumberFormatException | StringIndexOutOfBoundsException e)
+		{
+			return Matchmaker.ANY_TIME_CONTROL;
+		}
+	}
+	/**
+	 * This method checks rating sent by the client.
+	 * @param rating is rating sent by the client.
+	 * @return rating, Matchmaker.NO_RATING if it is out of range.
+	 */
+	public static int rating(final int rating)
+	{
+		return rating > 0 && rating <= MAX_RATING ? rating : Matchmaker.NO_RATING;
+	}
+	/**
+	 * This method checks time control sent by the client.
+	 * @param minutes is base time of the time control.
+	 * @param increment is increment of the time control.
+	 * @return time control in the form minutes+increment,
+	 * Matchmaker.ANY_TIME_CONTROL if it is out of range.
+	 */
+	public static String timeControl(final int minutes, final int increment)
+	{
+		if(minutes < 0 || increment < 0 || minutes > MAX_TIME_CONTROL_VALUE || increment > MAX_TIME_CONTROL_VALUE
+				|| minutes + increment == 0)
+			return Matchmaker.ANY_TIME_CONTROL;
+		return minutes + "+" + increment;
+	}
+}
@@ -0,0 +1,74 @@
+package chess.server;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * This is class which creates executors running client sessions of the
+ * thread per client server. Every session gets its own thread, which
+ * blocks on reading the socket most of the time:
+ * <ul>
+ * <li>platform threads - every session occupies operating system thread
+ * with its stack, which limits the server to a few thousand clients,</li>
+ * <li>virtual threads - blocked session releases its carrier thread, so
+ * tens of thousands of idle clients cost only their heap objects.</li>
+ * </ul>
+ * Virtual threads are available since Java 21. The server is compiled for
+ * older Java, so the virtual thread executor is created by reflection.
+ *
+ * @author Piotr Poskart
+ *
+ */
+public final class SessionExecutors
+{
+	/** Name of the method creating virtual thread executor */
+	private static final String VIRTUAL_EXECUTOR_FACTORY = "newVirtualThreadPerTaskExecutor";
+
+	private SessionExecutors() {}
+
+	/**
+	 * This method creates executor running every session on new platform
+	 * thread.
+	 * @return session executor.
+	 */
+	public static ExecutorService platformThreads()
+	{
+		return Executors.newCachedThreadPool(runnable -> new Thread(runnable, "player-session"));
+	}
+	/**
+	 * This method creates executor running every session on new virtual
+	 * thread.
+	 * @return session executor.
+	 * @throws UnsupportedOperationException if Java does not support
+	 * virtual threads.
+	 */
+	public static ExecutorService virtualThreads()
+	{
+		try
+		{
+			return (ExecutorService) Executors.class.getMethod(VIRTUAL_EXECUTOR_FACTORY).invoke(null);
+		}
+		catch(NoSuchMethodException | IllegalAccessException | InvocationTargetException e)
+		{
+			throw new UnsupportedOperationException("Virtual threads require Java 21 or newer, running "
+					+ System.getProperty("java.version"), e);
+		}
+	}
+	/**
+	 * This method checks if virtual threads are supported.
+	 * @return true if virtual thread executor can be created.
+	 */
+	public static boolean isVirtualThreadsSupported()
+	{
+		try
+		{
+			Executors.class.getMethod(VIRTUAL_EXECUTOR_FACTORY);
+			return true;
+		}
+		catch(NoSuchMethodException e)
+		{
+			return false;
+		}
+	}
+}